@@ -0,0 +1,86 @@
+package com.github.jneat.mybatis;
+
+/**
+ * Generates benchmark documents of different shapes with given number of entries.
+ */
+public enum Documents {
+
+    /**
+     * Single object with scalar fields of mixed types.
+     */
+    FLAT {
+        @Override
+        void write(StringBuilder sb, int size) {
+            sb.append('{');
+            for (int i = 0; i < size; i++) {
+                if (i > 0) {
+                    sb.append(',');
+                }
+                sb.append("\"field").append(i).append("\":");
+                scalar(sb, i);
+            }
+            sb.append('}');
+        }
+    },
+
+    /**
+     * Chain of objects, each level has couple of scalars and next level.
+     */
+    NESTED {
+        @Override
+        void write(StringBuilder sb, int size) {
+            for (int i = 0; i < size; i++) {
+                sb.append("{\"id\":").append(i).append(",\"name\":\"level ").append(i).append("\",\"child\":");
+            }
+            sb.append("null");
+            for (int i = 0; i < size; i++) {
+                sb.append('}');
+            }
+        }
+    },
+
+    /**
+     * Array of small objects, like rows aggregated with json_agg.
+     */
+    ARRAY {
+        @Override
+        void write(StringBuilder sb, int size) {
+            sb.append('[');
+            for (int i = 0; i < size; i++) {
+                if (i > 0) {
+                    sb.append(',');
+                }
+                sb.append("{\"id\":").append(i)
+                    .append(",\"name\":\"item ").append(i)
+                    .append("\",\"price\":").append(i).append(".25")
+                    .append(",\"active\":").append(i % 2 == 0)
+                    .append(",\"tags\":[\"a\",\"b\"]}");
+            }
+            sb.append(']');
+        }
+    };
+
+    abstract void write(StringBuilder sb, int size);
+
+    String json(int size) {
+        StringBuilder sb = new StringBuilder(size * 32);
+        write(sb, size);
+        return sb.toString();
+    }
+
+    private static void scalar(StringBuilder sb, int i) {
+        switch (i % 4) {
+            case 0:
+                sb.append(i * 1000L);
+                break;
+            case 1:
+                sb.append(i).append(".5");
+                break;
+            case 2:
+                sb.append("\"value ").append(i).append('"');
+                break;
+            default:
+                sb.append(i % 8 == 3);
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.github.jneat.mybatis;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+/**
+ * Base of in-memory JDBC stubs. Benchmarks call only few JDBC methods, proxy passes them into {@link #call},
+ * any other method throws UnsupportedOperationException.
+ * Proxy allocates array of arguments per call, which is negligible next to reading of documents.
+ *
+ * @param <T> JDBC interface
+ */
+abstract class JdbcStub<T> implements InvocationHandler {
+
+    final T proxy;
+
+    JdbcStub(Class<T> type) {
+        this.proxy = type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, this));
+    }
+
+    @Override
+    public final Object invoke(Object p, Method method, Object[] args) {
+        switch (method.getName()) {
+            case "hashCode":
+                return System.identityHashCode(p);
+            case "equals":
+                return p == args[0];
+            case "toString":
+                return getClass().getSimpleName();
+            default:
+                return call(method.getName(), args);
+        }
+    }
+
+    /**
+     * @throws UnsupportedOperationException If stub does not implement method.
+     */
+    abstract Object call(String method, Object[] args);
+
+    static UnsupportedOperationException unsupported(String method) {
+        return new UnsupportedOperationException(method);
+    }
+}
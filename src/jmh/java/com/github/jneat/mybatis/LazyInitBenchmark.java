@@ -0,0 +1,104 @@
+package com.github.jneat.mybatis;
+
+import com.fasterxml.jackson.core.TreeNode;
+import com.fasterxml.jackson.databind.JsonNode;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * First access to lazily parsed values, alone and when several threads race for the same value.
+ * <p>
+ * In contended benchmarks threads walk shared slots in sequence, every slot is read by {@link #READERS} callers
+ * in a row and the last of them replaces it with fresh unparsed value, so most reads hit value which is being
+ * parsed by another thread. Replacement is cheap comparing to parsing, but it is included into the score.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LazyInitBenchmark {
+
+    static final int READERS = 4;
+
+    private static final int SLOTS = 1024;
+
+    @Param({"FLAT", "ARRAY"})
+    private Documents shape;
+
+    @Param({"100"})
+    private int size;
+
+    private ReaderWriter codec;
+
+    private JsonSource source;
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    private final AtomicReferenceArray<JsonNodeValue> values = new AtomicReferenceArray<>(SLOTS);
+
+    private final AtomicReferenceArray<TreeNodeLazyWrapper> trees = new AtomicReferenceArray<>(SLOTS);
+
+    @Setup
+    public void setup() {
+        codec = JsonCodecs.defaultCodec();
+        source = JsonSource.of(shape.json(size));
+        for (int i = 0; i < SLOTS; i++) {
+            values.set(i, JsonNodeValue.fromDb(source, codec));
+            trees.set(i, new TreeNodeLazyWrapper(source, codec));
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public JsonNode jsonNodeValueCold() {
+        return JsonNodeValue.fromDb(source, codec).view();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public TreeNode treeNodeCold() {
+        TreeNodeLazyWrapper tree = new TreeNodeLazyWrapper(source, codec);
+        tree.preload();
+        return tree;
+    }
+
+    @Benchmark
+    @Threads(READERS)
+    public JsonNode jsonNodeValueContended() {
+        long seq = sequence.getAndIncrement();
+        int slot = (int)(seq / READERS % SLOTS);
+        JsonNode node = values.get(slot).view();
+        if (seq % READERS == READERS - 1) {
+            values.set(slot, JsonNodeValue.fromDb(source, codec));
+        }
+        return node;
+    }
+
+    @Benchmark
+    @Threads(READERS)
+    public TreeNode treeNodeContended() {
+        long seq = sequence.getAndIncrement();
+        int slot = (int)(seq / READERS % SLOTS);
+        TreeNodeLazyWrapper tree = trees.get(slot);
+        tree.preload();
+        if (seq % READERS == READERS - 1) {
+            trees.set(slot, new TreeNodeLazyWrapper(source, codec));
+        }
+        return tree;
+    }
+}
@@ -0,0 +1,67 @@
+package com.github.jneat.mybatis;
+
+import com.fasterxml.jackson.core.TreeNode;
+import com.fasterxml.jackson.databind.JsonNode;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Three scalar fields of flat document: single pass projection against tree with pointer lookups.
+ * Fields are taken from the start, middle and end of document.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ProjectionBenchmark {
+
+    @Param({"10", "1000"})
+    private int size;
+
+    private final StubResultSet rs = new StubResultSet();
+
+    private final TreeNodeTypeHandler treeHandler = new TreeNodeTypeHandler();
+
+    private JsonProjectionTypeHandler<JsonNode> projectionHandler;
+
+    private String[] pointers;
+
+    @Setup
+    public void setup() {
+        rs.setJson(Documents.FLAT.json(size));
+        pointers = new String[]{"/field1", "/field" + size / 2, "/field" + (size - 1)};
+        projectionHandler = JsonProjectionTypeHandler.of(JsonNode.class);
+        for (String p : pointers) {
+            projectionHandler.project(p, p);
+        }
+    }
+
+    @Benchmark
+    public JsonNode projection() throws SQLException {
+        return projectionHandler.getResult(rs.proxy, 1);
+    }
+
+    @Benchmark
+    public Object treeLookups() throws SQLException {
+        TreeNode tree = treeHandler.getResult(rs.proxy, 1);
+        ((TreeNodeLazyWrapper)tree).preload();
+        Object last = null;
+        for (String p : pointers) {
+            last = tree.at(p);
+        }
+        return last;
+    }
+}
@@ -0,0 +1,82 @@
+package com.github.jneat.mybatis;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Raw codec costs: parsing into different tree models and serializing tree back.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ReaderWriterBenchmark {
+
+    @Param({"FLAT", "NESTED", "ARRAY"})
+    private Documents shape;
+
+    @Param({"10", "100", "1000"})
+    private int size;
+
+    private ReaderWriter codec;
+
+    private JsonSource text;
+
+    private JsonSource utf8;
+
+    private JsonNode node;
+
+    @Setup
+    public void setup() throws IOException {
+        codec = JsonCodecs.defaultCodec();
+        String json = shape.json(size);
+        text = JsonSource.of(json);
+        utf8 = JsonSource.of(json.getBytes(StandardCharsets.UTF_8));
+        node = codec.readTree(text);
+    }
+
+    @Benchmark
+    public JsonNode readTreeText() throws IOException {
+        return codec.readTree(text);
+    }
+
+    @Benchmark
+    public JsonNode readTreeUtf8() throws IOException {
+        return codec.readTree(utf8);
+    }
+
+    @Benchmark
+    public JsonNode readFrozenTree() throws IOException {
+        return codec.readFrozenTree(text);
+    }
+
+    @Benchmark
+    public JsonTape readTape() throws IOException {
+        return codec.readTape(text);
+    }
+
+    @Benchmark
+    public String writeString() throws IOException {
+        return codec.writer().writeValueAsString(node);
+    }
+
+    @Benchmark
+    public byte[] writeBytes() throws IOException {
+        return codec.writer().writeValueAsBytes(node);
+    }
+}
@@ -0,0 +1,31 @@
+package com.github.jneat.mybatis;
+
+import java.sql.PreparedStatement;
+
+/**
+ * PreparedStatement that keeps last bound value, so benchmark can consume it.
+ */
+final class StubPreparedStatement extends JdbcStub<PreparedStatement> {
+
+    Object value;
+
+    StubPreparedStatement() {
+        super(PreparedStatement.class);
+    }
+
+    @Override
+    Object call(String method, Object[] args) {
+        switch (method) {
+            case "setString":
+            case "setBytes":
+            case "setObject":
+                value = args[1];
+                return null;
+            case "setNull":
+                value = null;
+                return null;
+            default:
+                throw unsupported(method);
+        }
+    }
+}
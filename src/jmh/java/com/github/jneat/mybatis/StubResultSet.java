@@ -0,0 +1,48 @@
+package com.github.jneat.mybatis;
+
+import java.io.ByteArrayInputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+
+/**
+ * ResultSet with single JSON column, which value is replaced by benchmark.
+ */
+final class StubResultSet extends JdbcStub<ResultSet> {
+
+    private String json;
+
+    private byte[] bytes;
+
+    StubResultSet() {
+        super(ResultSet.class);
+    }
+
+    void setJson(String json) {
+        this.json = json;
+        this.bytes = json == null ? null : json.getBytes(StandardCharsets.UTF_8);
+    }
+
+    void setBytes(byte[] bytes) {
+        this.json = null;
+        this.bytes = bytes;
+    }
+
+    @Override
+    Object call(String method, Object[] args) {
+        switch (method) {
+            case "getString":
+                return json;
+            case "getBytes":
+                return bytes;
+            case "getBinaryStream":
+                return bytes == null ? null : new ByteArrayInputStream(bytes);
+            case "getCharacterStream":
+                return json == null ? null : new StringReader(json);
+            case "wasNull":
+                return bytes == null;
+            default:
+                throw unsupported(method);
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package com.github.jneat.mybatis;
+
+import com.fasterxml.jackson.core.TreeNode;
+import com.fasterxml.jackson.databind.JsonNode;
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Handler round trips against in-memory JDBC stubs, so only handler and Jackson costs are measured.
+ * Getters which name ends with "Parsed" also materialize the tree, as application code usually does.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TypeHandlerBenchmark {
+
+    @Param({"FLAT", "ARRAY"})
+    private Documents shape;
+
+    @Param({"10", "1000"})
+    private int size;
+
+    @Param({"STRING", "BYTES"})
+    private JsonReadMode readMode;
+
+    private final StubResultSet rs = new StubResultSet();
+
+    private final StubPreparedStatement ps = new StubPreparedStatement();
+
+    private final TreeNodeTypeHandler treeHandler = new TreeNodeTypeHandler();
+
+    private final TreeNodeTypeHandler compactTreeHandler = new TreeNodeTypeHandler();
+
+    private final JsonNodeValueTypeHandler valueHandler = new JsonNodeValueTypeHandler();
+
+    private JsonNode node;
+
+    private TreeNode readTree;
+
+    private JsonNodeValue readValue;
+
+    private JsonNodeValue parsedValue;
+
+    @Setup
+    public void setup() throws IOException, SQLException {
+        treeHandler.setReadMode(readMode);
+        compactTreeHandler.setReadMode(readMode);
+        compactTreeHandler.setTreeModel(JsonTreeModel.COMPACT);
+        valueHandler.setReadMode(readMode);
+
+        rs.setJson(shape.json(size));
+        node = JsonCodecs.defaultCodec().readTree(JsonSource.of(shape.json(size)));
+        readTree = treeHandler.getResult(rs.proxy, 1);
+        readValue = valueHandler.getResult(rs.proxy, 1);
+        parsedValue = valueHandler.getResult(rs.proxy, 1);
+        parsedValue.view();
+    }
+
+    @Benchmark
+    public TreeNode treeNodeGet() throws SQLException {
+        return treeHandler.getResult(rs.proxy, 1);
+    }
+
+    @Benchmark
+    public TreeNode treeNodeGetParsed() throws SQLException {
+        TreeNodeLazyWrapper tree = (TreeNodeLazyWrapper)treeHandler.getResult(rs.proxy, 1);
+        tree.preload();
+        return tree;
+    }
+
+    @Benchmark
+    public TreeNode treeNodeGetCompactParsed() throws SQLException {
+        TreeNodeLazyWrapper tree = (TreeNodeLazyWrapper)compactTreeHandler.getResult(rs.proxy, 1);
+        tree.preload();
+        return tree;
+    }
+
+    @Benchmark
+    public Object treeNodeSet() throws SQLException {
+        treeHandler.setParameter(ps.proxy, 1, node, null);
+        return ps.value;
+    }
+
+    @Benchmark
+    public Object treeNodeSetUnchanged() throws SQLException {
+        treeHandler.setParameter(ps.proxy, 1, readTree, null);
+        return ps.value;
+    }
+
+    @Benchmark
+    public JsonNodeValue jsonNodeValueGet() throws SQLException {
+        return valueHandler.getResult(rs.proxy, 1);
+    }
+
+    @Benchmark
+    public JsonNode jsonNodeValueGetParsed() throws SQLException {
+        return valueHandler.getResult(rs.proxy, 1).view();
+    }
+
+    @Benchmark
+    public Object jsonNodeValueSet() throws SQLException {
+        valueHandler.setParameter(ps.proxy, 1, JsonNodeValue.from(node), null);
+        return ps.value;
+    }
+
+    @Benchmark
+    public Object jsonNodeValueSetUnchanged() throws SQLException {
+        valueHandler.setParameter(ps.proxy, 1, readValue, null);
+        return ps.value;
+    }
+
+    /**
+     * Mutable copy of already parsed value, this is what every {@link JsonNodeValue#get()} call pays.
+     */
+    @Benchmark
+    public JsonNode jsonNodeValueCopy() {
+        return parsedValue.get();
+    }
+
+    @Benchmark
+    public JsonNode jsonNodeValueView() {
+        return parsedValue.view();
+    }
+}
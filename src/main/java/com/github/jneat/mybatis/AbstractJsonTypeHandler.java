@@ -0,0 +1,592 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Vladislav Zablotsky
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE. 
+ */
+package com.github.jneat.mybatis;
+
+import com.fasterxml.jackson.core.TreeNode;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.apache.ibatis.type.BaseTypeHandler;
+
+import java.io.ByteArrayInputStream;
+import java.io.CharArrayReader;
+import java.io.CharArrayWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.lang.reflect.TypeVariable;
+import java.nio.charset.StandardCharsets;
+import java.sql.CallableStatement;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Common configuration and JDBC access for JSON type handlers.
+ * Handlers are configured once, before registration in mybatis, and should not be changed later.
+ *
+ * @param <T> Mapped java type
+ */
+public abstract class AbstractJsonTypeHandler<T> extends BaseTypeHandler<T> {
+
+    /**
+     * Buffers larger than this will not be returned into pool.
+     */
+    private static final int MAX_POOLED_SIZE = 1 << 20;
+
+    private static final BufferPool<Utf8Buffer> BYTE_BUFFERS = new BufferPool<>();
+
+    private static final BufferPool<CharArrayWriter> CHAR_BUFFERS = new BufferPool<>();
+
+    private JsonReadMode readMode = JsonReadMode.STRING;
+
+    private JsonWriteMode writeMode = JsonWriteMode.STRING;
+
+    private ReaderWriter codec = JsonCodecs.defaultCodec();
+
+    private Executor parseExecutor;
+
+    private JsonLimits limits = JsonLimits.NONE;
+
+    private JsonCompressor compressor;
+
+    private int compressionThreshold = 1024;
+
+    public JsonReadMode getReadMode() {
+        return readMode;
+    }
+
+    /**
+     * Set how column content should be fetched from ResultSet.
+     * Default is {@link JsonReadMode#STRING}.
+     */
+    public void setReadMode(JsonReadMode readMode) {
+        if (readMode == null) {
+            throw new IllegalArgumentException("Read mode can not be null");
+        }
+        if (codec.isBinary() && (readMode == JsonReadMode.STRING || readMode == JsonReadMode.CHARACTER_STREAM)) {
+            throw new IllegalArgumentException("Binary codec '" + codec.name() + "' can not read " + readMode);
+        }
+        this.readMode = readMode;
+    }
+
+    public JsonWriteMode getWriteMode() {
+        return writeMode;
+    }
+
+    /**
+     * Set how JSON should be bound into PreparedStatement.
+     * Default is {@link JsonWriteMode#STRING}.
+     */
+    public void setWriteMode(JsonWriteMode writeMode) {
+        if (writeMode == null) {
+            throw new IllegalArgumentException("Write mode can not be null");
+        }
+        if (codec.isBinary() && isTextMode(writeMode)) {
+            throw new IllegalArgumentException("Binary codec '" + codec.name() + "' can not write " + writeMode);
+        }
+        if ((writeMode == JsonWriteMode.JSON || writeMode == JsonWriteMode.JSONB) && !PgJson.isDriverPresent()) {
+            throw new IllegalArgumentException("Write mode " + writeMode + " requires PostgreSQL JDBC driver");
+        }
+        if (compressor != null && isJsonTypeMode(writeMode)) {
+            throw new IllegalArgumentException("Compressed documents can not be written in " + writeMode + " mode");
+        }
+        this.writeMode = writeMode;
+    }
+
+    public String getCodec() {
+        return codec.name();
+    }
+
+    /**
+     * Set name of registered codec that should be used to read and write JSON.
+     * Default is {@link JsonCodecs#DEFAULT}.
+     * Binary codecs work with bytes only, so string and character based modes are switched to
+     * {@link JsonReadMode#BYTES} and {@link JsonWriteMode#BYTES}.
+     *
+     * @see JsonCodecs
+     */
+    public void setCodec(String name) {
+        this.codec = JsonCodecs.get(name);
+        if (codec.isBinary()) {
+            if (readMode == JsonReadMode.STRING || readMode == JsonReadMode.CHARACTER_STREAM) {
+                readMode = JsonReadMode.BYTES;
+            }
+            if (isTextMode(writeMode)) {
+                writeMode = JsonWriteMode.BYTES;
+            }
+        }
+        codecChanged();
+    }
+
+    ReaderWriter codec() {
+        return codec;
+    }
+
+    public Executor getParseExecutor() {
+        return parseExecutor;
+    }
+
+    /**
+     * Set executor that parses lazy values (TreeNode, JsonNodeValue, JsonValue) in background right after they are fetched,
+     * so parsing overlaps with fetching of next rows. Accessors of value wait for parsing that is already running,
+     * or parse value themselves if task was not started yet. Values are parsed on first access when executor is null,
+     * which is default, or rejects task. Handlers of eagerly mapped types ignore it.
+     */
+    public void setParseExecutor(Executor parseExecutor) {
+        this.parseExecutor = parseExecutor;
+    }
+
+    public JsonLimits getLimits() {
+        return limits;
+    }
+
+    /**
+     * Set limits of documents read from DB and what to do with documents that exceed them.
+     * Default is {@link JsonLimits#NONE}. Use stream read modes to stop reading too long documents before
+     * they are loaded into memory, in other modes drivers return whole value before it can be checked.
+     */
+    public void setLimits(JsonLimits limits) {
+        if (limits == null) {
+            throw new IllegalArgumentException("Limits can not be null");
+        }
+        this.limits = limits;
+    }
+
+    public String getCompression() {
+        return compressor == null ? null : compressor.name();
+    }
+
+    /**
+     * Set name of registered compressor for written documents, null (default) writes them as is.
+     * Documents are compressed in binary form for byte modes and with Base64 encoding for text modes,
+     * so column should be of binary or text type, not json. Compressed documents are recognized
+     * on read by marker, so compressed and plain rows can be mixed. Unchanged plain documents read from DB
+     * are compressed when they are written back.
+     *
+     * @see JsonCompression
+     */
+    public void setCompression(String name) {
+        if (name == null) {
+            this.compressor = null;
+            return;
+        }
+        JsonCompressor c = JsonCompression.get(name);
+        if (isJsonTypeMode(writeMode)) {
+            throw new IllegalArgumentException("Compressed documents can not be written in " + writeMode + " mode");
+        }
+        this.compressor = c;
+    }
+
+    public int getCompressionThreshold() {
+        return compressionThreshold;
+    }
+
+    /**
+     * Set minimal size of serialized document in bytes, which is compressed. Default is 1024.
+     */
+    public void setCompressionThreshold(int compressionThreshold) {
+        if (compressionThreshold < 0) {
+            throw new IllegalArgumentException("Compression threshold can not be negative");
+        }
+        this.compressionThreshold = compressionThreshold;
+    }
+
+    /**
+     * Run parsing of fetched value with parse executor if it is set.
+     *
+     * @return True if parsing was scheduled.
+     */
+    boolean submitParse(Runnable parse) {
+        Executor executor = parseExecutor;
+        if (executor != null) {
+            try {
+                executor.execute(parse);
+                return true;
+            } catch (RejectedExecutionException ex) {
+                // Value will be parsed on first access
+            }
+        }
+        return false;
+    }
+
+    private static boolean isTextMode(JsonWriteMode mode) {
+        return mode != JsonWriteMode.BYTES && mode != JsonWriteMode.BINARY_STREAM;
+    }
+
+    private static boolean isJsonTypeMode(JsonWriteMode mode) {
+        return mode == JsonWriteMode.AUTO || mode == JsonWriteMode.JSON || mode == JsonWriteMode.JSONB;
+    }
+
+    /**
+     * Called after codec change, handlers should drop everything resolved with previous codec.
+     */
+    void codecChanged() {
+    }
+
+    /**
+     * Serialize tree and bind it according to write mode.
+     */
+    void writeTree(PreparedStatement ps, int i, TreeNode tree) throws SQLException {
+        writeValue(ps, i, tree, codec.writer());
+    }
+
+    /**
+     * Serialize value with given writer and bind it according to write mode.
+     */
+    void writeValue(PreparedStatement ps, int i, Object value, ObjectWriter writer) throws SQLException {
+        JsonMetricsListener metrics = JsonMetrics.listener();
+        long start = metrics == null ? 0 : System.nanoTime();
+        try {
+            if (compressor != null) {
+                byte[] json = serializeBytes(value, writer);
+                serialized(metrics, start, json.length);
+                writeCompressed(ps, i, json);
+                return;
+            }
+            switch (writeMode) {
+                case BYTES: {
+                    byte[] json = serializeBytes(value, writer);
+                    serialized(metrics, start, json.length);
+                    ps.setBytes(i, json);
+                    break;
+                }
+                case BINARY_STREAM: {
+                    byte[] json = serializeBytes(value, writer);
+                    serialized(metrics, start, json.length);
+                    ps.setBinaryStream(i, new ByteArrayInputStream(json), json.length);
+                    break;
+                }
+                case CHARACTER_STREAM: {
+                    char[] json = serializeChars(value, writer);
+                    serialized(metrics, start, json.length);
+                    ps.setCharacterStream(i, new CharArrayReader(json), json.length);
+                    break;
+                }
+                default: {
+                    String json = writer.writeValueAsString(value);
+                    serialized(metrics, start, json.length());
+                    writeString(ps, i, json);
+                }
+            }
+        } catch (IOException ex) {
+            throw new RuntimeException(ex.getMessage(), ex);
+        }
+    }
+
+    private void serialized(JsonMetricsListener metrics, long start, int size) {
+        if (metrics != null) {
+            metrics.serialized(codec.name(), size, System.nanoTime() - start);
+            metrics.cellWritten(codec.name(), size);
+        }
+    }
+
+    /**
+     * Compress document if it is large enough and bind it according to write mode.
+     */
+    private void writeCompressed(PreparedStatement ps, int i, byte[] json) throws SQLException, IOException {
+        boolean compress = json.length >= compressionThreshold;
+        if (isTextMode(writeMode)) {
+            String text = compress ? JsonCompression.encodeText(compressor, json) : new String(json, StandardCharsets.UTF_8);
+            if (writeMode == JsonWriteMode.CHARACTER_STREAM) {
+                ps.setCharacterStream(i, new StringReader(text), text.length());
+            } else {
+                ps.setString(i, text);
+            }
+        } else {
+            bindBytes(ps, i, compress ? JsonCompression.encode(compressor, json) : json);
+        }
+    }
+
+    private void bindBytes(PreparedStatement ps, int i, byte[] data) throws SQLException {
+        if (writeMode == JsonWriteMode.BINARY_STREAM) {
+            ps.setBinaryStream(i, new ByteArrayInputStream(data), data.length);
+        } else {
+            ps.setBytes(i, data);
+        }
+    }
+
+    /**
+     * Bind source JSON as is, without parsing and serialization.
+     * Binary codecs transcode sources of other formats.
+     * Compressed sources are bound as they are stored, when compression is the same.
+     */
+    void writeSource(PreparedStatement ps, int i, JsonSource source) throws SQLException {
+        JsonMetricsListener metrics = JsonMetrics.listener();
+        if (metrics != null) {
+            metrics.cellWritten(codec.name(), source.length());
+        }
+        if (compressor != null) {
+            try {
+                if (source instanceof CompressedSource && ((CompressedSource)source).compression().equals(compressor.name())) {
+                    CompressedSource c = (CompressedSource)source;
+                    if (isTextMode(writeMode)) {
+                        String text = c.textForm();
+                        if (writeMode == JsonWriteMode.CHARACTER_STREAM) {
+                            ps.setCharacterStream(i, new StringReader(text), text.length());
+                        } else {
+                            ps.setString(i, text);
+                        }
+                    } else {
+                        bindBytes(ps, i, c.binaryForm());
+                    }
+                } else {
+                    writeCompressed(ps, i, codec.isBinary() ? source.encode(codec) : source.utf8());
+                }
+            } catch (IOException ex) {
+                throw new RuntimeException(ex.getMessage(), ex);
+            }
+            return;
+        }
+        if (codec.isBinary()) {
+            byte[] data;
+            try {
+                data = source.encode(codec);
+            } catch (IOException ex) {
+                throw new RuntimeException(ex.getMessage(), ex);
+            }
+            bindBytes(ps, i, data);
+            return;
+        }
+        switch (writeMode) {
+            case BYTES:
+                ps.setBytes(i, source.utf8());
+                break;
+            case BINARY_STREAM: {
+                byte[] json = source.utf8();
+                ps.setBinaryStream(i, new ByteArrayInputStream(json), json.length);
+                break;
+            }
+            case CHARACTER_STREAM: {
+                if (source instanceof JsonSource.Text) {
+                    String json = source.text();
+                    ps.setCharacterStream(i, new StringReader(json), json.length());
+                } else {
+                    ps.setCharacterStream(i, new InputStreamReader(new ByteArrayInputStream(source.utf8()), StandardCharsets.UTF_8));
+                }
+                break;
+            }
+            default:
+                writeString(ps, i, source.text());
+        }
+    }
+
+    void writeNull(PreparedStatement ps, int i) throws SQLException {
+        switch (writeMode) {
+            case BYTES:
+            case BINARY_STREAM:
+                ps.setBytes(i, null);
+                break;
+            case CHARACTER_STREAM:
+                ps.setNull(i, Types.CLOB);
+                break;
+            default:
+                writeString(ps, i, null);
+        }
+    }
+
+    /**
+     * Bind JSON string in string based modes.
+     */
+    private void writeString(PreparedStatement ps, int i, String json) throws SQLException {
+        switch (writeMode) {
+            case AUTO:
+                PgJson.bindAuto(ps, i, json);
+                break;
+            case JSON:
+                PgJson.bind(ps, i, json, "json");
+                break;
+            case JSONB:
+                PgJson.bind(ps, i, json, "jsonb");
+                break;
+            default:
+                ps.setString(i, json);
+        }
+    }
+
+    /*
+    Result arrays are always exact copies, because drivers may keep references to bound values
+    till statement execution (or even longer in batches), so pooled buffers can not be bound directly.
+     */
+    private static byte[] serializeBytes(Object value, ObjectWriter writer) throws IOException {
+        Utf8Buffer buf = BYTE_BUFFERS.acquire();
+        if (buf == null) {
+            buf = new Utf8Buffer(1024);
+        }
+        try {
+            writer.writeValue(buf, value);
+            return buf.toByteArray();
+        } finally {
+            if (buf.capacity() <= MAX_POOLED_SIZE) {
+                buf.reset();
+                BYTE_BUFFERS.release(buf);
+            }
+        }
+    }
+
+    private static char[] serializeChars(Object value, ObjectWriter writer) throws IOException {
+        CharArrayWriter buf = CHAR_BUFFERS.acquire();
+        if (buf == null) {
+            buf = new CharArrayWriter(1024);
+        }
+        try {
+            writer.writeValue(buf, value);
+            return buf.toCharArray();
+        } finally {
+            if (buf.size() <= MAX_POOLED_SIZE) {
+                buf.reset();
+                CHAR_BUFFERS.release(buf);
+            }
+        }
+    }
+
+    /**
+     * Fetch column content, return null in a case of SQL NULL.
+     */
+    JsonSource readSource(ResultSet rs, String columnName) throws SQLException {
+        try {
+            switch (readMode) {
+                case BYTES:
+                    return source(rs.getBytes(columnName));
+                case BINARY_STREAM:
+                    return source(rs.getBinaryStream(columnName));
+                case CHARACTER_STREAM:
+                    return source(rs.getCharacterStream(columnName));
+                default:
+                    return source(rs.getString(columnName));
+            }
+        } catch (IOException ex) {
+            throw new SQLException("Can not read JSON column '" + columnName + "'. " + ex.getMessage(), ex);
+        }
+    }
+
+    JsonSource readSource(ResultSet rs, int columnIndex) throws SQLException {
+        try {
+            switch (readMode) {
+                case BYTES:
+                    return source(rs.getBytes(columnIndex));
+                case BINARY_STREAM:
+                    return source(rs.getBinaryStream(columnIndex));
+                case CHARACTER_STREAM:
+                    return source(rs.getCharacterStream(columnIndex));
+                default:
+                    return source(rs.getString(columnIndex));
+            }
+        } catch (IOException ex) {
+            throw new SQLException("Can not read JSON column #" + columnIndex + ". " + ex.getMessage(), ex);
+        }
+    }
+
+    JsonSource readSource(CallableStatement cs, int columnIndex) throws SQLException {
+        try {
+            switch (readMode) {
+                case BYTES:
+                case BINARY_STREAM:
+                    // There is no binary stream accessor in CallableStatement
+                    return source(cs.getBytes(columnIndex));
+                case CHARACTER_STREAM:
+                    return source(cs.getCharacterStream(columnIndex));
+                default:
+                    return source(cs.getString(columnIndex));
+            }
+        } catch (IOException ex) {
+            throw new SQLException("Can not read JSON parameter #" + columnIndex + ". " + ex.getMessage(), ex);
+        }
+    }
+
+    /**
+     * Resolve type argument which handler class declares for generic base handler,
+     * e.g. {@code Dto} for {@code class DtoHandler extends JsonTypeHandler<Dto>}.
+     */
+    static Type typeArgument(Class<?> handlerClass, Class<?> base) {
+        Class<?> cls = handlerClass;
+        while (cls.getSuperclass() != base) {
+            cls = cls.getSuperclass();
+            if (cls == null) {
+                throw new IllegalArgumentException(handlerClass.getName() + " does not extend " + base.getName());
+            }
+        }
+        Type sup = cls.getGenericSuperclass();
+        if (sup instanceof ParameterizedType) {
+            Type arg = ((ParameterizedType) sup).getActualTypeArguments()[0];
+            if (!(arg instanceof TypeVariable)) {
+                return arg;
+            }
+        }
+        throw new IllegalStateException(cls.getName() + " should declare concrete type argument for " + base.getSimpleName());
+    }
+
+    private JsonSource source(String json) throws IOException {
+        return json == null ? null : read(limited(JsonSource.of(json)));
+    }
+
+    private JsonSource source(byte[] json) throws IOException {
+        return json == null ? null : read(limited(JsonSource.of(json, codec)));
+    }
+
+    private JsonSource source(InputStream in) throws IOException {
+        if (limits.isNone()) {
+            return source(Streams.readBytes(in));
+        }
+        return read(decompressed(limits.read(in, codec)));
+    }
+
+    private JsonSource source(Reader in) throws IOException {
+        if (limits.isNone()) {
+            byte[] json = Streams.readUtf8(in);
+            return json == null ? null : read(limited(JsonSource.of(json)));
+        }
+        return read(decompressed(limits.read(in, codec)));
+    }
+
+    /**
+     * Limits of compressed documents are checked against decompressed content.
+     */
+    private JsonSource limited(JsonSource source) throws IOException {
+        JsonSource s = JsonCompression.detect(source, codec);
+        return limits.isNone() ? s : limits.check(s, codec);
+    }
+
+    /**
+     * Stream is checked by limits already, content of compressed document is checked again.
+     * Spilled documents are accepted as they are.
+     */
+    private JsonSource decompressed(JsonSource source) throws IOException {
+        JsonSource s = JsonCompression.detect(source, codec);
+        return s == source || source instanceof SpilledSource ? s : limits.check(s, codec);
+    }
+
+    private JsonSource read(JsonSource source) {
+        JsonMetricsListener metrics = JsonMetrics.listener();
+        if (metrics != null && source != null) {
+            metrics.cellRead(codec.name(), source.length());
+        }
+        return source;
+    }
+}
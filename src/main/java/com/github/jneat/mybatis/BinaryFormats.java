@@ -0,0 +1,54 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Vladislav Zablotsky
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE. 
+ */
+package com.github.jneat.mybatis;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileGenerator;
+
+/**
+ * Mappers for optional binary formats.
+ * This class refers to optional dependencies, so each method should be called only when its format is on classpath.
+ */
+final class BinaryFormats {
+
+    private BinaryFormats() {
+    }
+
+    /**
+     * Smile with header and back references to repeated field names, which are very common
+     * in rows of one table.
+     */
+    static ObjectMapper smile() {
+        SmileFactory factory = new SmileFactory();
+        factory.configure(SmileGenerator.Feature.WRITE_HEADER, true);
+        factory.configure(SmileGenerator.Feature.CHECK_SHARED_NAMES, true);
+        return new ObjectMapper(factory);
+    }
+
+    static ObjectMapper cbor() {
+        return new ObjectMapper(new CBORFactory());
+    }
+}
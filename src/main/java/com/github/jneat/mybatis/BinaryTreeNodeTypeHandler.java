@@ -0,0 +1,48 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Vladislav Zablotsky
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE. 
+ */
+package com.github.jneat.mybatis;
+
+import org.apache.ibatis.type.MappedJdbcTypes;
+
+/**
+ * Same as {@link TreeNodeTypeHandler}, but for binary (bytea, BLOB) columns which store documents
+ * encoded with {@link JsonCodecs#SMILE} codec. JSON objects and arrays stored as UTF-8 text are read as well
+ * and will be rewritten in binary format on update.
+ * Use {@link #setCodec(String)} to switch into {@link JsonCodecs#CBOR} or other binary codec.
+ * If jackson-dataformat-smile is not on classpath, handler stores JSON as UTF-8 bytes.
+ * <p>
+ * Handler is not registered by package scan, so existing BLOB columns with JSON text are not rewritten.
+ * Use it in result map and parameters or register it explicitly:
+ * {@code registry.register(JsonNode.class, JdbcType.BLOB, BinaryTreeNodeTypeHandler.class)}.
+ */
+// Package scan registers handler for listed JDBC types only, so it registers nothing
+@MappedJdbcTypes({})
+public class BinaryTreeNodeTypeHandler extends TreeNodeTypeHandler {
+
+    public BinaryTreeNodeTypeHandler() {
+        setCodec(JsonCodecs.isRegistered(JsonCodecs.SMILE) ? JsonCodecs.SMILE : JsonCodecs.DEFAULT);
+        setReadMode(JsonReadMode.BYTES);
+        setWriteMode(JsonWriteMode.BYTES);
+    }
+}
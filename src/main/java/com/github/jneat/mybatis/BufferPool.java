@@ -0,0 +1,72 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Vladislav Zablotsky
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE. 
+ */
+package com.github.jneat.mybatis;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Small lock free pool of reusable buffers.
+ * It is not bound to threads, so it works in the same way for platform and virtual threads.
+ * If pool is empty caller should create new buffer, if pool is full released buffer is just dropped.
+ *
+ * @param <B> Buffer type
+ */
+final class BufferPool<B> {
+
+    private final AtomicReferenceArray<B> slots;
+
+    BufferPool(int size) {
+        this.slots = new AtomicReferenceArray<>(size);
+    }
+
+    BufferPool() {
+        this(Runtime.getRuntime().availableProcessors() * 2);
+    }
+
+    /**
+     * Take any buffer from pool or return null if pool is empty.
+     */
+    B acquire() {
+        for (int i = 0; i < slots.length(); i++) {
+            if (slots.get(i) != null) {
+                B b = slots.getAndSet(i, null);
+                if (b != null) {
+                    return b;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Return buffer into pool. Buffer should be already cleaned by caller.
+     */
+    void release(B buffer) {
+        for (int i = 0; i < slots.length(); i++) {
+            if (slots.get(i) == null && slots.compareAndSet(i, null, buffer)) {
+                return;
+            }
+        }
+    }
+}
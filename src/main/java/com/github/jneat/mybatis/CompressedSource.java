@@ -0,0 +1,196 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Vladislav Zablotsky
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE. 
+ */
+package com.github.jneat.mybatis;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+
+/**
+ * Document stored with {@link JsonCompression} marker. Only compressed data is kept in memory,
+ * it is decompressed straight into parser on each read, without intermediate string or byte array.
+ */
+final class CompressedSource extends JsonSource {
+
+    private static final long serialVersionUID = 2986004718224331585L;
+
+    private final byte[] data;
+
+    /**
+     * Start of compressed data in array, bytes before it are header of binary form.
+     */
+    private final int offset;
+
+    private final String compression;
+
+    private final ReaderWriter codec;
+
+    /**
+     * Document was stored in text form with Base64 encoded data.
+     */
+    private final boolean text;
+
+    private transient volatile Boolean binary;
+
+    CompressedSource(byte[] data, int offset, String compression, ReaderWriter codec, boolean text) {
+        this.data = data;
+        this.offset = offset;
+        this.compression = compression;
+        this.codec = codec;
+        this.text = text;
+    }
+
+    String compression() {
+        return compression;
+    }
+
+    /**
+     * Document as it is stored in binary column.
+     */
+    byte[] binaryForm() throws IOException {
+        if (!text) {
+            return data;
+        }
+        byte[] name = compression.getBytes(StandardCharsets.US_ASCII);
+        Utf8Buffer out = new Utf8Buffer(data.length + name.length + 4);
+        out.write(0);
+        out.write('J');
+        out.write('Z');
+        out.write(name.length);
+        out.write(name, 0, name.length);
+        out.write(data, 0, data.length);
+        return out.toByteArray();
+    }
+
+    /**
+     * Document as it is stored in text column.
+     */
+    String textForm() {
+        return '~' + compression + ':' + Base64.getEncoder().encodeToString(
+            offset == 0 ? data : Arrays.copyOfRange(data, offset, data.length));
+    }
+
+    /**
+     * Decompressed content.
+     */
+    InputStream open() throws IOException {
+        return JsonCompression.get(compression).decompress(new ByteArrayInputStream(data, offset, data.length - offset));
+    }
+
+    /**
+     * Compressed documents are never blank, handlers compress serialized values only.
+     */
+    @Override
+    boolean isBlank() {
+        return false;
+    }
+
+    /**
+     * Size of compressed data.
+     */
+    @Override
+    int length() {
+        return data.length - offset;
+    }
+
+    /**
+     * Binary codecs accept JSON text as well, so first bytes of content are checked as for plain documents.
+     */
+    @Override
+    boolean isBinary() {
+        Boolean b = binary;
+        if (b == null) {
+            if (!codec.isBinary()) {
+                b = false;
+            } else {
+                byte[] head = new byte[64];
+                int n = 0;
+                try (InputStream in = open()) {
+                    int r;
+                    while (n < head.length && (r = in.read(head, n, head.length - n)) != -1) {
+                        n += r;
+                    }
+                } catch (IOException ex) {
+                    throw new RuntimeException(ex.getMessage(), ex);
+                }
+                b = JsonSource.isBinary(head, n, codec);
+            }
+            binary = b;
+        }
+        return b;
+    }
+
+    @Override
+    String text() {
+        return new String(utf8(), StandardCharsets.UTF_8);
+    }
+
+    @Override
+    byte[] utf8() {
+        try {
+            return isBinary() ? transcode(parser(codec.factory()), textFactory()) : Streams.readBytes(open());
+        } catch (IOException ex) {
+            throw new RuntimeException(ex.getMessage(), ex);
+        }
+    }
+
+    @Override
+    <T> T readValue(ObjectReader reader) throws IOException {
+        ObjectReader r;
+        if (isBinary()) {
+            JsonFactory factory = codec.factory();
+            r = reader.getFactory() == factory ? reader : reader.with(factory);
+        } else {
+            r = textReader(reader);
+        }
+        try (InputStream in = open()) {
+            return r.readValue(in);
+        }
+    }
+
+    @Override
+    JsonParser parser(JsonFactory factory) throws IOException {
+        return isBinary() ? codec.factory().createParser(open()) : textFactory(factory).createParser(open());
+    }
+
+    @Override
+    byte[] encode(ReaderWriter target) throws IOException {
+        if (isBinary() && target.factory().getFormatName().equals(codec.factory().getFormatName())) {
+            return Streams.readBytes(open());
+        }
+        return super.encode(target);
+    }
+
+    @Override
+    Object cacheKey() {
+        return new ContentKey(data, text ? ContentKey.COMPRESSED_TEXT : ContentKey.COMPRESSED);
+    }
+}
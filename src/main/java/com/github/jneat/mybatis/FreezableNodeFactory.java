@@ -0,0 +1,360 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Vladislav Zablotsky
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE. 
+ */
+package com.github.jneat.mybatis;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Node factory which creates object and array nodes that can be made read only after parsing.
+ * Frozen nodes are still regular ObjectNode and ArrayNode instances, so they can be used anywhere,
+ * but all modifications will throw UnsupportedOperationException.
+ * Copies made by {@link JsonNode#deepCopy()} are regular mutable nodes.
+ */
+final class FreezableNodeFactory extends JsonNodeFactory {
+
+    private static final long serialVersionUID = 6178365372934113573L;
+
+    static final FreezableNodeFactory INSTANCE = new FreezableNodeFactory();
+
+    private FreezableNodeFactory() {
+        super(false);
+    }
+
+    @Override
+    public ObjectNode objectNode() {
+        return new FreezableObjectNode(this, new FreezableMap());
+    }
+
+    @Override
+    public ArrayNode arrayNode() {
+        return new FreezableArrayNode(this);
+    }
+
+    /**
+     * Make whole tree read only.
+     * Containers that were not created by this factory are replaced with read only copies,
+     * so result may be different instance than argument.
+     */
+    static JsonNode freeze(JsonNode node) {
+        if (node instanceof FreezableObjectNode) {
+            FreezableObjectNode on = (FreezableObjectNode)node;
+            if (!on.isFrozen()) {
+                Iterator<Map.Entry<String, JsonNode>> it = on.fields();
+                while (it.hasNext()) {
+                    Map.Entry<String, JsonNode> e = it.next();
+                    JsonNode frozen = freeze(e.getValue());
+                    if (frozen != e.getValue()) {
+                        e.setValue(frozen);
+                    }
+                }
+                on.freeze();
+            }
+            return on;
+        }
+        if (node instanceof FreezableArrayNode) {
+            FreezableArrayNode an = (FreezableArrayNode)node;
+            if (!an.isFrozen()) {
+                for (int i = 0; i < an.size(); i++) {
+                    JsonNode frozen = freeze(an.get(i));
+                    if (frozen != an.get(i)) {
+                        an.set(i, frozen);
+                    }
+                }
+                an.freeze();
+            }
+            return an;
+        }
+        if (node != null && node.isContainerNode()) {
+            return freeze(copy(node));
+        }
+        return node;
+    }
+
+    private static JsonNode copy(JsonNode node) {
+        if (node.isObject()) {
+            ObjectNode copy = INSTANCE.objectNode();
+            Iterator<Map.Entry<String, JsonNode>> it = node.fields();
+            while (it.hasNext()) {
+                Map.Entry<String, JsonNode> e = it.next();
+                copy.set(e.getKey(), e.getValue());
+            }
+            return copy;
+        }
+        ArrayNode copy = INSTANCE.arrayNode();
+        for (JsonNode child : node) {
+            copy.add(child);
+        }
+        return copy;
+    }
+
+    static boolean isFrozen(JsonNode node) {
+        if (node instanceof FreezableObjectNode) {
+            return ((FreezableObjectNode)node).isFrozen();
+        }
+        if (node instanceof FreezableArrayNode) {
+            return ((FreezableArrayNode)node).isFrozen();
+        }
+        return node == null || !node.isContainerNode();
+    }
+
+    private static UnsupportedOperationException readOnly() {
+        return new UnsupportedOperationException("JSON node is read only, use deepCopy() to get mutable copy");
+    }
+
+    /**
+     * All ObjectNode modifications go through children map, so it is enough to freeze the map.
+     */
+    @SuppressWarnings("unchecked")
+    static final class FreezableObjectNode extends ObjectNode {
+
+        private static final long serialVersionUID = -1946587337398815727L;
+
+        FreezableObjectNode(JsonNodeFactory nc, FreezableMap kids) {
+            super(nc, kids);
+        }
+
+        boolean isFrozen() {
+            return ((FreezableMap)_children).frozen;
+        }
+
+        void freeze() {
+            ((FreezableMap)_children).freeze();
+        }
+    }
+
+    /**
+     * Children list of ArrayNode is private, so every modification method is blocked one by one.
+     * Methods without {@code @Override} are internal hooks of newer Jackson versions.
+     */
+    @SuppressWarnings("unchecked")
+    static final class FreezableArrayNode extends ArrayNode {
+
+        private static final long serialVersionUID = 3376235616834914812L;
+
+        private boolean frozen;
+
+        FreezableArrayNode(JsonNodeFactory nc) {
+            super(nc);
+        }
+
+        boolean isFrozen() {
+            return frozen;
+        }
+
+        void freeze() {
+            frozen = true;
+        }
+
+        private void check() {
+            if (frozen) {
+                throw readOnly();
+            }
+        }
+
+        @Override
+        public Iterator<JsonNode> elements() {
+            Iterator<JsonNode> it = super.elements();
+            return frozen ? new ReadOnlyIterator<>(it) : it;
+        }
+
+        @Override
+        public JsonNode set(int index, JsonNode value) {
+            check();
+            return super.set(index, value);
+        }
+
+        @Override
+        public ArrayNode addAll(ArrayNode other) {
+            check();
+            return super.addAll(other);
+        }
+
+        @Override
+        public ArrayNode addAll(Collection<? extends JsonNode> nodes) {
+            check();
+            return super.addAll(nodes);
+        }
+
+        @Override
+        public JsonNode remove(int index) {
+            check();
+            return super.remove(index);
+        }
+
+        @Override
+        public ArrayNode removeAll() {
+            check();
+            return super.removeAll();
+        }
+
+        @Override
+        protected ArrayNode _add(JsonNode node) {
+            check();
+            return super._add(node);
+        }
+
+        @Override
+        protected ArrayNode _insert(int index, JsonNode node) {
+            check();
+            return super._insert(index, node);
+        }
+
+        protected ArrayNode _set(int index, JsonNode node) {
+            check();
+            super.remove(index);
+            return super._insert(index, node);
+        }
+
+        protected void _withXxxSetArrayElement(int index, JsonNode node) {
+            throw readOnly();
+        }
+    }
+
+    private static final class ReadOnlyIterator<T> implements Iterator<T> {
+
+        private final Iterator<T> it;
+
+        ReadOnlyIterator(Iterator<T> it) {
+            this.it = it;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return it.hasNext();
+        }
+
+        @Override
+        public T next() {
+            return it.next();
+        }
+
+        @Override
+        public void remove() {
+            throw readOnly();
+        }
+    }
+
+    /**
+     * Map which delegates everything to LinkedHashMap while it is mutable
+     * and to unmodifiable wrapper after freezing.
+     */
+    static final class FreezableMap implements Map<String, JsonNode> {
+
+        private Map<String, JsonNode> map = new LinkedHashMap<>();
+
+        private boolean frozen;
+
+        void freeze() {
+            if (!frozen) {
+                map = Collections.unmodifiableMap(map);
+                frozen = true;
+            }
+        }
+
+        @Override
+        public int size() {
+            return map.size();
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return map.isEmpty();
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return map.containsKey(key);
+        }
+
+        @Override
+        public boolean containsValue(Object value) {
+            return map.containsValue(value);
+        }
+
+        @Override
+        public JsonNode get(Object key) {
+            return map.get(key);
+        }
+
+        @Override
+        public JsonNode put(String key, JsonNode value) {
+            return map.put(key, value);
+        }
+
+        @Override
+        public JsonNode remove(Object key) {
+            return map.remove(key);
+        }
+
+        @Override
+        public void putAll(Map<? extends String, ? extends JsonNode> m) {
+            map.putAll(m);
+        }
+
+        @Override
+        public void clear() {
+            map.clear();
+        }
+
+        @Override
+        public Set<String> keySet() {
+            return map.keySet();
+        }
+
+        @Override
+        public Collection<JsonNode> values() {
+            return map.values();
+        }
+
+        @Override
+        public Set<Entry<String, JsonNode>> entrySet() {
+            return map.entrySet();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o == this || map.equals(o);
+        }
+
+        @Override
+        public int hashCode() {
+            return map.hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return map.toString();
+        }
+    }
+}
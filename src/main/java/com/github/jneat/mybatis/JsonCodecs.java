@@ -0,0 +1,263 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Vladislav Zablotsky
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE. 
+ */
+package com.github.jneat.mybatis;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.MapperFeature;
+import com.fasterxml.jackson.databind.Module;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Registry of named JSON codecs used by type handlers.
+ * Handlers take codec by name ({@link AbstractJsonTypeHandler#setCodec(String)}) when they are configured,
+ * so codecs should be registered before handlers.
+ * <p>
+ * There are two built-in codecs:
+ * <ul>
+ * <li>{@link JsonCodecs#DEFAULT} - lenient parser that accepts unquoted field names, single quotes
+ * and numbers with leading zeros, used by handlers unless configured otherwise</li>
+ * <li>{@link JsonCodecs#STRICT} - plain ObjectMapper, which parses standard JSON only and is slightly faster</li>
+ * </ul>
+ * When jackson-dataformat-smile or jackson-dataformat-cbor are on classpath, binary codecs
+ * {@link JsonCodecs#SMILE} and {@link JsonCodecs#CBOR} are registered as well.
+ */
+public final class JsonCodecs {
+
+    public static final String DEFAULT = "default";
+
+    public static final String STRICT = "strict";
+
+    public static final String SMILE = "smile";
+
+    public static final String CBOR = "cbor";
+
+    private static final ConcurrentMap<String, ReaderWriter> CODECS = new ConcurrentHashMap<>();
+
+    static {
+        ObjectMapper lenient = new ObjectMapper();
+        lenient.configure(JsonParser.Feature.ALLOW_UNQUOTED_FIELD_NAMES, true);
+        lenient.configure(JsonParser.Feature.ALLOW_NUMERIC_LEADING_ZEROS, true);
+        lenient.configure(JsonParser.Feature.ALLOW_SINGLE_QUOTES, true);
+        register(DEFAULT, lenient);
+        register(STRICT, new ObjectMapper());
+        if (isPresent("com.fasterxml.jackson.dataformat.smile.SmileFactory")) {
+            register(SMILE, BinaryFormats.smile());
+        }
+        if (isPresent("com.fasterxml.jackson.dataformat.cbor.CBORFactory")) {
+            register(CBOR, BinaryFormats.cbor());
+        }
+    }
+
+    private JsonCodecs() {
+    }
+
+    /**
+     * Register codec built from mapper, existing codec with same name is replaced for handlers configured later.
+     * Mapper should be fully configured, it should not be changed after registration.
+     * New codec has no {@link JsonTreeCache cache}.
+     * Registering {@link JsonCodecs#DEFAULT} changes codec of all handlers created after that.
+     */
+    public static void register(String name, ObjectMapper mapper) {
+        if (name == null || name.isEmpty()) {
+            throw new IllegalArgumentException("Codec name can not be empty");
+        }
+        if (mapper == null) {
+            throw new IllegalArgumentException("Mapper can not be null");
+        }
+        CODECS.put(name, new ReaderWriter(name, mapper));
+    }
+
+    /**
+     * Register codecs described by properties in a form
+     * <pre>
+     * &lt;name&gt;.features = FEATURE_1, -FEATURE_2
+     * &lt;name&gt;.modules = com.example.FirstModule, com.example.SecondModule
+     * &lt;name&gt;.cache = 16777216
+     * </pre>
+     * Each codec is built from new ObjectMapper. Features are names of Jackson {@link JsonParser.Feature},
+     * {@link JsonGenerator.Feature}, {@link DeserializationFeature}, {@link SerializationFeature}
+     * or {@link MapperFeature} constants, prefixed with '-' to disable feature.
+     * Modules are class names of Jackson modules with public no-arguments constructor.
+     * Cache is maximum weight of {@link JsonTreeCache} attached to codec, which may be built-in one,
+     * i.e. estimated heap size of cached trees in bytes, 0 detaches cache. Other properties are ignored.
+     *
+     * @throws IllegalArgumentException On unknown features or modules that can not be created, or invalid cache size.
+     */
+    public static void configure(Properties properties) {
+        Map<String, ObjectMapper> mappers = new TreeMap<>();
+        Map<String, Long> caches = new TreeMap<>();
+        for (String key : properties.stringPropertyNames()) {
+            int dot = key.lastIndexOf('.');
+            if (dot <= 0) {
+                continue;
+            }
+            String name = key.substring(0, dot);
+            String option = key.substring(dot + 1);
+            if ("cache".equals(option)) {
+                caches.put(name, parseWeight(properties.getProperty(key)));
+                continue;
+            }
+            if (!"features".equals(option) && !"modules".equals(option)) {
+                continue;
+            }
+            ObjectMapper mapper = mappers.get(name);
+            if (mapper == null) {
+                mapper = new ObjectMapper();
+                mappers.put(name, mapper);
+            }
+            for (String value : properties.getProperty(key).split(",")) {
+                value = value.trim();
+                if (value.isEmpty()) {
+                    continue;
+                }
+                if ("features".equals(option)) {
+                    boolean enable = !value.startsWith("-");
+                    configureFeature(mapper, enable ? value : value.substring(1).trim(), enable);
+                } else {
+                    mapper.registerModule(createModule(value));
+                }
+            }
+        }
+        for (Map.Entry<String, ObjectMapper> e : mappers.entrySet()) {
+            register(e.getKey(), e.getValue());
+        }
+        for (Map.Entry<String, Long> e : caches.entrySet()) {
+            setCache(e.getKey(), e.getValue() == 0 ? null : new JsonTreeCache(e.getValue()));
+        }
+    }
+
+    /**
+     * Attach cache of parsed documents to registered codec, null detaches current cache.
+     * Cache is used by {@link JsonNodeValue} and lazy tree nodes read with that codec.
+     * Each codec should have own cache instance.
+     *
+     * @throws IllegalArgumentException If codec is not registered.
+     */
+    public static void setCache(String name, JsonTreeCache cache) {
+        get(name).cache(cache);
+    }
+
+    /**
+     * @return Cache attached to codec or null.
+     * @throws IllegalArgumentException If codec is not registered.
+     */
+    public static JsonTreeCache getCache(String name) {
+        return get(name).cache();
+    }
+
+    public static boolean isRegistered(String name) {
+        return name != null && CODECS.containsKey(name);
+    }
+
+    static ReaderWriter get(String name) {
+        ReaderWriter codec = find(name);
+        if (codec == null) {
+            throw new IllegalArgumentException("Unknown JSON codec '" + name + "'");
+        }
+        return codec;
+    }
+
+    static ReaderWriter find(String name) {
+        return name == null ? null : CODECS.get(name);
+    }
+
+    static ReaderWriter defaultCodec() {
+        return CODECS.get(DEFAULT);
+    }
+
+    /*
+    Some names exists in several feature sets (e.g. IGNORE_UNKNOWN), they are configured in each of them.
+     */
+    private static void configureFeature(ObjectMapper mapper, String name, boolean enable) {
+        boolean found = false;
+        for (JsonParser.Feature f : JsonParser.Feature.values()) {
+            if (f.name().equals(name)) {
+                mapper.configure(f, enable);
+                found = true;
+            }
+        }
+        for (JsonGenerator.Feature f : JsonGenerator.Feature.values()) {
+            if (f.name().equals(name)) {
+                mapper.configure(f, enable);
+                found = true;
+            }
+        }
+        for (DeserializationFeature f : DeserializationFeature.values()) {
+            if (f.name().equals(name)) {
+                mapper.configure(f, enable);
+                found = true;
+            }
+        }
+        for (SerializationFeature f : SerializationFeature.values()) {
+            if (f.name().equals(name)) {
+                mapper.configure(f, enable);
+                found = true;
+            }
+        }
+        for (MapperFeature f : MapperFeature.values()) {
+            if (f.name().equals(name)) {
+                mapper.configure(f, enable);
+                found = true;
+            }
+        }
+        if (!found) {
+            throw new IllegalArgumentException("Unknown Jackson feature '" + name + "'");
+        }
+    }
+
+    private static long parseWeight(String value) {
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException ex) {
+            throw new IllegalArgumentException("Invalid cache size '" + value + "'", ex);
+        }
+    }
+
+    private static boolean isPresent(String className) {
+        try {
+            Class.forName(className, false, JsonCodecs.class.getClassLoader());
+            return true;
+        } catch (ClassNotFoundException | LinkageError ex) {
+            return false;
+        }
+    }
+
+    private static Module createModule(String className) {
+        try {
+            Class<?> type = Class.forName(className, true, Thread.currentThread().getContextClassLoader());
+            return (Module)type.getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | ClassCastException | LinkageError ex) {
+            throw new IllegalArgumentException("Can not create Jackson module " + className + ". " + ex.getMessage(), ex);
+        }
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Vladislav Zablotsky
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE. 
+ */
+package com.github.jneat.mybatis;
+
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Invocation;
+
+import java.util.Properties;
+
+/**
+ * Register JSON codecs from mybatis configuration, it does not intercept anything.
+ * Plugins are configured before type handlers, so handlers can refer to these codecs.
+ * <pre>{@code
+ * <plugins>
+ *     <plugin interceptor="com.github.jneat.mybatis.JsonCodecsPlugin">
+ *         <property name="fast.features" value="-AUTO_CLOSE_SOURCE"/>
+ *         <property name="fast.modules" value="com.fasterxml.jackson.module.afterburner.AfterburnerModule"/>
+ *     </plugin>
+ * </plugins>
+ * }</pre>
+ *
+ * @see JsonCodecs#configure(Properties)
+ */
+public class JsonCodecsPlugin implements Interceptor {
+
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+        return invocation.proceed();
+    }
+
+    @Override
+    public Object plugin(Object target) {
+        return target;
+    }
+
+    @Override
+    public void setProperties(Properties properties) {
+        JsonCodecs.configure(properties);
+    }
+}
@@ -0,0 +1,255 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Vladislav Zablotsky
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE. 
+ */
+package com.github.jneat.mybatis;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Registry of named compressors and format of compressed documents.
+ * Compressed document starts with marker, so compressed and plain documents can be stored in the same column:
+ * <ul>
+ * <li>binary columns - bytes {@code 0x00 'J' 'Z'}, length of compressor name, name and compressed data</li>
+ * <li>text columns - {@code ~name:} followed by Base64 encoded compressed data</li>
+ * </ul>
+ * Neither of them can start JSON text or binary encoded container. Handlers recognize compressed documents
+ * whether compression is enabled for them or not, as long as compressor is registered.
+ * <p>
+ * Built-in compressor {@link JsonCompression#DEFLATE} uses JDK zlib.
+ */
+public final class JsonCompression {
+
+    public static final String DEFLATE = "deflate";
+
+    private static final byte[] MAGIC = {0, 'J', 'Z'};
+
+    private static final int BUFFER = 8192;
+
+    private static final ConcurrentMap<String, JsonCompressor> COMPRESSORS = new ConcurrentHashMap<>();
+
+    static {
+        register(deflate(Deflater.DEFAULT_COMPRESSION));
+    }
+
+    private JsonCompression() {
+    }
+
+    /**
+     * Register compressor, existing compressor with same name is replaced for handlers configured later.
+     */
+    public static void register(JsonCompressor compressor) {
+        if (compressor == null) {
+            throw new IllegalArgumentException("Compressor can not be null");
+        }
+        String name = compressor.name();
+        if (name == null || name.isEmpty() || name.length() > 255 || name.indexOf(':') >= 0
+            || !StandardCharsets.US_ASCII.newEncoder().canEncode(name)) {
+            throw new IllegalArgumentException("Compressor name should be ASCII string of 1 to 255 chars without ':'");
+        }
+        COMPRESSORS.put(name, compressor);
+    }
+
+    /**
+     * Zlib compressor named {@link JsonCompression#DEFLATE} with given level, register it to change default level.
+     *
+     * @param level Level from {@link Deflater#BEST_SPEED} to {@link Deflater#BEST_COMPRESSION} or {@link Deflater#DEFAULT_COMPRESSION}.
+     */
+    public static JsonCompressor deflate(int level) {
+        if ((level < Deflater.BEST_SPEED || level > Deflater.BEST_COMPRESSION) && level != Deflater.DEFAULT_COMPRESSION) {
+            throw new IllegalArgumentException("Invalid deflate level " + level);
+        }
+        return new Deflate(level);
+    }
+
+    /**
+     * @throws IllegalArgumentException When there is no such compressor.
+     */
+    static JsonCompressor get(String name) {
+        JsonCompressor c = COMPRESSORS.get(name);
+        if (c == null) {
+            throw new IllegalArgumentException("Unknown JSON compression '" + name + "'");
+        }
+        return c;
+    }
+
+    /**
+     * Compress document for binary column.
+     */
+    static byte[] encode(JsonCompressor compressor, byte[] data) throws IOException {
+        byte[] name = compressor.name().getBytes(StandardCharsets.US_ASCII);
+        Utf8Buffer out = new Utf8Buffer(data.length / 4 + name.length + 64);
+        out.write(MAGIC, 0, MAGIC.length);
+        out.write(name.length);
+        out.write(name, 0, name.length);
+        try (OutputStream z = compressor.compress(out)) {
+            z.write(data);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Compress document for text column.
+     */
+    static String encodeText(JsonCompressor compressor, byte[] data) throws IOException {
+        Utf8Buffer out = new Utf8Buffer(data.length / 4 + 64);
+        try (OutputStream z = compressor.compress(out)) {
+            z.write(data);
+        }
+        return '~' + compressor.name() + ':' + Base64.getEncoder().encodeToString(out.toByteArray());
+    }
+
+    /**
+     * Check if source starts with compression marker.
+     *
+     * @return Source which decompresses content on demand, or same source.
+     * @throws IOException When compressor is not registered or marker is malformed.
+     */
+    static JsonSource detect(JsonSource source, ReaderWriter codec) throws IOException {
+        if (source == null || source == JsonLimits.EXCEEDED || source instanceof CompressedSource) {
+            return source;
+        }
+        if (source instanceof JsonSource.Text) {
+            String text = source.text();
+            if (text.isEmpty() || text.charAt(0) != '~') {
+                return source;
+            }
+            int colon = text.indexOf(':');
+            if (colon < 2) {
+                throw new IOException("Malformed compressed JSON document");
+            }
+            return new CompressedSource(decode(text.substring(colon + 1)), 0, compressor(text.substring(1, colon)), codec, true);
+        }
+        if (source instanceof SpilledSource) {
+            // Spilled compressed document is loaded, it is still decompressed as stream
+            int first;
+            try (InputStream in = new FileInputStream(((SpilledSource)source).file())) {
+                first = in.read();
+            }
+            return first == 0 || first == '~' ? detect(source.stored(), source, codec) : source;
+        }
+        byte[] data = source.stored();
+        return data.length > 0 && (data[0] == 0 || data[0] == '~') ? detect(data, source, codec) : source;
+    }
+
+    private static JsonSource detect(byte[] data, JsonSource source, ReaderWriter codec) throws IOException {
+        if (data[0] == '~') {
+            int colon = -1;
+            for (int i = 1; i < data.length && i <= 256; i++) {
+                if (data[i] == ':') {
+                    colon = i;
+                    break;
+                }
+            }
+            if (colon < 2) {
+                throw new IOException("Malformed compressed JSON document");
+            }
+            String name = new String(data, 1, colon - 1, StandardCharsets.US_ASCII);
+            return new CompressedSource(decode(Arrays.copyOfRange(data, colon + 1, data.length)), 0, compressor(name), codec, true);
+        }
+        if (data.length < 4 || data[1] != MAGIC[1] || data[2] != MAGIC[2]) {
+            // Binary codec document, e.g. CBOR integer 0
+            return source;
+        }
+        int length = data[3] & 0xff;
+        if (length == 0 || data.length < 4 + length) {
+            throw new IOException("Malformed compressed JSON document");
+        }
+        String name = new String(data, 4, length, StandardCharsets.US_ASCII);
+        return new CompressedSource(data, 4 + length, compressor(name), codec, false);
+    }
+
+    private static byte[] decode(String base64) throws IOException {
+        return decode(base64.getBytes(StandardCharsets.ISO_8859_1));
+    }
+
+    private static byte[] decode(byte[] base64) throws IOException {
+        try {
+            return Base64.getDecoder().decode(base64);
+        } catch (IllegalArgumentException ex) {
+            throw new IOException("Malformed compressed JSON document. " + ex.getMessage(), ex);
+        }
+    }
+
+    private static String compressor(String name) throws IOException {
+        if (!COMPRESSORS.containsKey(name)) {
+            throw new IOException("Unknown JSON compression '" + name + "'");
+        }
+        return name;
+    }
+
+    private static final class Deflate implements JsonCompressor {
+
+        private final int level;
+
+        Deflate(int level) {
+            this.level = level;
+        }
+
+        @Override
+        public String name() {
+            return DEFLATE;
+        }
+
+        @Override
+        public OutputStream compress(OutputStream out) {
+            Deflater deflater = new Deflater(level);
+            return new DeflaterOutputStream(out, deflater, BUFFER) {
+                @Override
+                public void close() throws IOException {
+                    try {
+                        super.close();
+                    } finally {
+                        deflater.end();
+                    }
+                }
+            };
+        }
+
+        @Override
+        public InputStream decompress(InputStream in) {
+            Inflater inflater = new Inflater();
+            return new InflaterInputStream(in, inflater, BUFFER) {
+                @Override
+                public void close() throws IOException {
+                    try {
+                        super.close();
+                    } finally {
+                        inflater.end();
+                    }
+                }
+            };
+        }
+    }
+}
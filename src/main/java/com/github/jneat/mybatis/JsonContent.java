@@ -0,0 +1,103 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Vladislav Zablotsky
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE. 
+ */
+package com.github.jneat.mybatis;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Exact comparison of documents by their token streams.
+ * Source and tree are streamed side by side, so tree is checked against source it was read from
+ * without serializing it and comparison stops at first difference.
+ * Whitespace and number formatting do not matter, field order does.
+ */
+final class JsonContent {
+
+    private JsonContent() {
+    }
+
+    static JsonParser parser(JsonSource source, ReaderWriter codec) throws IOException {
+        return source.parser(codec.factory());
+    }
+
+    static boolean equal(JsonParser a, JsonParser b) throws IOException {
+        try (JsonParser pa = a; JsonParser pb = b) {
+            JsonToken t;
+            do {
+                t = pa.nextToken();
+                if (t != pb.nextToken() || (t != null && !sameValue(t, pa, pb))) {
+                    return false;
+                }
+            } while (t != null);
+            return true;
+        }
+    }
+
+    private static boolean sameValue(JsonToken t, JsonParser a, JsonParser b) throws IOException {
+        switch (t) {
+            case FIELD_NAME:
+            case VALUE_STRING:
+                return sameChars(a, b);
+            case VALUE_NUMBER_INT:
+                if (a.getNumberType() == JsonParser.NumberType.BIG_INTEGER || b.getNumberType() == JsonParser.NumberType.BIG_INTEGER) {
+                    return a.getBigIntegerValue().equals(b.getBigIntegerValue());
+                }
+                return a.getLongValue() == b.getLongValue();
+            case VALUE_NUMBER_FLOAT:
+                // Decimal tree keeps exact value, source text is read as exact decimal as well
+                if (a.getNumberType() == JsonParser.NumberType.BIG_DECIMAL || b.getNumberType() == JsonParser.NumberType.BIG_DECIMAL) {
+                    return a.getDecimalValue().compareTo(b.getDecimalValue()) == 0;
+                }
+                return Double.doubleToLongBits(a.getDoubleValue()) == Double.doubleToLongBits(b.getDoubleValue());
+            case VALUE_EMBEDDED_OBJECT:
+                Object oa = a.getEmbeddedObject();
+                Object ob = b.getEmbeddedObject();
+                if (oa instanceof byte[] && ob instanceof byte[]) {
+                    return Arrays.equals((byte[])oa, (byte[])ob);
+                }
+                return Objects.equals(oa, ob);
+            default:
+                return true;
+        }
+    }
+
+    private static boolean sameChars(JsonParser a, JsonParser b) throws IOException {
+        int length = a.getTextLength();
+        if (length != b.getTextLength()) {
+            return false;
+        }
+        char[] ca = a.getTextCharacters();
+        char[] cb = b.getTextCharacters();
+        for (int i = 0, ia = a.getTextOffset(), ib = b.getTextOffset(); i < length; i++) {
+            if (ca[ia + i] != cb[ib + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
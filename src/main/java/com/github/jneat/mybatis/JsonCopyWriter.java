@@ -0,0 +1,410 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Vladislav Zablotsky
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE. 
+ */
+package com.github.jneat.mybatis;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.TreeNode;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Encoder of rows for PostgreSQL {@code COPY ... FROM STDIN} in text or CSV format.
+ * JSON values are serialized with codec straight into output, escaping is applied to bytes on the fly,
+ * so no intermediate strings are built for rows. Values read from DB and not changed are copied as is.
+ * Output is UTF-8, so COPY should be run with UTF8 client encoding.
+ * <pre>{@code
+ * try (JsonCopyWriter w = JsonCopyWriter.postgres(con, "COPY events (id, payload) FROM STDIN", JsonCopyWriter.Format.TEXT)) {
+ *     for (Event e : events) {
+ *         w.writeText(e.getId()).writeJson(e.getPayload()).endRow();
+ *     }
+ * }
+ * }</pre>
+ * Use {@code FORMAT csv} in COPY statement for {@link Format#CSV}. Writer is not thread safe.
+ */
+public final class JsonCopyWriter implements Closeable, Flushable {
+
+    public enum Format {
+
+        /**
+         * Tab separated columns, backslash escapes, {@code \N} for null.
+         */
+        TEXT,
+
+        /**
+         * Comma separated quoted columns, empty unquoted value for null.
+         */
+        CSV
+    }
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final OutputStream out;
+
+    private final Format format;
+
+    private final ReaderWriter codec;
+
+    private final boolean postgres;
+
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+
+    private final Field field = new Field();
+
+    private int pos;
+
+    private int column;
+
+    private long rows;
+
+    /**
+     * Writer of text format with default codec.
+     */
+    public JsonCopyWriter(OutputStream out) {
+        this(out, Format.TEXT, JsonCodecs.DEFAULT);
+    }
+
+    /**
+     * @param codec Name of registered codec, it should not be binary.
+     */
+    public JsonCopyWriter(OutputStream out, Format format, String codec) {
+        this(out, format, JsonCodecs.get(codec), false);
+    }
+
+    private JsonCopyWriter(OutputStream out, Format format, ReaderWriter codec, boolean postgres) {
+        if (out == null) {
+            throw new IllegalArgumentException("Output can not be null");
+        }
+        check(format, codec);
+        this.out = out;
+        this.format = format;
+        this.codec = codec;
+        this.postgres = postgres;
+    }
+
+    /**
+     * Start COPY with PostgreSQL driver, closing writer ends COPY and {@link #abort()} cancels it.
+     *
+     * @param copySql {@code COPY table (columns) FROM STDIN} statement with format matching given one.
+     * @throws SQLException If PostgreSQL driver is not present or COPY can not be started.
+     */
+    public static JsonCopyWriter postgres(Connection con, String copySql, Format format) throws SQLException {
+        return postgres(con, copySql, format, JsonCodecs.DEFAULT);
+    }
+
+    public static JsonCopyWriter postgres(Connection con, String copySql, Format format, String codec) throws SQLException {
+        ReaderWriter rw = JsonCodecs.get(codec);
+        // Arguments are checked before COPY is started, connection would stay in COPY state otherwise
+        check(format, rw);
+        if (!PgJson.isDriverPresent()) {
+            throw new SQLException("COPY requires PostgreSQL JDBC driver");
+        }
+        return new JsonCopyWriter(PgCopy.copyIn(con, copySql), format, rw, true);
+    }
+
+    private static void check(Format format, ReaderWriter codec) {
+        if (format == null) {
+            throw new IllegalArgumentException("Format can not be null");
+        }
+        if (codec.isBinary()) {
+            throw new IllegalArgumentException("Binary codec '" + codec.name() + "' can not be used for COPY");
+        }
+    }
+
+    /**
+     * Write JSON column. Value may be JsonNodeValue, JsonValue, TreeNode or any object serializable by codec,
+     * empty values and null are written as NULL. Strings are written as JSON strings,
+     * wrap JSON text with {@link JsonNodeValue#from(String)} to write it as JSON document.
+     *
+     * @throws IllegalArgumentException If value was dropped by {@link JsonLimitPolicy#MISSING}.
+     */
+    public JsonCopyWriter writeJson(Object value) throws IOException {
+        if (value instanceof JsonNodeValue) {
+            JsonNodeValue v = (JsonNodeValue)value;
+            if (v.isLimitExceeded()) {
+                throw new IllegalArgumentException("JSON value was dropped because it exceeds limits, it can not be written");
+            }
+            if (!v.isPresent()) {
+                return writeNull();
+            }
+            return v.hasDbSource() ? writeSource(v.source()) : writeValue(v.node(), codec.writer());
+        }
+        if (value instanceof JsonValue) {
+            JsonValue<?> v = (JsonValue<?>)value;
+            if (v.isLimitExceeded()) {
+                throw new IllegalArgumentException("JSON value was dropped because it exceeds limits, it can not be written");
+            }
+            if (!v.isPresent()) {
+                return writeNull();
+            }
+            return v.hasDbSource() ? writeSource(v.source()) : writeValue(v.get(), codec.writer(v.type()));
+        }
+        if (value instanceof TreeNodeLazyWrapper) {
+            TreeNodeLazyWrapper w = (TreeNodeLazyWrapper)value;
+            if (w.isLimitExceeded()) {
+                throw new IllegalArgumentException("JSON value was dropped because it exceeds limits, it can not be written");
+            }
+            return w.isSourceActual() ? writeSource(w.source()) : writeValue(w.node(), codec.writer());
+        }
+        if (value == null || (value instanceof TreeNode && ((TreeNode)value).isMissingNode())) {
+            return writeNull();
+        }
+        return writeValue(value, codec.writer());
+    }
+
+    /**
+     * Write text column, e.g. id or name. Numbers and other values should be converted into their text representation.
+     */
+    public JsonCopyWriter writeText(CharSequence value) throws IOException {
+        if (value == null) {
+            return writeNull();
+        }
+        startField();
+        chars(value);
+        endField();
+        return this;
+    }
+
+    public JsonCopyWriter writeText(long value) throws IOException {
+        return writeText(Long.toString(value));
+    }
+
+    public JsonCopyWriter writeNull() throws IOException {
+        separator();
+        if (format == Format.TEXT) {
+            raw('\\');
+            raw('N');
+        }
+        return this;
+    }
+
+    /**
+     * Finish current row.
+     */
+    public JsonCopyWriter endRow() throws IOException {
+        raw('\n');
+        column = 0;
+        rows++;
+        return this;
+    }
+
+    /**
+     * Number of finished rows.
+     */
+    public long getRowCount() {
+        return rows;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        flushBuffer();
+        out.flush();
+    }
+
+    /**
+     * Flush data and close output, which ends COPY started by {@link #postgres(Connection, String, Format)}.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            flushBuffer();
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Cancel COPY started by {@link #postgres(Connection, String, Format)}, so no rows are inserted.
+     * Other outputs are closed without flushing buffered data.
+     */
+    public void abort() throws IOException {
+        pos = 0;
+        if (postgres) {
+            try {
+                PgCopy.cancel(out);
+            } catch (SQLException ex) {
+                throw new IOException(ex.getMessage(), ex);
+            }
+        } else {
+            out.close();
+        }
+    }
+
+    private JsonCopyWriter writeValue(Object value, ObjectWriter writer) throws IOException {
+        startField();
+        try (JsonGenerator g = codec.factory().createGenerator(field)) {
+            if (value instanceof TreeNode && !(value instanceof JsonNode)) {
+                // Read only views (e.g. compact trees) are not beans, they are copied token by token
+                try (JsonParser p = ((TreeNode)value).traverse()) {
+                    p.nextToken();
+                    g.copyCurrentStructure(p);
+                }
+            } else {
+                writer.writeValue(g, value);
+            }
+        }
+        endField();
+        return this;
+    }
+
+    private JsonCopyWriter writeSource(JsonSource source) throws IOException {
+        startField();
+        if (source.isBinary()) {
+            try (JsonParser p = source.parser(codec.factory()); JsonGenerator g = codec.factory().createGenerator(field)) {
+                if (p.nextToken() != null) {
+                    g.copyCurrentStructure(p);
+                }
+            }
+        } else if (source instanceof JsonSource.Text) {
+            chars(source.text());
+        } else {
+            field.write(source.utf8());
+        }
+        endField();
+        return this;
+    }
+
+    private void separator() throws IOException {
+        if (column++ > 0) {
+            raw(format == Format.TEXT ? '\t' : ',');
+        }
+    }
+
+    private void startField() throws IOException {
+        separator();
+        if (format == Format.CSV) {
+            raw('"');
+        }
+    }
+
+    private void endField() throws IOException {
+        if (format == Format.CSV) {
+            raw('"');
+        }
+    }
+
+    /**
+     * Encode chars into UTF-8, unpaired surrogates are replaced with '?' same as String.getBytes() does.
+     */
+    private void chars(CharSequence s) throws IOException {
+        for (int i = 0, len = s.length(); i < len; i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) {
+                escaped(c);
+            } else if (c < 0x800) {
+                raw(0xC0 | (c >> 6));
+                raw(0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < len && Character.isLowSurrogate(s.charAt(i + 1))) {
+                int cp = Character.toCodePoint(c, s.charAt(++i));
+                raw(0xF0 | (cp >> 18));
+                raw(0x80 | ((cp >> 12) & 0x3F));
+                raw(0x80 | ((cp >> 6) & 0x3F));
+                raw(0x80 | (cp & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                escaped('?');
+            } else {
+                raw(0xE0 | (c >> 12));
+                raw(0x80 | ((c >> 6) & 0x3F));
+                raw(0x80 | (c & 0x3F));
+            }
+        }
+    }
+
+    /**
+     * Write byte of field content. Bytes of multi-byte UTF-8 sequences are never escaped.
+     */
+    private void escaped(int b) throws IOException {
+        if (format == Format.TEXT) {
+            switch (b) {
+                case '\\':
+                    raw('\\');
+                    raw('\\');
+                    return;
+                case '\n':
+                    raw('\\');
+                    raw('n');
+                    return;
+                case '\r':
+                    raw('\\');
+                    raw('r');
+                    return;
+                case '\t':
+                    raw('\\');
+                    raw('t');
+                    return;
+                default:
+                    raw(b);
+            }
+        } else {
+            if (b == '"') {
+                raw('"');
+            }
+            raw(b);
+        }
+    }
+
+    private void raw(int b) throws IOException {
+        if (pos == BUFFER_SIZE) {
+            flushBuffer();
+        }
+        buffer[pos++] = (byte)b;
+    }
+
+    private void flushBuffer() throws IOException {
+        if (pos > 0) {
+            out.write(buffer, 0, pos);
+            pos = 0;
+        }
+    }
+
+    /**
+     * Content of current field, generators write into it.
+     */
+    private final class Field extends OutputStream {
+
+        @Override
+        public void write(int b) throws IOException {
+            escaped(b & 0xFF);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            for (int i = off, end = off + len; i < end; i++) {
+                escaped(b[i] & 0xFF);
+            }
+        }
+
+        @Override
+        public void close() {
+            // Field ends with value, output stays open
+        }
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Vladislav Zablotsky
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE. 
+ */
+package com.github.jneat.mybatis;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Structural difference of two documents as RFC 6902 JSON Patch.
+ * Patch contains only "add", "remove" and "replace" operations. Objects are compared field by field,
+ * arrays are compared by index: changed elements are replaced, new tail elements are added
+ * and missing tail elements are removed from the last one, so patch can be applied in order.
+ */
+public final class JsonDiff {
+
+    private JsonDiff() {
+    }
+
+    /**
+     * @param source Original document, null or missing node means absent document.
+     * @param target Changed document, null or missing node means absent document.
+     * @return Array of patch operations, empty when documents are equal.
+     */
+    public static ArrayNode diff(JsonNode source, JsonNode target) {
+        ArrayNode ops = JsonNodeFactory.instance.arrayNode();
+        boolean noSource = source == null || source.isMissingNode();
+        boolean noTarget = target == null || target.isMissingNode();
+        if (noSource && noTarget) {
+            return ops;
+        }
+        if (noTarget) {
+            op(ops, "remove", "", null);
+        } else if (noSource) {
+            // Root of absent document does not exist, so it can not be replaced
+            op(ops, "add", "", target);
+        } else {
+            diff("", source, target, ops);
+        }
+        return ops;
+    }
+
+    private static void diff(String path, JsonNode from, JsonNode to, ArrayNode ops) {
+        if (from.equals(to)) {
+            return;
+        }
+        if (from.isObject() && to.isObject()) {
+            Iterator<Map.Entry<String, JsonNode>> fields = from.fields();
+            while (fields.hasNext()) {
+                Map.Entry<String, JsonNode> e = fields.next();
+                JsonNode t = to.get(e.getKey());
+                String child = path + '/' + escape(e.getKey());
+                if (t == null) {
+                    op(ops, "remove", child, null);
+                } else {
+                    diff(child, e.getValue(), t, ops);
+                }
+            }
+            fields = to.fields();
+            while (fields.hasNext()) {
+                Map.Entry<String, JsonNode> e = fields.next();
+                if (!from.has(e.getKey())) {
+                    op(ops, "add", path + '/' + escape(e.getKey()), e.getValue());
+                }
+            }
+        } else if (from.isArray() && to.isArray()) {
+            int common = Math.min(from.size(), to.size());
+            for (int i = 0; i < common; i++) {
+                diff(path + '/' + i, from.get(i), to.get(i), ops);
+            }
+            for (int i = common; i < to.size(); i++) {
+                op(ops, "add", path + '/' + i, to.get(i));
+            }
+            for (int i = from.size() - 1; i >= common; i--) {
+                op(ops, "remove", path + '/' + i, null);
+            }
+        } else {
+            op(ops, "replace", path, to);
+        }
+    }
+
+    private static void op(ArrayNode ops, String op, String path, JsonNode value) {
+        ObjectNode o = ops.addObject();
+        o.put("op", op);
+        o.put("path", path);
+        if (value != null) {
+            o.set("value", value);
+        }
+    }
+
+    private static String escape(String name) {
+        return name.replace("~", "~0").replace("/", "~1");
+    }
+}
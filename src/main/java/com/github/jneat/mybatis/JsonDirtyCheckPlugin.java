@@ -0,0 +1,158 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Vladislav Zablotsky
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE. 
+ */
+package com.github.jneat.mybatis;
+
+import com.fasterxml.jackson.core.TreeNode;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.ParameterMapping;
+import org.apache.ibatis.mapping.ParameterMode;
+import org.apache.ibatis.mapping.SqlCommandType;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Plugin;
+import org.apache.ibatis.plugin.Signature;
+import org.apache.ibatis.reflection.MetaObject;
+
+import java.util.List;
+import java.util.Properties;
+import java.util.regex.Pattern;
+
+/**
+ * Skip UPDATE statements which would write JSON values unchanged since they were read from DB.
+ * Only statements with id matching {@code statements} regular expression are checked, they should update
+ * nothing but JSON columns, because other parameters are not checked. Statement is skipped when it has
+ * JSON parameters and none of them is modified, executor then reports 0 updated rows and batch executor
+ * does not add it into batch.
+ * <pre>{@code
+ * <plugins>
+ *     <plugin interceptor="com.github.jneat.mybatis.JsonDirtyCheckPlugin">
+ *         <property name="statements" value=".*Mapper\.update.*Json"/>
+ *     </plugin>
+ * </plugins>
+ * }</pre>
+ * Values are unmodified when:
+ * <ul>
+ * <li>{@link TreeNodeLazyWrapper} - {@link TreeNodeLazyWrapper#isModified()} is false.</li>
+ * <li>{@link JsonNodeValue} and {@link JsonValue} - value is read from DB, it is written back as is anyway.</li>
+ * <li>{@link JsonEdit} - {@link JsonEdit#isModified()} is false.</li>
+ * </ul>
+ */
+@Intercepts({@Signature(type = Executor.class, method = "update", args = {MappedStatement.class, Object.class})})
+public class JsonDirtyCheckPlugin implements Interceptor {
+
+    private Pattern statements;
+
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+        MappedStatement ms = (MappedStatement)invocation.getArgs()[0];
+        Object parameter = invocation.getArgs()[1];
+        if (statements != null && ms.getSqlCommandType() == SqlCommandType.UPDATE
+            && statements.matcher(ms.getId()).matches() && isUnmodified(ms, parameter)) {
+            return 0;
+        }
+        return invocation.proceed();
+    }
+
+    @Override
+    public Object plugin(Object target) {
+        return target instanceof Executor ? Plugin.wrap(target, this) : target;
+    }
+
+    /**
+     * Property {@code statements} is regular expression for ids of checked statements, nothing is checked without it.
+     */
+    @Override
+    public void setProperties(Properties properties) {
+        String p = properties.getProperty("statements");
+        statements = p == null || p.trim().isEmpty() ? null : Pattern.compile(p.trim());
+    }
+
+    /**
+     * Parameter values are resolved in same way as by mybatis DefaultParameterHandler.
+     */
+    private static boolean isUnmodified(MappedStatement ms, Object parameter) {
+        BoundSql sql = ms.getBoundSql(parameter);
+        List<ParameterMapping> mappings = sql.getParameterMappings();
+        if (mappings == null) {
+            return false;
+        }
+        boolean json = false;
+        MetaObject meta = null;
+        for (ParameterMapping m : mappings) {
+            if (m.getMode() == ParameterMode.OUT) {
+                continue;
+            }
+            String property = m.getProperty();
+            Object value;
+            if (sql.hasAdditionalParameter(property)) {
+                value = sql.getAdditionalParameter(property);
+            } else if (parameter == null) {
+                value = null;
+            } else if (ms.getConfiguration().getTypeHandlerRegistry().hasTypeHandler(parameter.getClass())) {
+                value = parameter;
+            } else {
+                if (meta == null) {
+                    meta = ms.getConfiguration().newMetaObject(parameter);
+                }
+                value = meta.getValue(property);
+            }
+            Boolean modified = isModified(value);
+            if (modified != null) {
+                if (modified) {
+                    return false;
+                }
+                json = true;
+            }
+        }
+        return json;
+    }
+
+    /**
+     * @return Null if value is not JSON one.
+     */
+    private static Boolean isModified(Object value) {
+        if (value instanceof TreeNodeLazyWrapper) {
+            TreeNodeLazyWrapper w = (TreeNodeLazyWrapper)value;
+            // Dropped documents are never skipped, so handler rejects them
+            return w.isLimitExceeded() || w.isModified();
+        }
+        if (value instanceof JsonNodeValue) {
+            return ((JsonNodeValue)value).isModified();
+        }
+        if (value instanceof JsonValue) {
+            return !((JsonValue<?>)value).hasDbSource();
+        }
+        if (value instanceof JsonEdit) {
+            JsonEdit e = (JsonEdit)value;
+            return e.isLimitExceeded() || e.isModified();
+        }
+        if (value instanceof TreeNode) {
+            return true;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,237 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Vladislav Zablotsky
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE. 
+ */
+package com.github.jneat.mybatis;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.MissingNode;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
+/**
+ * Editable document which is written into DB as difference from its DB version.
+ * Change tree returned by {@link JsonEdit#edit()}, {@link JsonEditTypeHandler} binds RFC 6902 patch
+ * from {@link JsonEdit#original()} to edited tree, so small changes of large documents send only changed parts.
+ * Mapper should apply patch to stored document, e.g. with {@code jsonb_patch} function
+ * from {@code com/github/jneat/mybatis/jsonb_patch.sql}:
+ * <pre>{@code
+ * UPDATE docs SET body = jsonb_patch(body, #{body}::jsonb) WHERE id = #{id}
+ * }</pre>
+ * Documents created with {@link JsonEdit#of(JsonNode)} have no DB version, so patch adds whole document at root.
+ */
+public final class JsonEdit implements Serializable {
+
+    private static final long serialVersionUID = 4307356137917209514L;
+
+    private static final JsonEdit EMPTY = new JsonEdit(null, null, null);
+
+    private static final JsonEdit LIMIT_EXCEEDED = new JsonEdit(null, null, null);
+
+    static {
+        LIMIT_EXCEEDED.limitExceeded = true;
+    }
+
+    private static final LazyInit<JsonEdit> LAZY = new LazyInit<>(
+        AtomicReferenceFieldUpdater.newUpdater(JsonEdit.class, LazyInit.Parse.class, "parse"));
+
+    private static final AtomicReferenceFieldUpdater<JsonEdit, JsonNode> ORIGINAL =
+        AtomicReferenceFieldUpdater.newUpdater(JsonEdit.class, JsonNode.class, "original");
+
+    private static final AtomicReferenceFieldUpdater<JsonEdit, JsonNode> EDITED =
+        AtomicReferenceFieldUpdater.newUpdater(JsonEdit.class, JsonNode.class, "edited");
+
+    private final JsonSource source;
+
+    private final ReaderWriter codec;
+
+    private boolean limitExceeded;
+
+    /**
+     * Serialized form of edited tree, JsonNode is not serializable in all supported Jackson versions.
+     */
+    private JsonSource editedSource;
+
+    private transient volatile JsonNode original;
+
+    private transient volatile JsonNode edited;
+
+    private transient volatile LazyInit.Parse parse;
+
+    private JsonEdit(JsonSource source, ReaderWriter codec, JsonNode edited) {
+        this.source = source;
+        this.codec = codec;
+        this.edited = edited;
+    }
+
+    /**
+     * Value without DB version and content, it is written as empty patch, so stored document is not changed.
+     */
+    public static JsonEdit empty() {
+        return EMPTY;
+    }
+
+    /**
+     * New document, which is written as whole. Node is not copied, so later changes of it are written too.
+     *
+     * @param node JSON node or null
+     */
+    public static JsonEdit of(JsonNode node) {
+        return node == null || node.isMissingNode() ? EMPTY : new JsonEdit(null, null, node);
+    }
+
+    static JsonEdit fromDb(JsonSource source, ReaderWriter codec) {
+        if (source == JsonLimits.EXCEEDED) {
+            return LIMIT_EXCEEDED;
+        }
+        if (source == null || source.isBlank()) {
+            return EMPTY;
+        }
+        return new JsonEdit(source, codec, null);
+    }
+
+    /**
+     * Check if document is present, either in DB version or as edited tree.
+     */
+    public boolean isPresent() {
+        return source != null || edited != null;
+    }
+
+    /**
+     * Check if content was dropped because it exceeds handler limits, such value can not be written.
+     *
+     * @see JsonLimitPolicy#MISSING
+     */
+    public boolean isLimitExceeded() {
+        return limitExceeded;
+    }
+
+    /**
+     * Read only document as it was read from DB (will parse it at first call).
+     *
+     * @return Read only JsonNode or MissingNode for documents without DB version.
+     * @throws RuntimeException On JSON parsing errors.
+     */
+    public JsonNode original() throws RuntimeException {
+        if (source == null) {
+            return MissingNode.getInstance();
+        }
+        JsonNode n = original;
+        if (n != null) {
+            return n;
+        }
+        try {
+            return LAZY.get(this, ORIGINAL, () -> codec().readFrozenTree(source));
+        } catch (IOException ex) {
+            throw new RuntimeException("Can not parse JSON string. " + ex.getMessage(), ex);
+        }
+    }
+
+    /**
+     * Mutable document, changes made to it will be written into DB.
+     * Same instance is returned on each call, it is copy of original document made at first call.
+     *
+     * @return Mutable JsonNode or MissingNode if there is no document.
+     * @throws RuntimeException On JSON parsing errors.
+     */
+    public JsonNode edit() throws RuntimeException {
+        JsonNode n = edited;
+        if (n != null) {
+            return n;
+        }
+        if (source == null) {
+            return MissingNode.getInstance();
+        }
+        JsonNode copy = original().deepCopy();
+        JsonMetricsListener metrics = JsonMetrics.listener();
+        if (metrics != null) {
+            metrics.deepCopied(codec().name());
+        }
+        return LazyInit.replace(this, EDITED, null, copy);
+    }
+
+    /**
+     * Check if document was changed since it was read. Edited tree is compared with original one,
+     * so documents that were edited and changed back are not modified.
+     */
+    public boolean isModified() {
+        return edited != null && (source == null || !original().equals(edited));
+    }
+
+    /**
+     * RFC 6902 patch from original document to edited one.
+     *
+     * @return Array of operations, empty if document was not modified.
+     * @throws RuntimeException On JSON parsing errors.
+     * @see JsonDiff#diff(JsonNode, JsonNode)
+     */
+    public ArrayNode patch() throws RuntimeException {
+        JsonNode n = edited;
+        return n == null ? JsonDiff.diff(null, null) : JsonDiff.diff(original(), n);
+    }
+
+    /**
+     * DB version of document, if it was never edited.
+     */
+    JsonSource unchangedSource() {
+        return edited == null ? source : null;
+    }
+
+    @Override
+    public String toString() {
+        JsonNode n = edited;
+        if (n != null) {
+            return n.toString();
+        }
+        return source == null ? "" : source.text();
+    }
+
+    ReaderWriter codec() {
+        return codec == null ? JsonCodecs.defaultCodec() : codec;
+    }
+
+    private void writeObject(ObjectOutputStream oos) throws IOException {
+        JsonNode n = edited;
+        editedSource = n == null ? null : codec().source(n);
+        oos.defaultWriteObject();
+    }
+
+    private void readObject(ObjectInputStream ois) throws IOException, ClassNotFoundException {
+        ois.defaultReadObject();
+        if (editedSource != null) {
+            edited = codec().readTree(editedSource);
+            editedSource = null;
+        }
+    }
+
+    private Object readResolve() {
+        if (limitExceeded) {
+            return LIMIT_EXCEEDED;
+        }
+        return source == null && edited == null ? EMPTY : this;
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Vladislav Zablotsky
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE. 
+ */
+package com.github.jneat.mybatis;
+
+import org.apache.ibatis.executor.result.ResultMapException;
+import org.apache.ibatis.type.JdbcType;
+import org.apache.ibatis.type.MappedTypes;
+
+import java.sql.CallableStatement;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Map JSON document as {@link JsonEdit}, which is written as RFC 6902 patch to its DB version.
+ * Should always return not null value.
+ * Parameter is bound as JSON array of patch operations, mapper SQL should apply it to stored document,
+ * e.g. with {@code jsonb_patch} function from {@code com/github/jneat/mybatis/jsonb_patch.sql}.
+ *
+ * @see JsonEdit
+ * @see JsonDiff
+ */
+@MappedTypes({JsonEdit.class})
+public class JsonEditTypeHandler extends AbstractJsonTypeHandler<JsonEdit> {
+
+    @Override
+    public void setNonNullParameter(PreparedStatement ps, int i, JsonEdit parameter, JdbcType jdbcType) throws SQLException {
+        if (parameter.isLimitExceeded()) {
+            throw new SQLException("JSON value was dropped because it exceeds limits, it can not be written");
+        }
+        writeTree(ps, i, parameter.patch());
+    }
+
+    @Override
+    public JsonEdit getNullableResult(ResultSet rs, String columnName) throws SQLException {
+        return JsonEdit.fromDb(readSource(rs, columnName), codec());
+    }
+
+    @Override
+    public JsonEdit getNullableResult(ResultSet rs, int columnIndex) throws SQLException {
+        return JsonEdit.fromDb(readSource(rs, columnIndex), codec());
+    }
+
+    @Override
+    public JsonEdit getNullableResult(CallableStatement cs, int columnIndex) throws SQLException {
+        return JsonEdit.fromDb(readSource(cs, columnIndex), codec());
+    }
+
+    /*
+    Override BaseTypeHandler in such way that result will never be null
+     */
+    @Override
+    public JsonEdit getResult(ResultSet rs, String columnName) throws SQLException {
+        try {
+            return getNullableResult(rs, columnName);
+        } catch (Exception e) {
+            throw new ResultMapException("Error attempting to get column '" + columnName + "' from result set.  Cause: " + e, e);
+        }
+    }
+
+    @Override
+    public JsonEdit getResult(ResultSet rs, int columnIndex) throws SQLException {
+        try {
+            return getNullableResult(rs, columnIndex);
+        } catch (Exception e) {
+            throw new ResultMapException("Error attempting to get column #" + columnIndex + " from result set.  Cause: " + e, e);
+        }
+    }
+
+    @Override
+    public JsonEdit getResult(CallableStatement cs, int columnIndex) throws SQLException {
+        try {
+            return getNullableResult(cs, columnIndex);
+        } catch (Exception e) {
+            throw new ResultMapException("Error attempting to get column #" + columnIndex + " from callable statement.  Cause: " + e, e);
+        }
+    }
+}
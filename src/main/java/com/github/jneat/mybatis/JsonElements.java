@@ -0,0 +1,266 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Vladislav Zablotsky
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE. 
+ */
+package com.github.jneat.mybatis;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JavaType;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Elements of JSON array column, which are read one by one with incremental parser.
+ * Whole array is never built, so memory used by iteration is bounded by one element.
+ * <p>
+ * Elements fetched as string or bytes can be iterated many times, each iteration parses source again.
+ * Elements fetched as binary or character stream ({@link JsonReadMode#BINARY_STREAM},
+ * {@link JsonReadMode#CHARACTER_STREAM}) are read directly from JDBC stream, so they can be iterated only once
+ * and only while result set row is current, e.g. inside of {@code ResultHandler} or {@code Cursor} loop.
+ * Every iteration has its own parser, so iterations may be nested.
+ * Iterations that were not finished should be closed, streams close elements automatically.
+ *
+ * @param <T> Type of elements
+ * @see JsonElementsTypeHandler
+ */
+public final class JsonElements<T> implements Iterable<T>, Closeable {
+
+    private static final JsonElements<?> EMPTY = new JsonElements<>(null, null, null, null, null);
+
+    private static final JsonElements<?> LIMIT_EXCEEDED = new JsonElements<>(null, null, null, null, null);
+
+    private final JavaType type;
+
+    private final ReaderWriter codec;
+
+    private final JsonSource source;
+
+    private final Iterable<? extends T> elements;
+
+    private Closeable input;
+
+    /**
+     * Parsers of iterations that were not finished yet.
+     */
+    private final Set<JsonParser> parsers = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    private boolean streamed;
+
+    private JsonElements(JavaType type, ReaderWriter codec, JsonSource source, Iterable<? extends T> elements, Closeable input) {
+        this.type = type;
+        this.codec = codec;
+        this.source = source;
+        this.elements = elements;
+        this.input = input;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <T> JsonElements<T> empty() {
+        return (JsonElements<T>)EMPTY;
+    }
+
+    /**
+     * Elements to be written as JSON array, e.g. from lazy collection or generator.
+     * Elements are serialized one by one while parameter is bound.
+     */
+    public static <T> JsonElements<T> of(Iterable<? extends T> elements) {
+        return elements == null ? JsonElements.<T>empty() : new JsonElements<T>(null, null, null, elements, null);
+    }
+
+    @SuppressWarnings("unchecked")
+    static <T> JsonElements<T> fromDb(JsonSource source, JavaType type, ReaderWriter codec) {
+        if (source == JsonLimits.EXCEEDED) {
+            return (JsonElements<T>)LIMIT_EXCEEDED;
+        }
+        if (source == null || source.isBlank()) {
+            return empty();
+        }
+        return new JsonElements<>(type, codec, source, null, null);
+    }
+
+    static <T> JsonElements<T> fromStream(InputStream input, JavaType type, ReaderWriter codec) {
+        return input == null ? JsonElements.<T>empty() : new JsonElements<T>(type, codec, null, null, input);
+    }
+
+    static <T> JsonElements<T> fromReader(Reader input, JavaType type, ReaderWriter codec) {
+        return input == null ? JsonElements.<T>empty() : new JsonElements<T>(type, codec, null, null, input);
+    }
+
+    /**
+     * Check if column was not null.
+     */
+    public boolean isPresent() {
+        return source != null || elements != null || input != null || streamed;
+    }
+
+    /**
+     * Check if array was dropped because it exceeds handler limits, such elements are not present and can not be written.
+     *
+     * @see JsonLimitPolicy#MISSING
+     */
+    public boolean isLimitExceeded() {
+        return this == LIMIT_EXCEEDED;
+    }
+
+    /**
+     * @throws IllegalStateException If elements are read from JDBC stream and were iterated already.
+     * @throws RuntimeException On JSON parsing errors or if column does not contain array.
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public synchronized Iterator<T> iterator() throws RuntimeException {
+        if (elements != null) {
+            return (Iterator<T>)elements.iterator();
+        }
+        if (source == null && input == null) {
+            if (streamed) {
+                throw new IllegalStateException("Elements read from JDBC stream can be iterated only once");
+            }
+            return Collections.emptyIterator();
+        }
+        try {
+            JsonParser parser;
+            if (source != null) {
+                parser = source.parser(codec.factory());
+            } else if (input instanceof InputStream) {
+                parser = codec.factory().createParser((InputStream)input);
+            } else {
+                parser = JsonSource.textFactory(codec.factory()).createParser((Reader)input);
+            }
+            if (input != null) {
+                // Parser owns the stream now and closes it
+                input = null;
+                streamed = true;
+            }
+            parsers.add(parser);
+            return new Elements(parser);
+        } catch (IOException ex) {
+            throw new RuntimeException("Can not parse JSON string. " + ex.getMessage(), ex);
+        }
+    }
+
+    /**
+     * Sequential stream of elements, it should be closed if it is not consumed completely.
+     */
+    public Stream<T> stream() {
+        return StreamSupport.stream(spliterator(), false).onClose(this::close);
+    }
+
+    /**
+     * Close JDBC stream and parsers of all iterations that were not finished.
+     */
+    @Override
+    public synchronized void close() {
+        List<JsonParser> open = new ArrayList<>(parsers);
+        parsers.clear();
+        try {
+            for (JsonParser p : open) {
+                p.close();
+            }
+            if (input != null) {
+                input.close();
+            }
+        } catch (IOException ex) {
+            throw new RuntimeException(ex.getMessage(), ex);
+        }
+    }
+
+    private synchronized void finished(JsonParser p) throws IOException {
+        parsers.remove(p);
+        p.close();
+    }
+
+    JsonSource source() {
+        return source;
+    }
+
+    Iterable<? extends T> elements() {
+        return elements;
+    }
+
+    private final class Elements implements Iterator<T> {
+
+        private final JsonParser p;
+
+        private boolean ready;
+
+        private boolean done;
+
+        Elements(JsonParser p) throws IOException {
+            this.p = p;
+            JsonToken t = p.nextToken();
+            if (t == null || t == JsonToken.VALUE_NULL) {
+                finish();
+            } else if (t != JsonToken.START_ARRAY) {
+                finished(p);
+                throw new IOException("JSON array expected, document starts with " + t);
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (!ready && !done) {
+                try {
+                    if (p.nextToken() == JsonToken.END_ARRAY || p.getCurrentToken() == null) {
+                        finish();
+                    } else {
+                        ready = true;
+                    }
+                } catch (IOException ex) {
+                    throw new RuntimeException("Can not parse JSON string. " + ex.getMessage(), ex);
+                }
+            }
+            return ready;
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            ready = false;
+            try {
+                return codec.reader(type).readValue(p);
+            } catch (IOException ex) {
+                throw new RuntimeException("Can not parse JSON string. " + ex.getMessage(), ex);
+            }
+        }
+
+        private void finish() throws IOException {
+            done = true;
+            finished(p);
+        }
+    }
+}
@@ -0,0 +1,179 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Vladislav Zablotsky
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE. 
+ */
+package com.github.jneat.mybatis;
+
+import com.fasterxml.jackson.databind.JavaType;
+import org.apache.ibatis.executor.result.ResultMapException;
+import org.apache.ibatis.type.JdbcType;
+
+import java.lang.reflect.Type;
+import java.sql.CallableStatement;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Map JSON array column as elements that are parsed one by one during iteration.
+ * Should always return not null value.
+ * <p>
+ * Handler reads elements of one java type, declare it for each type:
+ * <pre>{@code
+ * @MappedTypes(JsonElements.class)
+ * public class MeasurementsTypeHandler extends JsonElementsTypeHandler<Measurement> {}
+ * }</pre>
+ * Use {@code JsonNode} as type argument to iterate over tree nodes.
+ * Set {@link JsonReadMode#BINARY_STREAM} or {@link JsonReadMode#CHARACTER_STREAM} read mode to parse
+ * JDBC stream directly instead of fetching whole column, see {@link JsonElements} for limitations of that mode.
+ * Streams are not parsed directly when handler has limits or compression, compressed documents
+ * can be read in stream modes only by handlers with compression set.
+ * NOTE without {@code @MappedTypes(JsonElements.class)} mybatis package scan registers handler
+ * for {@code Measurement} instead of {@code JsonElements}.
+ *
+ * @param <T> Type of elements
+ * @see JsonElements
+ */
+public abstract class JsonElementsTypeHandler<T> extends AbstractJsonTypeHandler<JsonElements<T>> {
+
+    private final Type type;
+
+    private JavaType javaType;
+
+    /**
+     * Take element type from type argument of subclass.
+     */
+    protected JsonElementsTypeHandler() {
+        this.type = typeArgument(getClass(), JsonElementsTypeHandler.class);
+        codecChanged();
+    }
+
+    protected JsonElementsTypeHandler(Class<T> type) {
+        this.type = type;
+        codecChanged();
+    }
+
+    /**
+     * Create handler for given class, e.g.
+     * {@code registry.register(JsonElements.class, JsonElementsTypeHandler.of(JsonNode.class))}.
+     */
+    public static <T> JsonElementsTypeHandler<T> of(Class<T> type) {
+        return new JsonElementsTypeHandler<T>(type) {
+        };
+    }
+
+    @Override
+    final void codecChanged() {
+        this.javaType = codec().type(type);
+        codec().reader(javaType);
+    }
+
+    /**
+     * Elements read from DB are written as is, elements built with {@link JsonElements#of(Iterable)}
+     * are serialized as array. Elements read from JDBC stream and arrays dropped by limits can not be written.
+     */
+    @Override
+    public void setNonNullParameter(PreparedStatement ps, int i, JsonElements<T> parameter, JdbcType jdbcType) throws SQLException {
+        if (parameter.isLimitExceeded()) {
+            throw new SQLException("JSON value was dropped because it exceeds limits, it can not be written");
+        }
+        if (parameter.source() != null) {
+            writeSource(ps, i, parameter.source());
+        } else if (parameter.elements() != null) {
+            writeValue(ps, i, parameter.elements(), codec().writer());
+        } else if (parameter.isPresent()) {
+            throw new SQLException("JSON elements read from JDBC stream can not be written");
+        } else {
+            writeNull(ps, i);
+        }
+    }
+
+    @Override
+    public JsonElements<T> getNullableResult(ResultSet rs, String columnName) throws SQLException {
+        // Limited and compressed documents are read whole, so limits are checked before the first element
+        if (getLimits().isNone() && getCompression() == null) {
+            switch (getReadMode()) {
+                case BINARY_STREAM:
+                    return JsonElements.fromStream(rs.getBinaryStream(columnName), javaType, codec());
+                case CHARACTER_STREAM:
+                    return JsonElements.fromReader(rs.getCharacterStream(columnName), javaType, codec());
+                default:
+                    break;
+            }
+        }
+        return JsonElements.fromDb(readSource(rs, columnName), javaType, codec());
+    }
+
+    @Override
+    public JsonElements<T> getNullableResult(ResultSet rs, int columnIndex) throws SQLException {
+        // Limited and compressed documents are read whole, so limits are checked before the first element
+        if (getLimits().isNone() && getCompression() == null) {
+            switch (getReadMode()) {
+                case BINARY_STREAM:
+                    return JsonElements.fromStream(rs.getBinaryStream(columnIndex), javaType, codec());
+                case CHARACTER_STREAM:
+                    return JsonElements.fromReader(rs.getCharacterStream(columnIndex), javaType, codec());
+                default:
+                    break;
+            }
+        }
+        return JsonElements.fromDb(readSource(rs, columnIndex), javaType, codec());
+    }
+
+    @Override
+    public JsonElements<T> getNullableResult(CallableStatement cs, int columnIndex) throws SQLException {
+        if (getLimits().isNone() && getCompression() == null && getReadMode() == JsonReadMode.CHARACTER_STREAM) {
+            return JsonElements.fromReader(cs.getCharacterStream(columnIndex), javaType, codec());
+        }
+        return JsonElements.fromDb(readSource(cs, columnIndex), javaType, codec());
+    }
+
+    /*
+    Override BaseTypeHandler in such way that result will never be null
+     */
+    @Override
+    public JsonElements<T> getResult(ResultSet rs, String columnName) throws SQLException {
+        try {
+            return getNullableResult(rs, columnName);
+        } catch (Exception e) {
+            throw new ResultMapException("Error attempting to get column '" + columnName + "' from result set.  Cause: " + e, e);
+        }
+    }
+
+    @Override
+    public JsonElements<T> getResult(ResultSet rs, int columnIndex) throws SQLException {
+        try {
+            return getNullableResult(rs, columnIndex);
+        } catch (Exception e) {
+            throw new ResultMapException("Error attempting to get column #" + columnIndex + " from result set.  Cause: " + e, e);
+        }
+    }
+
+    @Override
+    public JsonElements<T> getResult(CallableStatement cs, int columnIndex) throws SQLException {
+        try {
+            return getNullableResult(cs, columnIndex);
+        } catch (Exception e) {
+            throw new ResultMapException("Error attempting to get column #" + columnIndex + " from callable statement.  Cause: " + e, e);
+        }
+    }
+}
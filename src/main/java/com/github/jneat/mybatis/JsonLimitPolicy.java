@@ -0,0 +1,50 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Vladislav Zablotsky
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE. 
+ */
+package com.github.jneat.mybatis;
+
+/**
+ * What handler does with column which exceeds {@link JsonLimits}.
+ *
+ * @see AbstractJsonTypeHandler#setLimits(JsonLimits)
+ */
+public enum JsonLimitPolicy {
+
+    /**
+     * Fail reading of row with SQLException. This is default policy.
+     */
+    REJECT,
+
+    /**
+     * Drop content, so value is read as missing one: missing TreeNode, {@link JsonNodeValue}, {@link JsonValue},
+     * {@link JsonEdit} and {@link JsonElements} without content, all of them report {@code isLimitExceeded()}.
+     * Such values can not be written back. {@link JsonTypeHandler} and {@link RawJsonTypeHandler} read null, so with this policy they refuse to write NULL.
+     */
+    MISSING,
+
+    /**
+     * Move content into temporary file and parse it from there on access.
+     * Files are deleted after values are garbage collected.
+     */
+    SPILL
+}
@@ -0,0 +1,415 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Vladislav Zablotsky
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE. 
+ */
+package com.github.jneat.mybatis;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Limits of documents which handler accepts from DB, 0 means no limit.
+ * Instances are immutable, each {@code with*} method returns new instance:
+ * <pre>{@code
+ * handler.setLimits(JsonLimits.NONE.withMaxLength(1 << 20).withMaxDepth(64).withPolicy(JsonLimitPolicy.SPILL));
+ * }</pre>
+ * Length is checked while column is read, in {@link JsonReadMode#BINARY_STREAM} and {@link JsonReadMode#CHARACTER_STREAM}
+ * modes reading stops as soon as limit is exceeded, so large documents are never held in memory.
+ * Depth and element count are checked by scanning tokens of each document, without building it.
+ */
+public final class JsonLimits {
+
+    public static final JsonLimits NONE = new JsonLimits(0, 0, 0, JsonLimitPolicy.REJECT, null);
+
+    /**
+     * Source of documents dropped by {@link JsonLimitPolicy#MISSING}, handlers read it as empty one.
+     */
+    static final JsonSource EXCEEDED = new Exceeded();
+
+    private static final int CHUNK = 8192;
+
+    private final int maxLength;
+
+    private final int maxDepth;
+
+    private final int maxElements;
+
+    private final JsonLimitPolicy policy;
+
+    private final File spillDirectory;
+
+    private JsonLimits(int maxLength, int maxDepth, int maxElements, JsonLimitPolicy policy, File spillDirectory) {
+        this.maxLength = maxLength;
+        this.maxDepth = maxDepth;
+        this.maxElements = maxElements;
+        this.policy = policy;
+        this.spillDirectory = spillDirectory;
+    }
+
+    /**
+     * @param maxLength Maximum length of source in chars for string and character stream read modes,
+     * in bytes for other ones.
+     */
+    public JsonLimits withMaxLength(int maxLength) {
+        return new JsonLimits(positive(maxLength, "Length"), maxDepth, maxElements, policy, spillDirectory);
+    }
+
+    /**
+     * @param maxDepth Maximum nesting of objects and arrays, root container is at depth 1.
+     */
+    public JsonLimits withMaxDepth(int maxDepth) {
+        return new JsonLimits(maxLength, positive(maxDepth, "Depth"), maxElements, policy, spillDirectory);
+    }
+
+    /**
+     * @param maxElements Maximum number of values in document, including containers and root value itself.
+     */
+    public JsonLimits withMaxElements(int maxElements) {
+        return new JsonLimits(maxLength, maxDepth, positive(maxElements, "Element count"), policy, spillDirectory);
+    }
+
+    public JsonLimits withPolicy(JsonLimitPolicy policy) {
+        if (policy == null) {
+            throw new IllegalArgumentException("Limit policy can not be null");
+        }
+        return new JsonLimits(maxLength, maxDepth, maxElements, policy, spillDirectory);
+    }
+
+    /**
+     * @param spillDirectory Directory for {@link JsonLimitPolicy#SPILL} files, null for default temporary directory.
+     */
+    public JsonLimits withSpillDirectory(File spillDirectory) {
+        return new JsonLimits(maxLength, maxDepth, maxElements, policy, spillDirectory);
+    }
+
+    public int getMaxLength() {
+        return maxLength;
+    }
+
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    public int getMaxElements() {
+        return maxElements;
+    }
+
+    public JsonLimitPolicy getPolicy() {
+        return policy;
+    }
+
+    public File getSpillDirectory() {
+        return spillDirectory;
+    }
+
+    /**
+     * @return True if nothing is limited.
+     */
+    public boolean isNone() {
+        return maxLength == 0 && maxDepth == 0 && maxElements == 0;
+    }
+
+    @Override
+    public String toString() {
+        return "JsonLimits{maxLength=" + maxLength + ", maxDepth=" + maxDepth + ", maxElements=" + maxElements
+            + ", policy=" + policy + '}';
+    }
+
+    private static int positive(int value, String name) {
+        if (value < 0) {
+            throw new IllegalArgumentException(name + " limit can not be negative");
+        }
+        return value;
+    }
+
+    /**
+     * Check source which is already read.
+     *
+     * @return Same source, {@link #EXCEEDED} or spilled source.
+     * @throws IOException When source is rejected.
+     */
+    JsonSource check(JsonSource source, ReaderWriter codec) throws IOException {
+        if (maxLength > 0 && source instanceof CompressedSource) {
+            return checkCompressed((CompressedSource)source, codec);
+        }
+        if (maxLength > 0 && source.length() > maxLength) {
+            return exceeded(source, codec, "is longer than " + maxLength);
+        }
+        return checkStructure(source, codec);
+    }
+
+    /**
+     * Read binary stream and close it, stream is not read further than length limit unless document is spilled.
+     *
+     * @return Null for null stream, otherwise same as {@link #check(JsonSource, ReaderWriter)}.
+     */
+    JsonSource read(InputStream in, ReaderWriter codec) throws IOException {
+        if (in == null) {
+            return null;
+        }
+        try (InputStream is = in) {
+            Utf8Buffer buf = new Utf8Buffer(CHUNK);
+            byte[] chunk = new byte[CHUNK];
+            int r;
+            while ((r = is.read(chunk)) != -1) {
+                if (maxLength > 0 && buf.size() + r > maxLength) {
+                    buf.write(chunk, 0, r);
+                    return exceeded(buf, is, codec);
+                }
+                buf.write(chunk, 0, r);
+            }
+            return checkStructure(JsonSource.of(buf.toByteArray(), codec), codec);
+        }
+    }
+
+    /**
+     * Length of compressed document is checked by decompressed bytes, inflating stops as soon as limit is exceeded,
+     * so small cell can not expand into large document. Spilled documents are stored decompressed.
+     *
+     * @return Same source when it is within limits.
+     */
+    private JsonSource checkCompressed(CompressedSource source, ReaderWriter codec) throws IOException {
+        JsonSource s = read(source.open(), codec);
+        return s == EXCEEDED || s instanceof SpilledSource ? s : source;
+    }
+
+    /**
+     * Read character stream and close it, encoding it into UTF-8 on the fly. Length is counted in chars.
+     */
+    JsonSource read(Reader in, ReaderWriter codec) throws IOException {
+        if (in == null) {
+            return null;
+        }
+        try (Reader rd = in) {
+            Utf8Buffer buf = new Utf8Buffer(CHUNK);
+            // One more char for low surrogate, so encoder never holds half of pair between chunks
+            char[] chunk = new char[CHUNK + 1];
+            long length = 0;
+            try (Writer w = new OutputStreamWriter(buf, StandardCharsets.UTF_8)) {
+                int r;
+                while ((r = rd.read(chunk, 0, CHUNK)) != -1) {
+                    if (r > 0 && Character.isHighSurrogate(chunk[r - 1])) {
+                        int c = rd.read();
+                        if (c != -1) {
+                            chunk[r++] = (char)c;
+                        }
+                    }
+                    length += r;
+                    w.write(chunk, 0, r);
+                    if (maxLength > 0 && length > maxLength) {
+                        w.flush();
+                        return exceeded(buf, rd, codec);
+                    }
+                }
+            }
+            return checkStructure(JsonSource.of(buf.toByteArray()), codec);
+        }
+    }
+
+    private JsonSource checkStructure(JsonSource source, ReaderWriter codec) throws IOException {
+        if (maxDepth == 0 && maxElements == 0) {
+            return source;
+        }
+        String violation = null;
+        int depth = 0;
+        long elements = 0;
+        try (JsonParser p = source.parser(codec.factory())) {
+            JsonToken t;
+            while (violation == null && (t = p.nextToken()) != null) {
+                if (t == JsonToken.FIELD_NAME) {
+                    continue;
+                }
+                if (t == JsonToken.END_OBJECT || t == JsonToken.END_ARRAY) {
+                    depth--;
+                    continue;
+                }
+                if ((t == JsonToken.START_OBJECT || t == JsonToken.START_ARRAY) && ++depth > maxDepth && maxDepth > 0) {
+                    violation = "is nested deeper than " + maxDepth;
+                } else if (++elements > maxElements && maxElements > 0) {
+                    violation = "has more than " + maxElements + " elements";
+                }
+            }
+        } catch (IOException ex) {
+            // Invalid documents are reported when they are parsed
+        }
+        return violation == null ? source : exceeded(source, codec, violation);
+    }
+
+    private JsonSource exceeded(JsonSource source, ReaderWriter codec, String reason) throws IOException {
+        exceeded(codec, reason);
+        if (policy == JsonLimitPolicy.SPILL) {
+            boolean binary = source.isBinary();
+            byte[] data = binary ? source.encode(codec) : source.utf8();
+            return spill(data, data.length, null, binary, codec);
+        }
+        return EXCEEDED;
+    }
+
+    /**
+     * Length limit is exceeded in the middle of stream, buffer holds what is read so far.
+     */
+    private JsonSource exceeded(Utf8Buffer buf, InputStream rest, ReaderWriter codec) throws IOException {
+        exceeded(codec, "is longer than " + maxLength);
+        if (policy == JsonLimitPolicy.SPILL) {
+            return spill(buf.buffer(), buf.size(), out -> {
+                byte[] chunk = new byte[CHUNK];
+                int r;
+                while ((r = rest.read(chunk)) != -1) {
+                    out.write(chunk, 0, r);
+                }
+            }, JsonSource.isBinary(buf.buffer(), buf.size(), codec), codec);
+        }
+        return EXCEEDED;
+    }
+
+    private JsonSource exceeded(Utf8Buffer buf, Reader rest, ReaderWriter codec) throws IOException {
+        exceeded(codec, "is longer than " + maxLength);
+        if (policy == JsonLimitPolicy.SPILL) {
+            return spill(buf.buffer(), buf.size(), out -> {
+                Writer w = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+                char[] chunk = new char[CHUNK];
+                int r;
+                while ((r = rest.read(chunk)) != -1) {
+                    w.write(chunk, 0, r);
+                }
+                w.flush();
+            }, false, codec);
+        }
+        return EXCEEDED;
+    }
+
+    private void exceeded(ReaderWriter codec, String reason) throws IOException {
+        JsonMetricsListener metrics = JsonMetrics.listener();
+        if (metrics != null) {
+            metrics.limitExceeded(codec.name());
+        }
+        if (policy == JsonLimitPolicy.REJECT) {
+            throw new IOException("JSON document " + reason);
+        }
+    }
+
+    private JsonSource spill(byte[] head, int headLength, Remainder rest, boolean binary, ReaderWriter codec) throws IOException {
+        File file = SpilledSource.newFile(spillDirectory);
+        try (CountingOutputStream out = new CountingOutputStream(new BufferedOutputStream(new FileOutputStream(file), CHUNK))) {
+            out.write(head, 0, headLength);
+            if (rest != null) {
+                rest.copyTo(out);
+            }
+            return new SpilledSource(file, out.count, binary ? codec : null);
+        } catch (IOException | RuntimeException ex) {
+            file.delete();
+            throw ex;
+        }
+    }
+
+    private interface Remainder {
+        void copyTo(OutputStream out) throws IOException;
+    }
+
+    private static final class CountingOutputStream extends OutputStream {
+
+        private final OutputStream out;
+
+        long count;
+
+        CountingOutputStream(OutputStream out) {
+            this.out = out;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.close();
+        }
+    }
+
+    /**
+     * Empty source, it is never parsed because handlers treat it as blank one.
+     */
+    private static final class Exceeded extends JsonSource {
+
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        boolean isBlank() {
+            return true;
+        }
+
+        @Override
+        int length() {
+            return 0;
+        }
+
+        @Override
+        String text() {
+            return "";
+        }
+
+        @Override
+        byte[] utf8() {
+            return new byte[0];
+        }
+
+        @Override
+        <T> T readValue(ObjectReader reader) throws IOException {
+            throw new IOException("JSON document was dropped because it exceeds limits");
+        }
+
+        @Override
+        JsonParser parser(JsonFactory factory) throws IOException {
+            return textFactory(factory).createParser("");
+        }
+
+        @Override
+        Object cacheKey() {
+            return this;
+        }
+
+        private Object readResolve() {
+            return EXCEEDED;
+        }
+    }
+}
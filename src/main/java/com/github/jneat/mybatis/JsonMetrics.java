@@ -0,0 +1,196 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Vladislav Zablotsky
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE. 
+ */
+package com.github.jneat.mybatis;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Registry of {@link JsonMetricsListener}s. Instrumentation is disabled while there are no listeners,
+ * then handlers do not even read clock.
+ * <pre>{@code
+ * JsonStatistics stats = JsonMetrics.registerMBean();
+ * // or
+ * JsonMetrics.addListener(new MicrometerJsonListener(registry));
+ * }</pre>
+ */
+public final class JsonMetrics {
+
+    public static final String OBJECT_NAME = "com.github.jneat.mybatis:type=JsonStatistics";
+
+    private static final List<JsonMetricsListener> LISTENERS = new ArrayList<>();
+
+    /**
+     * Null when there are no listeners, single listener or multicast to all of them.
+     */
+    private static volatile JsonMetricsListener listener;
+
+    private static JsonStatistics mbean;
+
+    private JsonMetrics() {
+    }
+
+    public static synchronized void addListener(JsonMetricsListener l) {
+        if (l == null) {
+            throw new IllegalArgumentException("Listener can not be null");
+        }
+        LISTENERS.add(l);
+        update();
+    }
+
+    /**
+     * @return False if listener was not registered.
+     */
+    public static synchronized boolean removeListener(JsonMetricsListener l) {
+        boolean removed = LISTENERS.remove(l);
+        update();
+        return removed;
+    }
+
+    /**
+     * Register {@link JsonStatistics} in platform MBean server as {@value #OBJECT_NAME} and start collecting them.
+     * Repeated calls return the same instance.
+     *
+     * @throws RuntimeException If MBean can not be registered.
+     */
+    public static synchronized JsonStatistics registerMBean() {
+        if (mbean == null) {
+            JsonStatistics stats = new JsonStatistics();
+            try {
+                server().registerMBean(stats, new ObjectName(OBJECT_NAME));
+            } catch (JMException ex) {
+                throw new RuntimeException(ex.getMessage(), ex);
+            }
+            addListener(stats);
+            mbean = stats;
+        }
+        return mbean;
+    }
+
+    /**
+     * Stop collecting statistics registered by {@link #registerMBean()} and remove MBean.
+     */
+    public static synchronized void unregisterMBean() {
+        if (mbean == null) {
+            return;
+        }
+        removeListener(mbean);
+        mbean = null;
+        try {
+            server().unregisterMBean(new ObjectName(OBJECT_NAME));
+        } catch (JMException ex) {
+            throw new RuntimeException(ex.getMessage(), ex);
+        }
+    }
+
+    static JsonMetricsListener listener() {
+        return listener;
+    }
+
+    private static MBeanServer server() {
+        return ManagementFactory.getPlatformMBeanServer();
+    }
+
+    private static void update() {
+        switch (LISTENERS.size()) {
+            case 0:
+                listener = null;
+                break;
+            case 1:
+                listener = LISTENERS.get(0);
+                break;
+            default:
+                listener = new Multicast(LISTENERS.toArray(new JsonMetricsListener[LISTENERS.size()]));
+        }
+    }
+
+    private static final class Multicast implements JsonMetricsListener {
+
+        private final JsonMetricsListener[] listeners;
+
+        Multicast(JsonMetricsListener[] listeners) {
+            this.listeners = listeners;
+        }
+
+        @Override
+        public void cellRead(String codec, int size) {
+            for (JsonMetricsListener l : listeners) {
+                l.cellRead(codec, size);
+            }
+        }
+
+        @Override
+        public void cellWritten(String codec, int size) {
+            for (JsonMetricsListener l : listeners) {
+                l.cellWritten(codec, size);
+            }
+        }
+
+        @Override
+        public void parsed(String codec, int size, long nanos) {
+            for (JsonMetricsListener l : listeners) {
+                l.parsed(codec, size, nanos);
+            }
+        }
+
+        @Override
+        public void serialized(String codec, int size, long nanos) {
+            for (JsonMetricsListener l : listeners) {
+                l.serialized(codec, size, nanos);
+            }
+        }
+
+        @Override
+        public void lazyValueCreated(String codec) {
+            for (JsonMetricsListener l : listeners) {
+                l.lazyValueCreated(codec);
+            }
+        }
+
+        @Override
+        public void lazyValueMaterialized(String codec) {
+            for (JsonMetricsListener l : listeners) {
+                l.lazyValueMaterialized(codec);
+            }
+        }
+
+        @Override
+        public void limitExceeded(String codec) {
+            for (JsonMetricsListener l : listeners) {
+                l.limitExceeded(codec);
+            }
+        }
+
+        @Override
+        public void deepCopied(String codec) {
+            for (JsonMetricsListener l : listeners) {
+                l.deepCopied(codec);
+            }
+        }
+    }
+}
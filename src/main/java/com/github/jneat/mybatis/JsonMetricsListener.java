@@ -0,0 +1,83 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Vladislav Zablotsky
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE. 
+ */
+package com.github.jneat.mybatis;
+
+/**
+ * Receives events of JSON reading and writing, e.g. to bind them to metrics registry.
+ * All methods are called synchronously on hot path, so they should be cheap and must not throw.
+ * Codec name is passed to each event, so events may be tagged by it.
+ * Size is length of JSON source, in chars for values bound as strings and in bytes otherwise.
+ *
+ * @see JsonMetrics#addListener(JsonMetricsListener)
+ */
+public interface JsonMetricsListener {
+
+    /**
+     * Not null column value was fetched from result set or callable statement.
+     */
+    default void cellRead(String codec, int size) {
+    }
+
+    /**
+     * Not null value was bound to statement parameter, either serialized or written as it was read.
+     */
+    default void cellWritten(String codec, int size) {
+    }
+
+    /**
+     * Whole document was parsed into tree or object.
+     */
+    default void parsed(String codec, int size, long nanos) {
+    }
+
+    /**
+     * Value was serialized for binding, time does not include binding itself.
+     */
+    default void serialized(String codec, int size, long nanos) {
+    }
+
+    /**
+     * Lazy value (tree node or {@link JsonNodeValue}) was created from column content without parsing it.
+     */
+    default void lazyValueCreated(String codec) {
+    }
+
+    /**
+     * Lazy value was parsed, on first access or by background executor.
+     */
+    default void lazyValueMaterialized(String codec) {
+    }
+
+    /**
+     * Column exceeds handler limits, see {@link JsonLimits}.
+     */
+    default void limitExceeded(String codec) {
+    }
+
+    /**
+     * Parsed tree was copied, e.g. by {@link JsonNodeValue#get()}.
+     */
+    default void deepCopied(String codec) {
+    }
+}
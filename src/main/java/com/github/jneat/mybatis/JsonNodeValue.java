@@ -23,22 +23,26 @@
  */
 package com.github.jneat.mybatis;
 
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.TreeNode;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.node.MissingNode;
 
 import java.io.IOException;
-import java.io.ObjectOutputStream;
+import java.io.InvalidObjectException;
+import java.io.ObjectStreamException;
 import java.io.Serializable;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 
 /**
  * Value container that transfer JSON from/into DB.
  * Main feature of this container is lazy initializing while reading values from DB.
- * It will build JsonNode object only at first call of {@link JsonNodeValue#get()}
- * and sometimes {@link JsonNodeValue#isEmpty()}.
+ * It will build JsonNode object only at first call of {@link JsonNodeValue#get()} or {@link JsonNodeValue#view()}.
  */
 public class JsonNodeValue implements Serializable {
 
-    private static final long serialVersionUID = 745861884668365334L;
+    // Changed when value became written as SerializedJson, older streams keep source as string
+    private static final long serialVersionUID = 5679684732038945145L;
 
     /**
      * Value container without any content.
@@ -46,24 +50,52 @@ public class JsonNodeValue implements Serializable {
      */
     public static JsonNodeValue EMPTY = new JsonNodeValue();
 
-    private String source;
+    private static final LazyInit<JsonNodeValue> LAZY = new LazyInit<>(
+        AtomicReferenceFieldUpdater.newUpdater(JsonNodeValue.class, LazyInit.Parse.class, "parse"));
+
+    private static final AtomicReferenceFieldUpdater<JsonNodeValue, JsonNode> VALUE =
+        AtomicReferenceFieldUpdater.newUpdater(JsonNodeValue.class, JsonNode.class, "value");
+
+    private static final AtomicReferenceFieldUpdater<JsonNodeValue, JsonNode> VIEW =
+        AtomicReferenceFieldUpdater.newUpdater(JsonNodeValue.class, JsonNode.class, "view");
+
+    private static final AtomicReferenceFieldUpdater<JsonNodeValue, TreeNode> COMPACT_TREE =
+        AtomicReferenceFieldUpdater.newUpdater(JsonNodeValue.class, TreeNode.class, "compactTree");
+
+    private static final JsonNodeValue LIMIT_EXCEEDED = new JsonNodeValue();
+
+    static {
+        LIMIT_EXCEEDED.limitExceeded = true;
+    }
+
+    private JsonSource source;
 
     private boolean dbSource;
 
-    private transient JsonNode value;
+    private ReaderWriter codec;
+
+    private boolean compact;
+
+    private boolean limitExceeded;
+
+    private transient volatile JsonNode value;
+
+    /**
+     * Read only tree, for values built from JsonNode it is frozen copy, which is made once.
+     */
+    private transient volatile JsonNode view;
+
+    private transient volatile TreeNode compactTree;
+
+    private transient volatile LazyInit.Parse parse;
 
     private JsonNodeValue() {
         this.source = null;
         this.value = null;
     }
 
-    private JsonNodeValue(String source) {
-        if (source != null) {
-            source = source.trim();
-            this.source = source.isEmpty() ? null : source;
-        } else {
-            this.source = null;
-        }
+    private JsonNodeValue(JsonSource source) {
+        this.source = source;
         this.value = null;
     }
 
@@ -93,13 +125,41 @@ public class JsonNodeValue implements Serializable {
             return EMPTY;
         }
         json = json.trim();
-        return json.isEmpty() ? EMPTY : new JsonNodeValue(json);
+        return json.isEmpty() ? EMPTY : new JsonNodeValue(JsonSource.of(json));
+    }
+
+    static JsonNodeValue fromDb(JsonSource source, ReaderWriter codec) {
+        return fromDb(source, codec, JsonTreeModel.NODES);
+    }
+
+    /**
+     * Value deserialized from {@link SerializedJson}, source is parsed lazily as for DB values.
+     */
+    static JsonNodeValue restore(JsonSource source, ReaderWriter codec, JsonTreeModel model, boolean dbSource, boolean limitExceeded) {
+        if (source == null) {
+            return limitExceeded ? LIMIT_EXCEEDED : EMPTY;
+        }
+        JsonNodeValue v = fromDb(source, codec, model);
+        if (v != EMPTY) {
+            v.dbSource = dbSource;
+        }
+        return v;
     }
 
-    static JsonNodeValue fromDb(String json) {
-        JsonNodeValue v = from(json);
-        if (v.isPresent()) {
-            v.dbSource = true;
+    static JsonNodeValue fromDb(JsonSource source, ReaderWriter codec, JsonTreeModel model) {
+        if (source == JsonLimits.EXCEEDED) {
+            return LIMIT_EXCEEDED;
+        }
+        if (source == null || source.isBlank()) {
+            return EMPTY;
+        }
+        JsonNodeValue v = new JsonNodeValue(source);
+        v.dbSource = true;
+        v.codec = codec;
+        v.compact = model == JsonTreeModel.COMPACT;
+        JsonMetricsListener metrics = JsonMetrics.listener();
+        if (metrics != null) {
+            metrics.lazyValueCreated(codec.name());
         }
         return v;
     }
@@ -115,7 +175,16 @@ public class JsonNodeValue implements Serializable {
      * Check if nested value is present (not null or empty JSON string).
      */
     public boolean isPresent() {
-        return value != null || (source != null && !source.isEmpty());
+        return value != null || source != null;
+    }
+
+    /**
+     * Check if content was dropped because it exceeds handler limits, such value is not present and can not be written.
+     *
+     * @see JsonLimitPolicy#MISSING
+     */
+    public boolean isLimitExceeded() {
+        return limitExceeded;
     }
 
     /**
@@ -125,17 +194,57 @@ public class JsonNodeValue implements Serializable {
         return !isPresent();
     }
 
+    /**
+     * Check if value differs from what was read from DB. Values read from DB can not be changed,
+     * because {@link JsonNodeValue#get()} returns copies, so only values built by application are modified.
+     *
+     * @see JsonNodeValue#sameContent(JsonNodeValue)
+     */
+    public boolean isModified() {
+        return !hasDbSource();
+    }
+
+    /**
+     * Compare content of values token by token, without serializing trees.
+     * Use it to check whether new value built by application differs from value read from DB.
+     * WARNING this method can throw same exceptions as {@link JsonNodeValue#get()}.
+     */
+    public boolean sameContent(JsonNodeValue other) throws RuntimeException {
+        if (other == this) {
+            return true;
+        }
+        if (other == null || other.isNotPresent()) {
+            return isNotPresent();
+        }
+        if (isNotPresent()) {
+            return false;
+        }
+        try {
+            return JsonContent.equal(contentParser(), other.contentParser());
+        } catch (IOException ex) {
+            throw new RuntimeException("Can not parse JSON string. " + ex.getMessage(), ex);
+        }
+    }
+
     /**
      * Return true if value is not present or if underlying JSON is empty object, array or null.
+     * Only first tokens of not yet parsed source are checked, so invalid JSON may be detected later.
      * WARNING this method can throw same exceptions as {@link JsonNodeValue#get()} in a case if
-     * source is invalid JSON string.
+     * source starts with invalid JSON.
      */
     public boolean isEmpty() {
         if (!isPresent()) {
             return true;
         }
 
-        JsonNode n = get();
+        JsonNode n = value;
+        if (n == null) {
+            try {
+                return codec().isEmpty(source);
+            } catch (Exception ex) {
+                throw new RuntimeException("Can not parse JSON string. " + ex.getMessage(), ex);
+            }
+        }
 
         if ((n.isObject() || n.isArray()) && n.size() == 0) {
             return true;
@@ -161,24 +270,118 @@ public class JsonNodeValue implements Serializable {
      *
      * @return Copy of valid JsonNode or MissingNode if no data.
      * @throws RuntimeException On JSON parsing errors.
+     * @see JsonNodeValue#view()
      */
     public JsonNode get() throws RuntimeException {
         if (!isPresent()) {
             return MissingNode.getInstance();
         }
+        JsonNode copy = node().deepCopy();
+        JsonMetricsListener metrics = JsonMetrics.listener();
+        if (metrics != null) {
+            metrics.deepCopied(codec().name());
+        }
+        return copy;
+    }
+
+    /**
+     * Return read only JSON node value without copying it (will parse node from string at first call).
+     * Returned objects and arrays, including nested ones, throw UnsupportedOperationException on any modification,
+     * call {@link JsonNode#deepCopy()} or {@link JsonNodeValue#get()} when you need mutable tree.
+     * Values built with {@link JsonNodeValue#from(JsonNode)} are not parsed, so read only copy is made for them at first call,
+     * later changes of original node are not visible in it.
+     * WARNING if object constructed with invalid JSON string, exception will be thrown.
+     *
+     * @return Read only JsonNode or MissingNode if no data.
+     * @throws RuntimeException On JSON parsing errors.
+     */
+    public JsonNode view() throws RuntimeException {
+        if (!isPresent()) {
+            return MissingNode.getInstance();
+        }
+        JsonNode v = view;
+        if (v == null) {
+            VIEW.compareAndSet(this, null, FreezableNodeFactory.freeze(node()));
+            v = view;
+        }
+        return v;
+    }
 
-        if (value == null) {
-            synchronized (this) {
+    /**
+     * Return read only tree. For values read by handler with {@link JsonTreeModel#COMPACT} model
+     * it is compact representation, which is built once and takes much less memory than JsonNode,
+     * for other values it is the same node as {@link JsonNodeValue#view()} returns.
+     * WARNING if object constructed with invalid JSON string, exception will be thrown.
+     *
+     * @return Read only tree or MissingNode if no data.
+     * @throws RuntimeException On JSON parsing errors.
+     */
+    public TreeNode tree() throws RuntimeException {
+        if (!compact || value != null || !isPresent()) {
+            return view();
+        }
+        TreeNode t = compactTree;
+        if (t != null) {
+            return t;
+        }
+        try {
+            return LAZY.get(this, COMPACT_TREE, () -> {
+                TreeNode tree = codec().readTape(source).root();
                 if (value == null) {
-                    try {
-                        value = ReaderWriter.readTree(source);
-                    } catch (Exception ex) {
-                        throw new RuntimeException("Can not parse JSON string. " + ex.getMessage(), ex);
-                    }
+                    materializedNow();
                 }
+                return tree;
+            });
+        } catch (Exception ex) {
+            throw new RuntimeException("Can not parse JSON string. " + ex.getMessage(), ex);
+        }
+    }
+
+    /**
+     * Parse source ahead of first access, used by background parsing. Errors are thrown by accessors later.
+     */
+    void preload() {
+        if (source instanceof SpilledSource) {
+            // Spilled documents are parsed only when they are really needed
+            return;
+        }
+        try {
+            if (compact) {
+                tree();
+            } else {
+                node();
             }
+        } catch (RuntimeException ex) {
+            // Accessor will parse source again and report the error
+        }
+    }
+
+    /**
+     * Only values read from DB are counted as lazy ones.
+     */
+    private void materializedNow() {
+        JsonMetricsListener metrics = JsonMetrics.listener();
+        if (metrics != null && dbSource) {
+            metrics.lazyValueMaterialized(codec().name());
+        }
+    }
+
+    JsonNode node() {
+        JsonNode n = value;
+        if (n != null) {
+            return n;
+        }
+        try {
+            return LAZY.get(this, VALUE, () -> {
+                JsonNode tree = codec().readFrozenTree(source);
+                if (compactTree == null) {
+                    materializedNow();
+                }
+                return tree;
+            });
+        } catch (Exception ex) {
+            throw new RuntimeException("Can not parse JSON string. " + ex.getMessage(), ex);
         }
-        return value.deepCopy();
     }
 
     /**
@@ -195,13 +398,39 @@ public class JsonNodeValue implements Serializable {
     }
 
     String getSource() {
+        return this.source == null ? null : this.source.text();
+    }
+
+    JsonSource source() {
         return this.source;
     }
 
-    private void writeObject(ObjectOutputStream oos) throws IOException {
-        if (this.source == null && this.value != null) {
-            this.source = ReaderWriter.write(this.value);
+    /**
+     * Tokens of content, source is streamed without building tree.
+     */
+    private JsonParser contentParser() throws IOException {
+        return source == null ? value.traverse() : JsonContent.parser(source, codec());
+    }
+
+    ReaderWriter codec() {
+        return this.codec == null ? JsonCodecs.defaultCodec() : this.codec;
+    }
+
+    /**
+     * Source or tree is written in compact form, see {@link SerializedJson}.
+     */
+    private Object writeReplace() throws ObjectStreamException {
+        int flags = (compact ? SerializedJson.COMPACT : 0)
+            | (dbSource ? SerializedJson.DB_SOURCE : 0)
+            | (limitExceeded ? SerializedJson.LIMIT_EXCEEDED : 0);
+        try {
+            return source == null && value != null
+                ? SerializedJson.of(SerializedJson.NODE_VALUE, flags, codec, value)
+                : SerializedJson.of(SerializedJson.NODE_VALUE, flags, codec, source);
+        } catch (IOException ex) {
+            InvalidObjectException e = new InvalidObjectException("Can not serialize JSON value. " + ex.getMessage());
+            e.initCause(ex);
+            throw e;
         }
-        oos.defaultWriteObject();
     }
 }
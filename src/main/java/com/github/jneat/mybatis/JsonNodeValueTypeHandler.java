@@ -24,11 +24,9 @@
 package com.github.jneat.mybatis;
 
 import org.apache.ibatis.executor.result.ResultMapException;
-import org.apache.ibatis.type.BaseTypeHandler;
 import org.apache.ibatis.type.JdbcType;
 import org.apache.ibatis.type.MappedTypes;
 
-import java.io.IOException;
 import java.sql.CallableStatement;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
@@ -37,48 +35,66 @@ import java.sql.SQLException;
 /**
  * Map JSON string as value container with JsonNode.
  * Should always return not null value.
- * Use JSON string representation as intermediate data format.
+ * Use JSON string representation as intermediate data format,
+ * or raw UTF-8 bytes depending on {@link JsonReadMode}.
  *
  * @see JsonNodeValue
  */
 @MappedTypes({JsonNodeValue.class})
-public class JsonNodeValueTypeHandler extends BaseTypeHandler<JsonNodeValue> {
+public class JsonNodeValueTypeHandler extends AbstractJsonTypeHandler<JsonNodeValue> {
+
+    private JsonTreeModel treeModel = JsonTreeModel.NODES;
+
+    public JsonTreeModel getTreeModel() {
+        return treeModel;
+    }
+
+    /**
+     * Set how {@link JsonNodeValue#tree()} builds document on access. Default is {@link JsonTreeModel#NODES}.
+     */
+    public void setTreeModel(JsonTreeModel treeModel) {
+        if (treeModel == null) {
+            throw new IllegalArgumentException("Tree model can not be null");
+        }
+        this.treeModel = treeModel;
+    }
 
     @Override
     public void setNonNullParameter(PreparedStatement ps, int i, JsonNodeValue parameter, JdbcType jdbcType) throws SQLException {
+        if (parameter.isLimitExceeded()) {
+            throw new SQLException("JSON value was dropped because it exceeds limits, it can not be written");
+        }
         if (parameter.isPresent()) {
-            String json;
             if (parameter.hasDbSource()) {
-                json = parameter.getSource();
+                writeSource(ps, i, parameter.source());
             } else {
-                try {
-                    json = ReaderWriter.write(parameter.get());
-                } catch (IOException ex) {
-                    throw new RuntimeException(ex.getMessage(), ex);
-                }
+                writeTree(ps, i, parameter.node());
             }
-            ps.setString(i, json);
         } else {
-            ps.setString(i, null);
+            writeNull(ps, i);
         }
     }
 
     @Override
     public JsonNodeValue getNullableResult(ResultSet rs, String columnName) throws SQLException {
-        String jsonSource = rs.getString(columnName);
-        return JsonNodeValue.fromDb(jsonSource);
+        return preload(JsonNodeValue.fromDb(readSource(rs, columnName), codec(), treeModel));
     }
 
     @Override
     public JsonNodeValue getNullableResult(ResultSet rs, int columnIndex) throws SQLException {
-        String jsonSource = rs.getString(columnIndex);
-        return JsonNodeValue.fromDb(jsonSource);
+        return preload(JsonNodeValue.fromDb(readSource(rs, columnIndex), codec(), treeModel));
     }
 
     @Override
     public JsonNodeValue getNullableResult(CallableStatement cs, int columnIndex) throws SQLException {
-        String jsonSource = cs.getString(columnIndex);
-        return JsonNodeValue.fromDb(jsonSource);
+        return preload(JsonNodeValue.fromDb(readSource(cs, columnIndex), codec(), treeModel));
+    }
+
+    private JsonNodeValue preload(JsonNodeValue value) {
+        if (value.isPresent()) {
+            submitParse(value::preload);
+        }
+        return value;
     }
 
     /*
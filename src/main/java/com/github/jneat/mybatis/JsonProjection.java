@@ -0,0 +1,244 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Vladislav Zablotsky
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE. 
+ */
+package com.github.jneat.mybatis;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonPointer;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.node.BigIntegerNode;
+import com.fasterxml.jackson.databind.node.BooleanNode;
+import com.fasterxml.jackson.databind.node.IntNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.LongNode;
+import com.fasterxml.jackson.databind.node.NullNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.databind.node.TextNode;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Set of JSON pointers extracted from document in one pass.
+ * Pointers are kept as trie, so parser descends only into containers on the way to some pointer
+ * and skips everything else. Reading stops as soon as all pointers are found, so for repeated
+ * field names the first one is taken.
+ */
+final class JsonProjection {
+
+    private final Node root = new Node(0);
+
+    private final List<Leaf> leaves = new ArrayList<>();
+
+    /**
+     * Put value at pointer into result under property name, several properties may take the same pointer.
+     */
+    void add(JsonPointer ptr, String property) {
+        Leaf leaf = new Leaf(leaves.size(), ptr, property);
+        Node node = root;
+        for (JsonPointer p = ptr; !p.matches(); p = p.tail()) {
+            node.descendants.add(leaf);
+            node = node.child(p);
+        }
+        leaves.add(leaf);
+        node.targets.add(leaf);
+    }
+
+    boolean isEmpty() {
+        return leaves.isEmpty();
+    }
+
+    /**
+     * @return Object with properties of found pointers.
+     */
+    ObjectNode read(JsonParser p, ObjectReader treeReader) throws IOException {
+        ObjectNode out = JsonNodeFactory.instance.objectNode();
+        if (!leaves.isEmpty() && p.nextToken() != null) {
+            read(p, root, new Context(out, treeReader));
+        }
+        return out;
+    }
+
+    /*
+    Parser should be at the first token of value and it is left at the last token of value,
+    unless all pointers are found.
+     */
+    private void read(JsonParser p, Node node, Context ctx) throws IOException {
+        if (!node.targets.isEmpty()) {
+            JsonNode value = value(p, ctx.treeReader);
+            for (Leaf leaf : node.targets) {
+                ctx.found(leaf, value);
+            }
+            // Pointers below this one are taken from its subtree
+            for (Leaf leaf : node.descendants) {
+                JsonPointer rel = leaf.pointer;
+                for (int i = 0; i < node.depth; i++) {
+                    rel = rel.tail();
+                }
+                JsonNode v = value.at(rel);
+                if (!v.isMissingNode()) {
+                    ctx.found(leaf, v);
+                }
+            }
+            return;
+        }
+        JsonToken t = p.getCurrentToken();
+        if (t == JsonToken.START_OBJECT && node.fields != null) {
+            while (ctx.remaining > 0 && p.nextToken() == JsonToken.FIELD_NAME) {
+                Node child = node.fields.get(p.getCurrentName());
+                p.nextToken();
+                if (child == null) {
+                    p.skipChildren();
+                } else {
+                    read(p, child, ctx);
+                }
+            }
+        } else if (t == JsonToken.START_ARRAY && node.indexes != null) {
+            int i = 0;
+            for (JsonToken e = p.nextToken(); ctx.remaining > 0 && e != JsonToken.END_ARRAY && e != null; e = p.nextToken()) {
+                Node child = node.indexes.get(i++);
+                if (child == null) {
+                    p.skipChildren();
+                } else {
+                    read(p, child, ctx);
+                }
+            }
+        } else {
+            p.skipChildren();
+        }
+    }
+
+    /**
+     * Scalars are built directly, without deserialization context that tree reader creates for each value.
+     * Floats are read by tree reader, it knows whether they should be kept as BigDecimal.
+     */
+    private static JsonNode value(JsonParser p, ObjectReader treeReader) throws IOException {
+        switch (p.getCurrentToken()) {
+            case VALUE_STRING:
+                return TextNode.valueOf(p.getText());
+            case VALUE_NUMBER_INT:
+                switch (p.getNumberType()) {
+                    case INT:
+                        return IntNode.valueOf(p.getIntValue());
+                    case LONG:
+                        return LongNode.valueOf(p.getLongValue());
+                    default:
+                        return BigIntegerNode.valueOf(p.getBigIntegerValue());
+                }
+            case VALUE_TRUE:
+                return BooleanNode.TRUE;
+            case VALUE_FALSE:
+                return BooleanNode.FALSE;
+            case VALUE_NULL:
+                return NullNode.getInstance();
+            default:
+                return treeReader.readTree(p);
+        }
+    }
+
+    private static final class Leaf {
+
+        final int index;
+
+        final JsonPointer pointer;
+
+        final String property;
+
+        Leaf(int index, JsonPointer pointer, String property) {
+            this.index = index;
+            this.pointer = pointer;
+            this.property = property;
+        }
+    }
+
+    private static final class Node {
+
+        final int depth;
+
+        final List<Leaf> targets = new ArrayList<>(1);
+
+        /**
+         * Leaves under this node, used when this node is a target too.
+         */
+        final List<Leaf> descendants = new ArrayList<>(1);
+
+        Map<String, Node> fields;
+
+        Map<Integer, Node> indexes;
+
+        Node(int depth) {
+            this.depth = depth;
+        }
+
+        /**
+         * Pointer segment matches object field and, if it is a number, array element too.
+         */
+        Node child(JsonPointer segment) {
+            if (fields == null) {
+                fields = new HashMap<>();
+            }
+            Node child = fields.get(segment.getMatchingProperty());
+            if (child == null) {
+                child = new Node(depth + 1);
+                fields.put(segment.getMatchingProperty(), child);
+                if (segment.getMatchingIndex() >= 0) {
+                    if (indexes == null) {
+                        indexes = new HashMap<>();
+                    }
+                    indexes.put(segment.getMatchingIndex(), child);
+                }
+            }
+            return child;
+        }
+    }
+
+    private final class Context {
+
+        final ObjectNode out;
+
+        final ObjectReader treeReader;
+
+        final BitSet found = new BitSet();
+
+        int remaining = leaves.size();
+
+        Context(ObjectNode out, ObjectReader treeReader) {
+            this.out = out;
+            this.treeReader = treeReader;
+        }
+
+        void found(Leaf leaf, JsonNode value) {
+            if (!found.get(leaf.index)) {
+                found.set(leaf.index);
+                remaining--;
+                out.set(leaf.property, value);
+            }
+        }
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Vladislav Zablotsky
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE. 
+ */
+package com.github.jneat.mybatis;
+
+import com.fasterxml.jackson.core.JsonPointer;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.apache.ibatis.type.JdbcType;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.sql.CallableStatement;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Map several values of JSON column into properties of java object, reading column in one streaming pass.
+ * Only containers on the way to projected values are scanned, other parts of document are skipped
+ * without building them, and reading stops when all values are found.
+ * Values are bound into object by Jackson, so properties may be of any type readable from JSON value.
+ * Empty string or SQL NULL is returned as null, missing values leave properties unset.
+ * <p>
+ * Declare handler for each projection:
+ * <pre>{@code
+ * @MappedTypes(OrderSummary.class)
+ * public class OrderSummaryTypeHandler extends JsonProjectionTypeHandler<OrderSummary> {
+ *     public OrderSummaryTypeHandler() {
+ *         project("/customer/name", "customerName");
+ *         project("/total", "total");
+ *         project("/items/0/sku", "firstSku");
+ *     }
+ * }
+ * }</pre>
+ * Projection is read only, handler can not write parameters.
+ *
+ * @param <T> Projection type
+ */
+public abstract class JsonProjectionTypeHandler<T> extends AbstractJsonTypeHandler<T> {
+
+    private final Type type;
+
+    private final JsonProjection projection = new JsonProjection();
+
+    private ObjectReader reader;
+
+    /**
+     * Projection type is a tree, so result object is returned as is.
+     */
+    private boolean tree;
+
+    /**
+     * Take projection type from type argument of subclass.
+     */
+    protected JsonProjectionTypeHandler() {
+        this.type = typeArgument(getClass(), JsonProjectionTypeHandler.class);
+        codecChanged();
+    }
+
+    protected JsonProjectionTypeHandler(Class<T> type) {
+        this.type = type;
+        codecChanged();
+    }
+
+    /**
+     * Create handler for given class, pointers should be added before registration, e.g.
+     * {@code JsonProjectionTypeHandler.of(OrderSummary.class).project("/total", "total")}.
+     */
+    public static <T> JsonProjectionTypeHandler<T> of(Class<T> type) {
+        return new JsonProjectionTypeHandler<T>(type) {
+        };
+    }
+
+    /**
+     * Map value at JSON pointer into property of projection type.
+     *
+     * @param pointer JSON pointer, e.g. "/customer/name", empty string means whole document.
+     * @param property Name of property, as Jackson sees it.
+     * @return This handler.
+     * @throws IllegalArgumentException On invalid pointer or empty property name.
+     */
+    public JsonProjectionTypeHandler<T> project(String pointer, String property) {
+        if (pointer == null) {
+            throw new IllegalArgumentException("Pointer can not be null");
+        }
+        if (property == null || property.isEmpty()) {
+            throw new IllegalArgumentException("Property name can not be empty");
+        }
+        projection.add(JsonPointer.compile(pointer), property);
+        return this;
+    }
+
+    @Override
+    final void codecChanged() {
+        JavaType javaType = codec().type(type);
+        this.reader = codec().reader(javaType);
+        this.tree = javaType.getRawClass().isAssignableFrom(ObjectNode.class) && javaType.getRawClass() != Object.class;
+    }
+
+    @Override
+    public void setNonNullParameter(PreparedStatement ps, int i, T parameter, JdbcType jdbcType) throws SQLException {
+        throw new SQLException("Projection of JSON document can not be written");
+    }
+
+    @Override
+    public T getNullableResult(ResultSet rs, String columnName) throws SQLException {
+        return read(readSource(rs, columnName));
+    }
+
+    @Override
+    public T getNullableResult(ResultSet rs, int columnIndex) throws SQLException {
+        return read(readSource(rs, columnIndex));
+    }
+
+    @Override
+    public T getNullableResult(CallableStatement cs, int columnIndex) throws SQLException {
+        return read(readSource(cs, columnIndex));
+    }
+
+    private T read(JsonSource source) {
+        if (source == null || source.isBlank()) {
+            return null;
+        }
+        try {
+            ObjectNode result = codec().project(source, projection);
+            if (tree) {
+                @SuppressWarnings("unchecked")
+                T t = (T)result;
+                return t;
+            }
+            return reader.readValue(result);
+        } catch (IOException ex) {
+            throw new RuntimeException(ex.getMessage(), ex);
+        }
+    }
+}
@@ -0,0 +1,54 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Vladislav Zablotsky
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE. 
+ */
+package com.github.jneat.mybatis;
+
+/**
+ * How JSON column content should be fetched from ResultSet.
+ *
+ * @see AbstractJsonTypeHandler#setReadMode(JsonReadMode)
+ */
+public enum JsonReadMode {
+
+    /**
+     * Use {@code getString()} and keep JSON as string. This is default mode.
+     */
+    STRING,
+
+    /**
+     * Use {@code getBytes()} and keep raw UTF-8 bytes.
+     * PostgreSQL driver returns json/jsonb columns as is, without any decoding, in this mode.
+     */
+    BYTES,
+
+    /**
+     * Use {@code getBinaryStream()} and read it into UTF-8 bytes.
+     * Useful for BLOB columns or drivers which do not support {@code getBytes()} for text types.
+     */
+    BINARY_STREAM,
+
+    /**
+     * Use {@code getCharacterStream()} (CLOB columns) and encode it into UTF-8 bytes while reading.
+     */
+    CHARACTER_STREAM
+}
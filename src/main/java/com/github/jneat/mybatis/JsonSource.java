@@ -0,0 +1,453 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Vladislav Zablotsky
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE. 
+ */
+package com.github.jneat.mybatis;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Raw JSON document as it was received from DB.
+ * Lazy containers keep this object instead of parsed tree, so it can hold either decoded string,
+ * UTF-8 bytes or binary encoded document (Smile, CBOR) exactly as driver returned them.
+ */
+abstract class JsonSource implements Serializable {
+
+    private static final long serialVersionUID = -2716468245394420178L;
+
+    /**
+     * Text readers of binary codec readers, they are shared by handlers, so each one is switched once.
+     */
+    private static final Map<ObjectReader, ObjectReader> TEXT_READERS = Collections.synchronizedMap(new WeakHashMap<>());
+
+    static JsonSource of(String json) {
+        return new Text(json);
+    }
+
+    /**
+     * Wrap UTF-8 encoded JSON. Array is not copied, so caller should not modify it later.
+     */
+    static JsonSource of(byte[] utf8) {
+        return new Utf8(utf8);
+    }
+
+    /**
+     * Wrap bytes received for codec, array is not copied.
+     * Binary codecs still accept JSON objects and arrays stored as UTF-8 text,
+     * which start with '{' or '[' - bytes that can not start binary encoded container.
+     */
+    static JsonSource of(byte[] data, ReaderWriter codec) {
+        return isBinary(data, data.length, codec) ? new Binary(data, codec) : new Utf8(data);
+    }
+
+    /**
+     * Wrap document which is known to be encoded by binary codec, array is not copied.
+     */
+    static JsonSource binary(byte[] data, ReaderWriter codec) {
+        return new Binary(data, codec);
+    }
+
+    /**
+     * Check if first bytes of received data are encoded by binary codec, see {@link #of(byte[], ReaderWriter)}.
+     */
+    static boolean isBinary(byte[] data, int length, ReaderWriter codec) {
+        if (!codec.isBinary()) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            byte b = data[i];
+            if (b == '{' || b == '[') {
+                return false;
+            }
+            if (b != ' ' && b != '\t' && b != '\n' && b != '\r') {
+                break;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Return true if source contains only whitespaces.
+     */
+    abstract boolean isBlank();
+
+    /**
+     * Size of source in chars or bytes, depending on representation.
+     */
+    abstract int length();
+
+    /**
+     * JSON string representation of source.
+     */
+    abstract String text();
+
+    /**
+     * UTF-8 encoded source. Returned array may be shared with this object, so it should not be modified.
+     */
+    abstract byte[] utf8();
+
+    /**
+     * Content exactly as it was received, text is encoded into UTF-8. Returned array should not be modified.
+     */
+    byte[] stored() throws IOException {
+        return utf8();
+    }
+
+    /**
+     * Parse source with reader preconfigured for target type.
+     */
+    abstract <T> T readValue(ObjectReader reader) throws IOException;
+
+    /**
+     * Create parser for source, JSON text is parsed with given factory unless it is binary one.
+     */
+    abstract JsonParser parser(JsonFactory factory) throws IOException;
+
+    /**
+     * Source is encoded by binary codec, so it is not JSON text.
+     */
+    boolean isBinary() {
+        return false;
+    }
+
+    /**
+     * Key that is equal for sources of same content, used by {@link JsonTreeCache}.
+     */
+    abstract Object cacheKey();
+
+    /**
+     * Source encoded with binary codec. Documents of same format are returned as is, array should not be modified.
+     */
+    byte[] encode(ReaderWriter codec) throws IOException {
+        return transcode(parser(textFactory()), codec.factory());
+    }
+
+    /**
+     * Copy document token by token, without building intermediate tree.
+     */
+    static byte[] transcode(JsonParser parser, JsonFactory target) throws IOException {
+        Utf8Buffer out = new Utf8Buffer(1024);
+        try (JsonParser p = parser; JsonGenerator g = target.createGenerator(out)) {
+            if (p.nextToken() != null) {
+                g.copyCurrentStructure(p);
+            }
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * JSON text can not be parsed by reader of binary codec, such reader is switched to JSON.
+     */
+    static ObjectReader textReader(ObjectReader reader) {
+        if (!reader.getFactory().canHandleBinaryNatively()) {
+            return reader;
+        }
+        JsonFactory factory = textFactory();
+        ObjectReader r = TEXT_READERS.get(reader);
+        if (r == null || r.getFactory() != factory) {
+            r = reader.with(factory);
+            TEXT_READERS.put(reader, r);
+        }
+        return r;
+    }
+
+    static JsonFactory textFactory() {
+        return JsonCodecs.defaultCodec().factory();
+    }
+
+    static JsonFactory textFactory(JsonFactory factory) {
+        return factory.canHandleBinaryNatively() ? textFactory() : factory;
+    }
+
+    static final class Text extends JsonSource {
+
+        private static final long serialVersionUID = 2151795547802216235L;
+
+        private final String json;
+
+        Text(String json) {
+            this.json = json;
+        }
+
+        @Override
+        boolean isBlank() {
+            return json.trim().isEmpty();
+        }
+
+        @Override
+        int length() {
+            return json.length();
+        }
+
+        @Override
+        String text() {
+            return json;
+        }
+
+        @Override
+        byte[] utf8() {
+            return json.getBytes(StandardCharsets.UTF_8);
+        }
+
+        @Override
+        <T> T readValue(ObjectReader reader) throws IOException {
+            return textReader(reader).readValue(json);
+        }
+
+        @Override
+        JsonParser parser(JsonFactory factory) throws IOException {
+            return textFactory(factory).createParser(json);
+        }
+
+        @Override
+        Object cacheKey() {
+            return new ContentKey(json);
+        }
+    }
+
+    private static final class Utf8 extends JsonSource {
+
+        private static final long serialVersionUID = -3619253146711185497L;
+
+        private final byte[] json;
+
+        Utf8(byte[] json) {
+            this.json = json;
+        }
+
+        @Override
+        boolean isBlank() {
+            for (byte b : json) {
+                if (b != ' ' && b != '\t' && b != '\n' && b != '\r') {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        int length() {
+            return json.length;
+        }
+
+        @Override
+        String text() {
+            return new String(json, StandardCharsets.UTF_8);
+        }
+
+        @Override
+        byte[] utf8() {
+            return json;
+        }
+
+        @Override
+        <T> T readValue(ObjectReader reader) throws IOException {
+            // Byte based parser skips char decoding and intermediate string completely
+            return textReader(reader).readValue(json);
+        }
+
+        @Override
+        JsonParser parser(JsonFactory factory) throws IOException {
+            return textFactory(factory).createParser(json);
+        }
+
+        @Override
+        Object cacheKey() {
+            return new ContentKey(json, ContentKey.UTF8);
+        }
+    }
+
+    /**
+     * Document encoded by binary codec, it is transcoded into JSON text on demand.
+     */
+    private static final class Binary extends JsonSource {
+
+        private static final long serialVersionUID = 5087424167035935826L;
+
+        private final byte[] data;
+
+        private final ReaderWriter codec;
+
+        Binary(byte[] data, ReaderWriter codec) {
+            this.data = data;
+            this.codec = codec;
+        }
+
+        @Override
+        boolean isBlank() {
+            return data.length == 0;
+        }
+
+        @Override
+        boolean isBinary() {
+            return true;
+        }
+
+        @Override
+        int length() {
+            return data.length;
+        }
+
+        @Override
+        String text() {
+            return new String(utf8(), StandardCharsets.UTF_8);
+        }
+
+        @Override
+        byte[] utf8() {
+            try {
+                return transcode(parser(codec.factory()), textFactory());
+            } catch (IOException ex) {
+                throw new RuntimeException(ex.getMessage(), ex);
+            }
+        }
+
+        @Override
+        <T> T readValue(ObjectReader reader) throws IOException {
+            JsonFactory factory = codec.factory();
+            return (reader.getFactory() == factory ? reader : reader.with(factory)).readValue(data);
+        }
+
+        @Override
+        JsonParser parser(JsonFactory factory) throws IOException {
+            // Binary document can be parsed only by its own codec
+            return codec.factory().createParser(data);
+        }
+
+        @Override
+        byte[] stored() {
+            return data;
+        }
+
+        @Override
+        byte[] encode(ReaderWriter target) throws IOException {
+            if (target.factory().getFormatName().equals(codec.factory().getFormatName())) {
+                return data;
+            }
+            return super.encode(target);
+        }
+
+        @Override
+        Object cacheKey() {
+            return new ContentKey(data, ContentKey.BINARY);
+        }
+    }
+
+    /**
+     * Cache key of document content. Only SHA-256 digest of content is kept,
+     * so cache does not hold copy of document next to its tree.
+     */
+    static final class ContentKey {
+
+        static final int TEXT = 0;
+
+        static final int UTF8 = 1;
+
+        static final int BINARY = 2;
+
+        static final int COMPRESSED = 3;
+
+        static final int COMPRESSED_TEXT = 4;
+
+        private static final MessageDigest SHA_256;
+
+        static {
+            try {
+                SHA_256 = MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException ex) {
+                throw new IllegalStateException(ex);
+            }
+        }
+
+        private final byte[] digest;
+
+        private final int hash;
+
+        private ContentKey(MessageDigest md, int form) {
+            md.update((byte)form);
+            this.digest = md.digest();
+            this.hash = Arrays.hashCode(digest);
+        }
+
+        ContentKey(byte[] bytes, int form) {
+            this(update(sha256(), bytes), form);
+        }
+
+        ContentKey(String chars) {
+            this(update(sha256(), chars), TEXT);
+        }
+
+        private static MessageDigest sha256() {
+            try {
+                return (MessageDigest)SHA_256.clone();
+            } catch (CloneNotSupportedException ex) {
+                try {
+                    return MessageDigest.getInstance("SHA-256");
+                } catch (NoSuchAlgorithmException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        }
+
+        private static MessageDigest update(MessageDigest md, byte[] bytes) {
+            md.update(bytes);
+            return md;
+        }
+
+        private static MessageDigest update(MessageDigest md, String chars) {
+            byte[] buf = new byte[2 * Math.min(chars.length(), 4096)];
+            for (int i = 0, len = chars.length(); i < len; ) {
+                int n = 0;
+                for (; n < buf.length && i < len; i++) {
+                    char c = chars.charAt(i);
+                    buf[n++] = (byte)(c >>> 8);
+                    buf[n++] = (byte)c;
+                }
+                md.update(buf, 0, n);
+            }
+            return md;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof ContentKey && Arrays.equals(digest, ((ContentKey)obj).digest);
+        }
+    }
+}
@@ -0,0 +1,311 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Vladislav Zablotsky
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE. 
+ */
+package com.github.jneat.mybatis;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Built-in listener which aggregates events of all codecs into counters and time histograms.
+ * Usually registered with {@link JsonMetrics#registerMBean()}, but may be added as plain listener as well.
+ */
+public final class JsonStatistics implements JsonMetricsListener, JsonStatisticsMXBean {
+
+    private final LongAdder cellsRead = new LongAdder();
+
+    private final LongAdder cellsWritten = new LongAdder();
+
+    private final LongAdder bytesRead = new LongAdder();
+
+    private final LongAdder bytesWritten = new LongAdder();
+
+    private final LongAccumulator largestRead = new LongAccumulator(Math::max, 0);
+
+    private final LongAccumulator largestWritten = new LongAccumulator(Math::max, 0);
+
+    private final Histogram parseTime = new Histogram();
+
+    private final Histogram serializeTime = new Histogram();
+
+    private final LongAdder lazyCreated = new LongAdder();
+
+    private final LongAdder lazyMaterialized = new LongAdder();
+
+    private final LongAdder deepCopies = new LongAdder();
+
+    private final LongAdder limitsExceeded = new LongAdder();
+
+    @Override
+    public void cellRead(String codec, int size) {
+        cellsRead.increment();
+        bytesRead.add(size);
+        largestRead.accumulate(size);
+    }
+
+    @Override
+    public void cellWritten(String codec, int size) {
+        cellsWritten.increment();
+        bytesWritten.add(size);
+        largestWritten.accumulate(size);
+    }
+
+    @Override
+    public void parsed(String codec, int size, long nanos) {
+        parseTime.record(nanos);
+    }
+
+    @Override
+    public void serialized(String codec, int size, long nanos) {
+        serializeTime.record(nanos);
+    }
+
+    @Override
+    public void lazyValueCreated(String codec) {
+        lazyCreated.increment();
+    }
+
+    @Override
+    public void lazyValueMaterialized(String codec) {
+        lazyMaterialized.increment();
+    }
+
+    @Override
+    public void limitExceeded(String codec) {
+        limitsExceeded.increment();
+    }
+
+    @Override
+    public void deepCopied(String codec) {
+        deepCopies.increment();
+    }
+
+    @Override
+    public long getCellsRead() {
+        return cellsRead.sum();
+    }
+
+    @Override
+    public long getCellsWritten() {
+        return cellsWritten.sum();
+    }
+
+    @Override
+    public long getBytesRead() {
+        return bytesRead.sum();
+    }
+
+    @Override
+    public long getBytesWritten() {
+        return bytesWritten.sum();
+    }
+
+    @Override
+    public long getLargestDocumentRead() {
+        return largestRead.get();
+    }
+
+    @Override
+    public long getLargestDocumentWritten() {
+        return largestWritten.get();
+    }
+
+    @Override
+    public long getParseCount() {
+        return parseTime.count.sum();
+    }
+
+    @Override
+    public long getParseTimeTotalMicros() {
+        return parseTime.total.sum() / 1000;
+    }
+
+    @Override
+    public long getParseTimeMaxMicros() {
+        return parseTime.max.get() / 1000;
+    }
+
+    @Override
+    public long getParseTimeP50Micros() {
+        return parseTime.percentile(0.5);
+    }
+
+    @Override
+    public long getParseTimeP99Micros() {
+        return parseTime.percentile(0.99);
+    }
+
+    @Override
+    public long[] getParseTimeHistogram() {
+        return parseTime.buckets();
+    }
+
+    @Override
+    public long getSerializeCount() {
+        return serializeTime.count.sum();
+    }
+
+    @Override
+    public long getSerializeTimeTotalMicros() {
+        return serializeTime.total.sum() / 1000;
+    }
+
+    @Override
+    public long getSerializeTimeMaxMicros() {
+        return serializeTime.max.get() / 1000;
+    }
+
+    @Override
+    public long getSerializeTimeP50Micros() {
+        return serializeTime.percentile(0.5);
+    }
+
+    @Override
+    public long getSerializeTimeP99Micros() {
+        return serializeTime.percentile(0.99);
+    }
+
+    @Override
+    public long[] getSerializeTimeHistogram() {
+        return serializeTime.buckets();
+    }
+
+    @Override
+    public long getLazyValuesCreated() {
+        return lazyCreated.sum();
+    }
+
+    @Override
+    public long getLazyValuesMaterialized() {
+        return lazyMaterialized.sum();
+    }
+
+    @Override
+    public double getLazyMaterializationRatio() {
+        long created = lazyCreated.sum();
+        return created == 0 ? 0 : Math.min(1.0, (double)lazyMaterialized.sum() / created);
+    }
+
+    @Override
+    public long getDeepCopies() {
+        return deepCopies.sum();
+    }
+
+    @Override
+    public long getLimitsExceeded() {
+        return limitsExceeded.sum();
+    }
+
+    /**
+     * Reset is not atomic, events which come during reset may be partially counted.
+     */
+    @Override
+    public void reset() {
+        cellsRead.reset();
+        cellsWritten.reset();
+        bytesRead.reset();
+        bytesWritten.reset();
+        largestRead.reset();
+        largestWritten.reset();
+        parseTime.reset();
+        serializeTime.reset();
+        lazyCreated.reset();
+        lazyMaterialized.reset();
+        deepCopies.reset();
+        limitsExceeded.reset();
+    }
+
+    @Override
+    public String toString() {
+        return "JsonStatistics{cellsRead=" + getCellsRead() + ", cellsWritten=" + getCellsWritten()
+            + ", parses=" + getParseCount() + ", parseMicros=" + getParseTimeTotalMicros()
+            + ", serializations=" + getSerializeCount() + ", serializeMicros=" + getSerializeTimeTotalMicros()
+            + ", lazyMaterialized=" + getLazyValuesMaterialized() + "/" + getLazyValuesCreated()
+            + ", deepCopies=" + getDeepCopies() + ", limitsExceeded=" + getLimitsExceeded() + '}';
+    }
+
+    /**
+     * Log2 histogram of durations in microseconds.
+     */
+    private static final class Histogram {
+
+        private static final int BUCKETS = 32;
+
+        final LongAdder count = new LongAdder();
+
+        final LongAdder total = new LongAdder();
+
+        final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+
+        void record(long nanos) {
+            count.increment();
+            total.add(nanos);
+            max.accumulate(nanos);
+            int bucket = 64 - Long.numberOfLeadingZeros(nanos / 1000);
+            buckets.incrementAndGet(Math.min(bucket, BUCKETS - 1));
+        }
+
+        long[] buckets() {
+            long[] result = new long[BUCKETS];
+            for (int i = 0; i < BUCKETS; i++) {
+                result[i] = buckets.get(i);
+            }
+            return result;
+        }
+
+        /**
+         * @return Upper bound of bucket which contains percentile, or 0 if nothing was recorded.
+         */
+        long percentile(double p) {
+            long[] counts = buckets();
+            long n = 0;
+            for (long c : counts) {
+                n += c;
+            }
+            if (n == 0) {
+                return 0;
+            }
+            long rank = (long)Math.ceil(p * n);
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return Math.min(1L << i, max.get() / 1000 + 1);
+                }
+            }
+            return max.get() / 1000;
+        }
+
+        void reset() {
+            count.reset();
+            total.reset();
+            max.reset();
+            for (int i = 0; i < BUCKETS; i++) {
+                buckets.set(i, 0);
+            }
+        }
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Vladislav Zablotsky
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE. 
+ */
+package com.github.jneat.mybatis;
+
+/**
+ * Management interface of {@link JsonStatistics}, values are totals of all codecs since start or last reset.
+ * Times are in microseconds, sizes are lengths of JSON sources (see {@link JsonMetricsListener}).
+ */
+public interface JsonStatisticsMXBean {
+
+    long getCellsRead();
+
+    long getCellsWritten();
+
+    long getBytesRead();
+
+    long getBytesWritten();
+
+    long getLargestDocumentRead();
+
+    long getLargestDocumentWritten();
+
+    long getParseCount();
+
+    long getParseTimeTotalMicros();
+
+    long getParseTimeMaxMicros();
+
+    long getParseTimeP50Micros();
+
+    long getParseTimeP99Micros();
+
+    /**
+     * Bucket 0 counts parses shorter than 1 microsecond, bucket i counts parses from 2^(i-1) to 2^i microseconds,
+     * last bucket counts all longer ones.
+     */
+    long[] getParseTimeHistogram();
+
+    long getSerializeCount();
+
+    long getSerializeTimeTotalMicros();
+
+    long getSerializeTimeMaxMicros();
+
+    long getSerializeTimeP50Micros();
+
+    long getSerializeTimeP99Micros();
+
+    /**
+     * Same buckets as in {@link #getParseTimeHistogram()}.
+     */
+    long[] getSerializeTimeHistogram();
+
+    long getLazyValuesCreated();
+
+    long getLazyValuesMaterialized();
+
+    /**
+     * Share of lazy values which were parsed, low ratio means that many columns are fetched without need.
+     */
+    double getLazyMaterializationRatio();
+
+    long getDeepCopies();
+
+    long getLimitsExceeded();
+
+    void reset();
+}
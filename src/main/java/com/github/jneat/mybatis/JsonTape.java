@@ -0,0 +1,597 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Vladislav Zablotsky
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE. 
+ */
+package com.github.jneat.mybatis;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonPointer;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.ObjectCodec;
+import com.fasterxml.jackson.core.TreeNode;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.BigIntegerNode;
+import com.fasterxml.jackson.databind.node.BooleanNode;
+import com.fasterxml.jackson.databind.node.DecimalNode;
+import com.fasterxml.jackson.databind.node.DoubleNode;
+import com.fasterxml.jackson.databind.node.IntNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.LongNode;
+import com.fasterxml.jackson.databind.node.MissingNode;
+import com.fasterxml.jackson.databind.node.NullNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.databind.node.TextNode;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact read only document - flat tape of values held in primitive arrays instead of node per value.
+ * Each value takes one type byte, one long and one field name index. Containers keep index of entry
+ * after their last descendant, so siblings are reached by skipping subtrees. Numbers are stored inline,
+ * strings are stored in shared Latin-1 or UTF-16 buffers and decoded into nodes on access.
+ * Field names are shared by all objects of document.
+ * <p>
+ * Objects and arrays are returned as {@link TreeNode} views over tape, scalar values as regular JsonNode.
+ * Field lookup scans object members, so it is linear to object size.
+ */
+final class JsonTape {
+
+    private static final byte NULL = 0;
+
+    private static final byte TRUE = 1;
+
+    private static final byte FALSE = 2;
+
+    private static final byte INT = 3;
+
+    private static final byte LONG = 4;
+
+    private static final byte DOUBLE = 5;
+
+    private static final byte BIG_INTEGER = 6;
+
+    private static final byte BIG_DECIMAL = 7;
+
+    private static final byte STRING = 8;
+
+    private static final byte OBJECT = 9;
+
+    private static final byte ARRAY = 10;
+
+    /**
+     * Set on strings with chars out of Latin-1 range, they are stored in UTF-16 buffer.
+     */
+    private static final byte WIDE = 0x40;
+
+    /**
+     * Set on objects with duplicate field names, last value wins like in ObjectNode.
+     */
+    private static final byte DUPLICATES = (byte)0x80;
+
+    private static final JsonNodeFactory NODES = JsonNodeFactory.instance;
+
+    private static final byte[] NO_BYTES = new byte[0];
+
+    private static final char[] NO_CHARS = new char[0];
+
+    private byte[] types;
+
+    /**
+     * Containers: index of entry after container (high int) and number of distinct members (low int).
+     * Numbers: value or double bits. Strings: offset in buffer (high int) and length (low int).
+     */
+    private long[] values;
+
+    private int[] names;
+
+    private String[] nameTable;
+
+    private byte[] latin1;
+
+    private char[] utf16;
+
+    private int count;
+
+    private JsonTape() {
+    }
+
+    /**
+     * Read document from parser, which is not advanced yet.
+     *
+     * @param bigDecimals Keep floating point numbers as BigDecimal instead of double.
+     */
+    static JsonTape read(JsonParser p, boolean bigDecimals) throws IOException {
+        return new Builder(bigDecimals).read(p);
+    }
+
+    /**
+     * Root node: view of object or array, scalar node or MissingNode for empty document.
+     */
+    TreeNode root() {
+        return count == 0 ? MissingNode.getInstance() : node(0);
+    }
+
+    private int type(int e) {
+        return types[e] & ~(DUPLICATES | WIDE);
+    }
+
+    private int next(int e) {
+        int t = type(e);
+        return t == OBJECT || t == ARRAY ? (int)(values[e] >>> 32) : e + 1;
+    }
+
+    private TreeNode node(int e) {
+        int t = type(e);
+        return t == OBJECT || t == ARRAY ? new Container(e) : scalar(e);
+    }
+
+    private JsonNode scalar(int e) {
+        long v = values[e];
+        switch (type(e)) {
+            // Node factory methods changed signatures between Jackson versions, node classes did not
+            case NULL:
+                return NullNode.getInstance();
+            case TRUE:
+                return BooleanNode.TRUE;
+            case FALSE:
+                return BooleanNode.FALSE;
+            case INT:
+                return IntNode.valueOf((int)v);
+            case LONG:
+                return LongNode.valueOf(v);
+            case DOUBLE:
+                return DoubleNode.valueOf(Double.longBitsToDouble(v));
+            case BIG_INTEGER:
+                return BigIntegerNode.valueOf(new BigInteger(string(e)));
+            case BIG_DECIMAL:
+                return DecimalNode.valueOf(new BigDecimal(string(e)));
+            default:
+                return TextNode.valueOf(string(e));
+        }
+    }
+
+    private String string(int e) {
+        long v = values[e];
+        int offset = (int)(v >>> 32);
+        int length = (int)v;
+        return (types[e] & WIDE) == 0
+            ? new String(latin1, offset, length, StandardCharsets.ISO_8859_1)
+            : new String(utf16, offset, length);
+    }
+
+    /**
+     * Entry of last member with given name or -1.
+     */
+    private int member(int object, String name) {
+        int found = -1;
+        for (int e = object + 1, end = next(object); e < end; e = next(e)) {
+            if (nameTable[names[e]].equals(name)) {
+                found = e;
+                if ((types[object] & DUPLICATES) == 0) {
+                    break;
+                }
+            }
+        }
+        return found;
+    }
+
+    private JsonNode toJsonNode(int e) {
+        int t = type(e);
+        if (t == OBJECT) {
+            ObjectNode n = NODES.objectNode();
+            for (int m = e + 1, end = next(e); m < end; m = next(m)) {
+                n.set(nameTable[names[m]], toJsonNode(m));
+            }
+            return n;
+        }
+        if (t == ARRAY) {
+            ArrayNode n = NODES.arrayNode();
+            for (int m = e + 1, end = next(e); m < end; m = next(m)) {
+                n.add(toJsonNode(m));
+            }
+            return n;
+        }
+        return scalar(e);
+    }
+
+    /**
+     * Object or array view. Remembers last visited element, so iteration by index does not rescan array.
+     */
+    private final class Container implements TreeNode {
+
+        private final int entry;
+
+        private volatile long cursor;
+
+        Container(int entry) {
+            this.entry = entry;
+            this.cursor = entry + 1;
+        }
+
+        private boolean isObjectEntry() {
+            return type(entry) == OBJECT;
+        }
+
+        @Override
+        public JsonToken asToken() {
+            return isObjectEntry() ? JsonToken.START_OBJECT : JsonToken.START_ARRAY;
+        }
+
+        @Override
+        public JsonParser.NumberType numberType() {
+            return null;
+        }
+
+        @Override
+        public int size() {
+            return (int)values[entry];
+        }
+
+        @Override
+        public boolean isValueNode() {
+            return false;
+        }
+
+        @Override
+        public boolean isContainerNode() {
+            return true;
+        }
+
+        @Override
+        public boolean isMissingNode() {
+            return false;
+        }
+
+        @Override
+        public boolean isArray() {
+            return !isObjectEntry();
+        }
+
+        @Override
+        public boolean isObject() {
+            return isObjectEntry();
+        }
+
+        @Override
+        public TreeNode get(String fieldName) {
+            if (!isObjectEntry()) {
+                return null;
+            }
+            int e = member(entry, fieldName);
+            return e < 0 ? null : node(e);
+        }
+
+        @Override
+        public TreeNode get(int index) {
+            if (isObjectEntry() || index < 0 || index >= size()) {
+                return null;
+            }
+            long c = cursor;
+            int i = (int)(c >>> 32);
+            int e = (int)c;
+            if (i > index) {
+                i = 0;
+                e = entry + 1;
+            }
+            for (; i < index; i++) {
+                e = next(e);
+            }
+            cursor = ((long)i << 32) | e;
+            return node(e);
+        }
+
+        @Override
+        public TreeNode path(String fieldName) {
+            TreeNode n = get(fieldName);
+            return n == null ? MissingNode.getInstance() : n;
+        }
+
+        @Override
+        public TreeNode path(int index) {
+            TreeNode n = get(index);
+            return n == null ? MissingNode.getInstance() : n;
+        }
+
+        @Override
+        public Iterator<String> fieldNames() {
+            if (!isObjectEntry()) {
+                return Collections.<String>emptyList().iterator();
+            }
+            List<String> result = new ArrayList<>(size());
+            for (int e = entry + 1, end = next(entry); e < end; e = next(e)) {
+                String name = nameTable[names[e]];
+                // First position of duplicate name is kept, same as in ObjectNode
+                if ((types[entry] & DUPLICATES) == 0 || !result.contains(name)) {
+                    result.add(name);
+                }
+            }
+            return Collections.unmodifiableList(result).iterator();
+        }
+
+        @Override
+        public TreeNode at(JsonPointer ptr) {
+            if (ptr.matches()) {
+                return this;
+            }
+            TreeNode n = isObjectEntry() ? get(ptr.getMatchingProperty()) : get(ptr.getMatchingIndex());
+            return n == null ? MissingNode.getInstance() : n.at(ptr.tail());
+        }
+
+        @Override
+        public TreeNode at(String ptr) {
+            return at(JsonPointer.compile(ptr));
+        }
+
+        /**
+         * Copy of container as regular mutable JsonNode.
+         */
+        JsonNode toJsonNode() {
+            return JsonTape.this.toJsonNode(entry);
+        }
+
+        @Override
+        public JsonParser traverse() {
+            return toJsonNode().traverse();
+        }
+
+        @Override
+        public JsonParser traverse(ObjectCodec codec) {
+            return toJsonNode().traverse(codec);
+        }
+
+        @Override
+        public String toString() {
+            return toJsonNode().toString();
+        }
+
+        @Override
+        public int hashCode() {
+            return toJsonNode().hashCode();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (o == this) {
+                return true;
+            }
+            if (o instanceof Container) {
+                return toJsonNode().equals(((Container)o).toJsonNode());
+            }
+            return o instanceof JsonNode && toJsonNode().equals(o);
+        }
+    }
+
+    private static final class Builder {
+
+        private final boolean bigDecimals;
+
+        private final JsonTape tape = new JsonTape();
+
+        private final Map<String, Integer> nameIndex = new HashMap<>();
+
+        private int latin1Length;
+
+        private int utf16Length;
+
+        private int[] stack = new int[16];
+
+        private int depth;
+
+        /**
+         * Name index to check number of distinct object members, holds last check mark for each name.
+         */
+        private int[] marks = new int[16];
+
+        private int mark;
+
+        Builder(boolean bigDecimals) {
+            this.bigDecimals = bigDecimals;
+            tape.types = new byte[64];
+            tape.values = new long[64];
+            tape.names = new int[64];
+            tape.latin1 = new byte[256];
+            tape.utf16 = NO_CHARS;
+        }
+
+        JsonTape read(JsonParser parser) throws IOException {
+            try (JsonParser p = parser) {
+                int name = -1;
+                for (JsonToken t = p.nextToken(); t != null; t = p.nextToken()) {
+                    switch (t) {
+                        case FIELD_NAME:
+                            name = name(p.getCurrentName());
+                            continue;
+                        case END_OBJECT:
+                        case END_ARRAY:
+                            close(stack[--depth]);
+                            break;
+                        case START_OBJECT:
+                            stack = push(stack, depth);
+                            stack[depth++] = add(OBJECT, 0, name);
+                            break;
+                        case START_ARRAY:
+                            stack = push(stack, depth);
+                            stack[depth++] = add(ARRAY, 0, name);
+                            break;
+                        default:
+                            scalar(p, t, name);
+                    }
+                    name = -1;
+                    if (depth == 0) {
+                        break;
+                    }
+                }
+            }
+            return trim();
+        }
+
+        private void scalar(JsonParser p, JsonToken t, int name) throws IOException {
+            switch (t) {
+                case VALUE_TRUE:
+                    add(TRUE, 0, name);
+                    break;
+                case VALUE_FALSE:
+                    add(FALSE, 0, name);
+                    break;
+                case VALUE_NUMBER_INT:
+                    JsonParser.NumberType nt = p.getNumberType();
+                    if (nt == JsonParser.NumberType.INT) {
+                        add(INT, p.getIntValue(), name);
+                    } else if (nt == JsonParser.NumberType.LONG) {
+                        add(LONG, p.getLongValue(), name);
+                    } else {
+                        string(BIG_INTEGER, p.getBigIntegerValue().toString(), name);
+                    }
+                    break;
+                case VALUE_NUMBER_FLOAT:
+                    if (bigDecimals || p.getNumberType() == JsonParser.NumberType.BIG_DECIMAL) {
+                        string(BIG_DECIMAL, p.getDecimalValue().toString(), name);
+                    } else {
+                        add(DOUBLE, Double.doubleToRawLongBits(p.getDoubleValue()), name);
+                    }
+                    break;
+                case VALUE_STRING:
+                    string(STRING, p.getTextCharacters(), p.getTextOffset(), p.getTextLength(), name);
+                    break;
+                case VALUE_NULL:
+                    add(NULL, 0, name);
+                    break;
+                default:
+                    throw new IOException("Unsupported JSON token " + t);
+            }
+        }
+
+        private void string(byte type, String s, int name) {
+            char[] chars = s.toCharArray();
+            string(type, chars, 0, chars.length, name);
+        }
+
+        private void string(byte type, char[] chars, int offset, int length, int name) {
+            boolean isLatin1 = true;
+            for (int i = offset; i < offset + length && isLatin1; i++) {
+                isLatin1 = chars[i] < 0x100;
+            }
+            if (isLatin1) {
+                if (latin1Length + length > tape.latin1.length) {
+                    tape.latin1 = Arrays.copyOf(tape.latin1, grow(tape.latin1.length, latin1Length + length));
+                }
+                for (int i = 0; i < length; i++) {
+                    tape.latin1[latin1Length + i] = (byte)chars[offset + i];
+                }
+                add(type, ((long)latin1Length << 32) | length, name);
+                latin1Length += length;
+                return;
+            }
+            if (utf16Length + length > tape.utf16.length) {
+                tape.utf16 = Arrays.copyOf(tape.utf16, grow(tape.utf16.length, utf16Length + length));
+            }
+            System.arraycopy(chars, offset, tape.utf16, utf16Length, length);
+            add((byte)(type | WIDE), ((long)utf16Length << 32) | length, name);
+            utf16Length += length;
+        }
+
+        private int add(byte type, long value, int name) {
+            int e = tape.count++;
+            if (e == tape.types.length) {
+                int size = grow(e, e + 1);
+                tape.types = Arrays.copyOf(tape.types, size);
+                tape.values = Arrays.copyOf(tape.values, size);
+                tape.names = Arrays.copyOf(tape.names, size);
+            }
+            tape.types[e] = type;
+            tape.values[e] = value;
+            tape.names[e] = name;
+            return e;
+        }
+
+        private void close(int container) {
+            int end = tape.count;
+            int size = 0;
+            if (tape.types[container] == OBJECT) {
+                // Members of closed object are not interleaved with other objects, so one mark per object is enough
+                mark++;
+                int members = 0;
+                for (int e = container + 1; e < end; e = tape.next(e)) {
+                    int n = tape.names[e];
+                    if (marks[n] != mark) {
+                        marks[n] = mark;
+                        size++;
+                    }
+                    members++;
+                }
+                if (size != members) {
+                    tape.types[container] |= DUPLICATES;
+                }
+            } else {
+                for (int e = container + 1; e < end; e = tape.next(e)) {
+                    size++;
+                }
+            }
+            tape.values[container] = ((long)end << 32) | size;
+        }
+
+        private int name(String name) {
+            Integer index = nameIndex.get(name);
+            if (index == null) {
+                index = nameIndex.size();
+                nameIndex.put(name, index);
+                if (index == marks.length) {
+                    marks = Arrays.copyOf(marks, index * 2);
+                }
+            }
+            return index;
+        }
+
+        private JsonTape trim() {
+            int n = tape.count;
+            tape.types = Arrays.copyOf(tape.types, n);
+            tape.values = Arrays.copyOf(tape.values, n);
+            tape.names = Arrays.copyOf(tape.names, n);
+            tape.latin1 = latin1Length == 0 ? NO_BYTES : Arrays.copyOf(tape.latin1, latin1Length);
+            tape.utf16 = utf16Length == 0 ? NO_CHARS : Arrays.copyOf(tape.utf16, utf16Length);
+            tape.nameTable = new String[nameIndex.size()];
+            for (Map.Entry<String, Integer> e : nameIndex.entrySet()) {
+                tape.nameTable[e.getValue()] = e.getKey();
+            }
+            return tape;
+        }
+
+        private static int[] push(int[] stack, int depth) {
+            return depth < stack.length ? stack : Arrays.copyOf(stack, depth * 2);
+        }
+
+        private static int grow(int current, int required) {
+            return Math.max(required, current + (current >> 1) + 16);
+        }
+    }
+}
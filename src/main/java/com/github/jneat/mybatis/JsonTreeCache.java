@@ -0,0 +1,251 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Vladislav Zablotsky
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE. 
+ */
+package com.github.jneat.mybatis;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Size bounded cache of parsed documents, shared by all values read with one codec.
+ * Documents are identified by SHA-256 digest of source content, so identical documents from different rows
+ * and sessions are parsed once and cache does not keep sources. Cached trees are read only, see {@link JsonNodeValue#view()}.
+ * <p>
+ * Weight of document is estimated heap size of its tree in bytes: nodes, field names and texts.
+ * Least recently used documents are evicted when total weight exceeds limit.
+ * Concurrent misses of the same document may parse it twice.
+ *
+ * @see JsonCodecs#setCache(String, JsonTreeCache)
+ */
+public final class JsonTreeCache {
+
+    private static final int SEGMENTS = 16;
+
+    private final long maxWeight;
+
+    private final Segment[] segments = new Segment[SEGMENTS];
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * @param maxWeight Total estimated heap size of cached trees in bytes. Each of 16 segments holds up to 1/16 of it,
+     * so larger documents are not cached.
+     */
+    public JsonTreeCache(long maxWeight) {
+        if (maxWeight < SEGMENTS) {
+            throw new IllegalArgumentException("Cache weight should be at least " + SEGMENTS);
+        }
+        this.maxWeight = maxWeight;
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment(maxWeight / SEGMENTS);
+        }
+    }
+
+    public long getMaxWeight() {
+        return maxWeight;
+    }
+
+    public long getWeight() {
+        long w = 0;
+        for (Segment s : segments) {
+            w += s.weight();
+        }
+        return w;
+    }
+
+    /**
+     * Number of cached documents.
+     */
+    public int getSize() {
+        int size = 0;
+        for (Segment s : segments) {
+            size += s.size();
+        }
+        return size;
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * Number of parsed documents, including ones which are too large to be cached.
+     */
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    public void clear() {
+        for (Segment s : segments) {
+            s.clear();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "JsonTreeCache{size=" + getSize() + ", weight=" + getWeight() + "/" + maxWeight
+            + ", hits=" + getHitCount() + ", misses=" + getMissCount() + ", evictions=" + getEvictionCount() + "}";
+    }
+
+    /**
+     * Return cached tree or load it and put into cache. Loader should return read only tree.
+     */
+    JsonNode get(JsonSource source, Loader loader) throws IOException {
+        Object key = source.cacheKey();
+        int h = key.hashCode();
+        Segment segment = segments[(h ^ (h >>> 16)) & (SEGMENTS - 1)];
+        JsonNode node = segment.get(key);
+        if (node != null) {
+            hits.increment();
+            return node;
+        }
+        misses.increment();
+        node = loader.load();
+        long weight = weight(node, segment.capacity);
+        if (weight <= segment.capacity) {
+            segment.put(key, node, weight);
+        }
+        return node;
+    }
+
+    /**
+     * Estimated heap size of tree with compressed references, counting stops once it exceeds limit.
+     */
+    static long weight(JsonNode root, long limit) throws IOException {
+        long w = 0;
+        Deque<JsonNode> nodes = new ArrayDeque<>();
+        nodes.push(root);
+        while (!nodes.isEmpty() && w <= limit) {
+            JsonNode n = nodes.pop();
+            if (n.isObject()) {
+                // Node, LinkedHashMap and its table
+                w += 16 + 56 + 8L * n.size();
+                Iterator<Map.Entry<String, JsonNode>> fields = n.fields();
+                while (fields.hasNext()) {
+                    Map.Entry<String, JsonNode> f = fields.next();
+                    // Map entry and field name
+                    w += 40 + string(f.getKey());
+                    nodes.push(f.getValue());
+                }
+            } else if (n.isArray()) {
+                // Node, ArrayList and its array
+                w += 16 + 24 + 16 + 4L * n.size();
+                for (JsonNode e : n) {
+                    nodes.push(e);
+                }
+            } else if (n.isTextual()) {
+                w += 16 + string(n.textValue());
+            } else if (n.isBinary()) {
+                w += 16 + 16 + n.binaryValue().length;
+            } else if (n.isBigDecimal() || n.isBigInteger()) {
+                w += 16 + 64;
+            } else if (!n.isNull() && !n.isBoolean()) {
+                // Null and boolean nodes are singletons
+                w += 24;
+            }
+        }
+        return w;
+    }
+
+    private static long string(String s) {
+        return 40 + 2L * s.length();
+    }
+
+    interface Loader {
+
+        JsonNode load() throws IOException;
+    }
+
+    private static final class Entry {
+
+        final JsonNode node;
+
+        final long weight;
+
+        Entry(JsonNode node, long weight) {
+            this.node = node;
+            this.weight = weight;
+        }
+    }
+
+    private final class Segment {
+
+        final long capacity;
+
+        // Access ordered map iterates from least recently used entries
+        private final LinkedHashMap<Object, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+        private long weight;
+
+        Segment(long capacity) {
+            this.capacity = capacity;
+        }
+
+        synchronized JsonNode get(Object key) {
+            Entry e = entries.get(key);
+            return e == null ? null : e.node;
+        }
+
+        synchronized void put(Object key, JsonNode node, long w) {
+            Entry prev = entries.put(key, new Entry(node, w));
+            if (prev != null) {
+                weight -= prev.weight;
+            }
+            weight += w;
+            Iterator<Entry> it = entries.values().iterator();
+            while (weight > capacity && it.hasNext()) {
+                weight -= it.next().weight;
+                it.remove();
+                evictions.increment();
+            }
+        }
+
+        synchronized long weight() {
+            return weight;
+        }
+
+        synchronized int size() {
+            return entries.size();
+        }
+
+        synchronized void clear() {
+            entries.clear();
+            weight = 0;
+        }
+    }
+}
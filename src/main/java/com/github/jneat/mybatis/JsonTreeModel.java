@@ -0,0 +1,46 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Vladislav Zablotsky
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE. 
+ */
+package com.github.jneat.mybatis;
+
+/**
+ * How lazy values build document when it is accessed.
+ *
+ * @see TreeNodeTypeHandler#setTreeModel(JsonTreeModel)
+ * @see JsonNodeValueTypeHandler#setTreeModel(JsonTreeModel)
+ */
+public enum JsonTreeModel {
+
+    /**
+     * Regular Jackson ObjectNode and ArrayNode tree. This is default model.
+     */
+    NODES,
+
+    /**
+     * Read only tape of values held in primitive arrays, several times smaller than node tree.
+     * Objects and arrays are returned as TreeNode views, so they can not be cast to ObjectNode or ArrayNode,
+     * scalar values are regular JsonNode built on access.
+     * Useful for large result sets that are read and written back without changes.
+     */
+    COMPACT
+}
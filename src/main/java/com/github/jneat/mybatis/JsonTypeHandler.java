@@ -0,0 +1,134 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Vladislav Zablotsky
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE. 
+ */
+package com.github.jneat.mybatis;
+
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.apache.ibatis.type.JdbcType;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.sql.CallableStatement;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Map JSON column directly into java object, without building intermediate JsonNode tree.
+ * Reader and writer for mapped type are resolved once and shared between all handlers of that type.
+ * Empty string or SQL NULL is returned as null.
+ * Documents dropped by {@link JsonLimitPolicy#MISSING} are returned as null too, so such handler does not write NULL.
+ * <p>
+ * Handler is bound to one java type, so declare it for each mapped type:
+ * <pre>{@code
+ * public class UserSettingsTypeHandler extends JsonTypeHandler<UserSettings> {}
+ * }</pre>
+ * and register it within mybatis package scan or use it as typeHandler in result map.
+ * Generic types like {@code JsonTypeHandler<List<UserSettings>>} are supported as well.
+ * For programmatic registration {@link JsonTypeHandler#of(Class)} can be used.
+ *
+ * @param <T> Mapped java type
+ * @see JsonValueTypeHandler
+ */
+public abstract class JsonTypeHandler<T> extends AbstractJsonTypeHandler<T> {
+
+    private final Type type;
+
+    private ObjectReader reader;
+
+    private ObjectWriter writer;
+
+    /**
+     * Take mapped type from type argument of subclass.
+     */
+    protected JsonTypeHandler() {
+        this.type = typeArgument(getClass(), JsonTypeHandler.class);
+        codecChanged();
+    }
+
+    protected JsonTypeHandler(Class<T> type) {
+        this.type = type;
+        codecChanged();
+    }
+
+    /**
+     * Create handler for given class, e.g.
+     * {@code registry.register(UserSettings.class, JsonTypeHandler.of(UserSettings.class))}.
+     */
+    public static <T> JsonTypeHandler<T> of(Class<T> type) {
+        return new JsonTypeHandler<T>(type) {
+        };
+    }
+
+    @Override
+    final void codecChanged() {
+        JavaType javaType = codec().type(type);
+        this.reader = codec().reader(javaType);
+        this.writer = codec().writer(javaType);
+    }
+
+    /**
+     * With {@link JsonLimitPolicy#MISSING} null may be document dropped by limits, so it is not written as NULL.
+     * Use {@link JsonValueTypeHandler} to map such columns, its values report {@link JsonValue#isLimitExceeded()}.
+     */
+    @Override
+    public void setParameter(PreparedStatement ps, int i, T parameter, JdbcType jdbcType) throws SQLException {
+        if (parameter == null && getLimits().getPolicy() == JsonLimitPolicy.MISSING) {
+            throw new SQLException("Null can be JSON document dropped by limits, it can not be written by handler with MISSING policy");
+        }
+        super.setParameter(ps, i, parameter, jdbcType);
+    }
+
+    @Override
+    public void setNonNullParameter(PreparedStatement ps, int i, T parameter, JdbcType jdbcType) throws SQLException {
+        writeValue(ps, i, parameter, writer);
+    }
+
+    @Override
+    public T getNullableResult(ResultSet rs, String columnName) throws SQLException {
+        return read(readSource(rs, columnName));
+    }
+
+    @Override
+    public T getNullableResult(ResultSet rs, int columnIndex) throws SQLException {
+        return read(readSource(rs, columnIndex));
+    }
+
+    @Override
+    public T getNullableResult(CallableStatement cs, int columnIndex) throws SQLException {
+        return read(readSource(cs, columnIndex));
+    }
+
+    private T read(JsonSource source) {
+        if (source == null || source.isBlank()) {
+            return null;
+        }
+        try {
+            return codec().readValue(source, reader);
+        } catch (IOException ex) {
+            throw new RuntimeException(ex.getMessage(), ex);
+        }
+    }
+}
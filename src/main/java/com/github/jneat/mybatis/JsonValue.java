@@ -0,0 +1,226 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Vladislav Zablotsky
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE. 
+ */
+package com.github.jneat.mybatis;
+
+import com.fasterxml.jackson.databind.JavaType;
+
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
+/**
+ * Value container that transfer JSON mapped java objects from/into DB.
+ * Same as {@link JsonNodeValue} it keeps JSON received from DB and deserialize it only at first call of
+ * {@link JsonValue#get()}, so columns which are not used by application are never parsed.
+ * Value which was not accessed is written back into DB exactly as it was read.
+ *
+ * @param <T> Type of contained object
+ * @see JsonValueTypeHandler
+ */
+public final class JsonValue<T> implements Serializable {
+
+    private static final long serialVersionUID = -6137950722563574911L;
+
+    @SuppressWarnings("rawtypes")
+    private static final LazyInit<JsonValue> LAZY = new LazyInit<>(
+        AtomicReferenceFieldUpdater.newUpdater(JsonValue.class, LazyInit.Parse.class, "parse"));
+
+    @SuppressWarnings("rawtypes")
+    private static final AtomicReferenceFieldUpdater<JsonValue, Object> VALUE =
+        AtomicReferenceFieldUpdater.newUpdater(JsonValue.class, Object.class, "value");
+
+    private static final JsonValue<?> EMPTY = new JsonValue<>(null, null, null, null, false);
+
+    private static final JsonValue<?> LIMIT_EXCEEDED = new JsonValue<>(null, null, null, null, false);
+
+    static {
+        LIMIT_EXCEEDED.limitExceeded = true;
+    }
+
+    private final JavaType type;
+
+    private final ReaderWriter codec;
+
+    private final boolean dbSource;
+
+    private JsonSource source;
+
+    private boolean limitExceeded;
+
+    private transient volatile T value;
+
+    private transient volatile LazyInit.Parse parse;
+
+    private JsonValue(JavaType type, ReaderWriter codec, JsonSource source, T value, boolean dbSource) {
+        this.type = type;
+        this.codec = codec;
+        this.source = source;
+        this.value = value;
+        this.dbSource = dbSource;
+    }
+
+    /**
+     * Value container without any content, {@link JsonValue#get()} will return null.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> JsonValue<T> empty() {
+        return (JsonValue<T>) EMPTY;
+    }
+
+    /**
+     * Build value container from java object, which will be serialized according to its runtime class.
+     *
+     * @param value object or null
+     */
+    public static <T> JsonValue<T> of(T value) {
+        if (value == null) {
+            return empty();
+        }
+        ReaderWriter codec = JsonCodecs.defaultCodec();
+        return new JsonValue<>(codec.type(value.getClass()), codec, null, value, false);
+    }
+
+    /**
+     * Test input value and return not null - value from input or empty object.
+     */
+    public static <T> JsonValue<T> orEmpty(JsonValue<T> value) {
+        return value == null || value.isNotPresent() ? JsonValue.<T>empty() : value;
+    }
+
+    @SuppressWarnings("unchecked")
+    static <T> JsonValue<T> fromDb(JsonSource source, JavaType type, ReaderWriter codec) {
+        if (source == JsonLimits.EXCEEDED) {
+            return (JsonValue<T>) LIMIT_EXCEEDED;
+        }
+        if (source == null || source.isBlank()) {
+            return empty();
+        }
+        return new JsonValue<>(type, codec, source, null, true);
+    }
+
+    /**
+     * Check if nested value is present (not null or empty JSON string).
+     */
+    public boolean isPresent() {
+        return value != null || source != null;
+    }
+
+    /**
+     * Check if content was dropped because it exceeds handler limits, such value is not present and can not be written.
+     *
+     * @see JsonLimitPolicy#MISSING
+     */
+    public boolean isLimitExceeded() {
+        return limitExceeded;
+    }
+
+    /**
+     * Opposite to {@link JsonValue#isPresent()}.
+     */
+    public boolean isNotPresent() {
+        return !isPresent();
+    }
+
+    /**
+     * Return contained object (will deserialize it at first call).
+     * Same instance is returned on each call, so changes made to it will be written into DB.
+     *
+     * @return Contained object or null if no data.
+     * @throws RuntimeException On JSON parsing errors.
+     */
+    public T get() throws RuntimeException {
+        if (!isPresent()) {
+            return null;
+        }
+        T v = value;
+        if (v != null) {
+            return v;
+        }
+        try {
+            @SuppressWarnings("unchecked")
+            T loaded = (T)LAZY.get(this, VALUE, () -> codec.readValue(source, codec.reader(type)));
+            return loaded;
+        } catch (Exception ex) {
+            throw new RuntimeException("Can not parse JSON string. " + ex.getMessage(), ex);
+        }
+    }
+
+    /**
+     * Parse source ahead of first access, used by background parsing. Errors are thrown by accessors later.
+     */
+    void preload() {
+        if (source instanceof SpilledSource) {
+            // Spilled documents are parsed only when they are really needed
+            return;
+        }
+        try {
+            get();
+        } catch (RuntimeException ex) {
+            // Accessor will parse source again and report the error
+        }
+    }
+
+    /**
+     * Same as {@link JsonValue#get()}.
+     * Created for compatibility with frameworks that works with object properties,
+     * thus require get* methods.
+     */
+    public T getValue() {
+        return get();
+    }
+
+    /**
+     * Source could be written as is only while nobody has got an object which may be changed.
+     */
+    boolean hasDbSource() {
+        return dbSource && value == null;
+    }
+
+    JsonSource source() {
+        return source;
+    }
+
+    JavaType type() {
+        return type;
+    }
+
+    ReaderWriter codec() {
+        return codec;
+    }
+
+    private void writeObject(ObjectOutputStream oos) throws IOException {
+        if (value != null) {
+            source = codec.source(value, type);
+        }
+        oos.defaultWriteObject();
+    }
+
+    private Object readResolve() {
+        if (limitExceeded) {
+            return LIMIT_EXCEEDED;
+        }
+        return source == null ? EMPTY : this;
+    }
+}
@@ -0,0 +1,156 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Vladislav Zablotsky
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE. 
+ */
+package com.github.jneat.mybatis;
+
+import com.fasterxml.jackson.databind.JavaType;
+import org.apache.ibatis.executor.result.ResultMapException;
+import org.apache.ibatis.type.JdbcType;
+
+import java.lang.reflect.Type;
+import java.sql.CallableStatement;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Map JSON column as lazy value container with java object.
+ * Should always return not null value.
+ * <p>
+ * Handler reads values of one java type, declare it for each type:
+ * <pre>{@code
+ * @MappedTypes(JsonValue.class)
+ * public class UserSettingsValueTypeHandler extends JsonValueTypeHandler<UserSettings> {}
+ * }</pre>
+ * and use it as typeHandler in result map. Parameters are written according to type of each value,
+ * so any of such handlers can be registered for JsonValue parameters.
+ * NOTE without {@code @MappedTypes(JsonValue.class)} mybatis package scan registers handler
+ * for {@code UserSettings} instead of {@code JsonValue}.
+ *
+ * @param <T> Type of contained object
+ * @see JsonValue
+ * @see JsonTypeHandler
+ */
+public abstract class JsonValueTypeHandler<T> extends AbstractJsonTypeHandler<JsonValue<T>> {
+
+    private final Type type;
+
+    private JavaType javaType;
+
+    /**
+     * Take contained type from type argument of subclass.
+     */
+    protected JsonValueTypeHandler() {
+        this.type = typeArgument(getClass(), JsonValueTypeHandler.class);
+        codecChanged();
+    }
+
+    protected JsonValueTypeHandler(Class<T> type) {
+        this.type = type;
+        codecChanged();
+    }
+
+    /**
+     * Create handler for given class, e.g.
+     * {@code registry.register(JsonValue.class, JsonValueTypeHandler.of(UserSettings.class))}.
+     */
+    public static <T> JsonValueTypeHandler<T> of(Class<T> type) {
+        return new JsonValueTypeHandler<T>(type) {
+        };
+    }
+
+    @Override
+    final void codecChanged() {
+        this.javaType = codec().type(type);
+        // Resolve reader in advance, so first row does not pay for it
+        codec().reader(javaType);
+    }
+
+    @Override
+    public void setNonNullParameter(PreparedStatement ps, int i, JsonValue<T> parameter, JdbcType jdbcType) throws SQLException {
+        if (parameter.isLimitExceeded()) {
+            throw new SQLException("JSON value was dropped because it exceeds limits, it can not be written");
+        }
+        if (parameter.isPresent()) {
+            if (parameter.hasDbSource()) {
+                writeSource(ps, i, parameter.source());
+            } else {
+                writeValue(ps, i, parameter.get(), codec().writer(parameter.type()));
+            }
+        } else {
+            writeNull(ps, i);
+        }
+    }
+
+    @Override
+    public JsonValue<T> getNullableResult(ResultSet rs, String columnName) throws SQLException {
+        return preload(JsonValue.fromDb(readSource(rs, columnName), javaType, codec()));
+    }
+
+    @Override
+    public JsonValue<T> getNullableResult(ResultSet rs, int columnIndex) throws SQLException {
+        return preload(JsonValue.fromDb(readSource(rs, columnIndex), javaType, codec()));
+    }
+
+    @Override
+    public JsonValue<T> getNullableResult(CallableStatement cs, int columnIndex) throws SQLException {
+        return preload(JsonValue.fromDb(readSource(cs, columnIndex), javaType, codec()));
+    }
+
+    private JsonValue<T> preload(JsonValue<T> value) {
+        if (value.isPresent()) {
+            submitParse(value::preload);
+        }
+        return value;
+    }
+
+    /*
+    Override BaseTypeHandler in such way that result will never be null
+     */
+    @Override
+    public JsonValue<T> getResult(ResultSet rs, String columnName) throws SQLException {
+        try {
+            return getNullableResult(rs, columnName);
+        } catch (Exception e) {
+            throw new ResultMapException("Error attempting to get column '" + columnName + "' from result set.  Cause: " + e, e);
+        }
+    }
+
+    @Override
+    public JsonValue<T> getResult(ResultSet rs, int columnIndex) throws SQLException {
+        try {
+            return getNullableResult(rs, columnIndex);
+        } catch (Exception e) {
+            throw new ResultMapException("Error attempting to get column #" + columnIndex + " from result set.  Cause: " + e, e);
+        }
+    }
+
+    @Override
+    public JsonValue<T> getResult(CallableStatement cs, int columnIndex) throws SQLException {
+        try {
+            return getNullableResult(cs, columnIndex);
+        } catch (Exception e) {
+            throw new ResultMapException("Error attempting to get column #" + columnIndex + " from callable statement.  Cause: " + e, e);
+        }
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Vladislav Zablotsky
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE. 
+ */
+package com.github.jneat.mybatis;
+
+/**
+ * How serialized JSON should be bound into PreparedStatement.
+ *
+ * @see AbstractJsonTypeHandler#setWriteMode(JsonWriteMode)
+ */
+public enum JsonWriteMode {
+
+    /**
+     * Serialize into string and use {@code setString()}. This is default mode.
+     */
+    STRING,
+
+    /**
+     * Serialize into pooled UTF-8 buffer and use {@code setBytes()}.
+     * Note that most drivers will send such parameter as binary type (e.g. bytea for PostgreSQL).
+     */
+    BYTES,
+
+    /**
+     * Serialize into pooled UTF-8 buffer and use {@code setBinaryStream()}.
+     */
+    BINARY_STREAM,
+
+    /**
+     * Serialize into pooled char buffer and use {@code setCharacterStream()} (CLOB columns).
+     */
+    CHARACTER_STREAM,
+
+    /**
+     * Detect database from connection metadata once per connection: for PostgreSQL bind typed {@code json} value (PGobject),
+     * which is cast to jsonb on assignment, for others use {@code setString()}.
+     * Use {@link #JSONB} when parameters are compared with jsonb columns or passed into jsonb operators.
+     */
+    AUTO,
+
+    /**
+     * Bind PostgreSQL typed {@code json} value (PGobject), requires PostgreSQL JDBC driver.
+     */
+    JSON,
+
+    /**
+     * Bind PostgreSQL typed {@code jsonb} value (PGobject), requires PostgreSQL JDBC driver.
+     */
+    JSONB
+}
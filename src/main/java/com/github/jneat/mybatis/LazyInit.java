@@ -0,0 +1,107 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Vladislav Zablotsky
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE. 
+ */
+package com.github.jneat.mybatis;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
+/**
+ * Lock free lazy initialization of volatile fields of lazy values, without monitors,
+ * so parsing does not pin carrier of virtual thread and does not block unrelated synchronized code.
+ * <p>
+ * Owner has one transient volatile {@link Parse} field, which marks running initialization of any of its fields.
+ * First thread that sets marker runs loader and publishes result into value field with volatile write,
+ * concurrent callers park until marker is removed and then read published value.
+ * If loader fails, marker is removed without value and each waiter runs loader itself, so all of them
+ * get own exception, the same way as single threaded callers do.
+ *
+ * @param <O> Owner class
+ */
+final class LazyInit<O> {
+
+    /**
+     * Marker of running initialization, completed when it is removed from owner.
+     */
+    static final class Parse extends CompletableFuture<Void> {
+    }
+
+    interface Loader<T> {
+        T load() throws IOException;
+    }
+
+    private final AtomicReferenceFieldUpdater<O, Parse> parse;
+
+    /**
+     * @param parse Updater of transient volatile {@link Parse} field, it should be created by owner class
+     * to access private field.
+     */
+    LazyInit(AtomicReferenceFieldUpdater<O, Parse> parse) {
+        this.parse = parse;
+    }
+
+    /**
+     * Return value of field, loading it when it is null.
+     *
+     * @throws IOException Or runtime exception thrown by loader.
+     */
+    <T> T get(O owner, AtomicReferenceFieldUpdater<O, T> field, Loader<? extends T> loader) throws IOException {
+        for (;;) {
+            T value = field.get(owner);
+            if (value != null) {
+                return value;
+            }
+            Parse running = parse.get(owner);
+            if (running != null) {
+                // Parks thread, so virtual threads release their carriers while waiting
+                running.join();
+                continue;
+            }
+            Parse mine = new Parse();
+            if (!parse.compareAndSet(owner, null, mine)) {
+                continue;
+            }
+            try {
+                value = field.get(owner);
+                if (value == null) {
+                    value = loader.load();
+                    field.set(owner, value);
+                }
+                return value;
+            } finally {
+                parse.set(owner, null);
+                mine.complete(null);
+            }
+        }
+    }
+
+    /**
+     * Replace value of field if it was not changed by other thread.
+     *
+     * @return Value of field after replacement.
+     */
+    static <O, T> T replace(O owner, AtomicReferenceFieldUpdater<O, T> field, T expected, T replacement) {
+        return field.compareAndSet(owner, expected, replacement) ? replacement : field.get(owner);
+    }
+}
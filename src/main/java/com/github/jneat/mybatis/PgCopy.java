@@ -0,0 +1,54 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Vladislav Zablotsky
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE. 
+ */
+package com.github.jneat.mybatis;
+
+import org.postgresql.PGConnection;
+import org.postgresql.copy.PGCopyOutputStream;
+
+import java.io.OutputStream;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * PostgreSQL COPY support, used only when driver is present.
+ */
+final class PgCopy {
+
+    private PgCopy() {
+    }
+
+    /**
+     * Start {@code COPY ... FROM STDIN}, data written into returned stream is sent to server and closing it ends copy.
+     */
+    static OutputStream copyIn(Connection con, String sql) throws SQLException {
+        return new PGCopyOutputStream(con.unwrap(PGConnection.class), sql);
+    }
+
+    static void cancel(OutputStream out) throws SQLException {
+        PGCopyOutputStream copy = (PGCopyOutputStream)out;
+        if (copy.isActive()) {
+            copy.cancelCopy();
+        }
+    }
+}
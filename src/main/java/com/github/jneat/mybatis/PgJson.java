@@ -0,0 +1,99 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Vladislav Zablotsky
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE. 
+ */
+package com.github.jneat.mybatis;
+
+import org.postgresql.util.PGobject;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * PostgreSQL specific parameter binding.
+ * PostgreSQL driver is optional dependency, so PGobject is touched only by JSON and JSONB write modes
+ * and by AUTO mode for PostgreSQL connections.
+ */
+final class PgJson {
+
+    private static final String PG_OBJECT = "org.postgresql.util.PGobject";
+
+    private static final boolean DRIVER_PRESENT = isDriverPresent();
+
+    /*
+    Database of each connection is detected once. Pooled connections live long,
+    so lookups of weak map replace metadata calls for almost all parameters.
+     */
+    private static final Map<Connection, Boolean> POSTGRES = Collections.synchronizedMap(new WeakHashMap<>());
+
+    private PgJson() {
+    }
+
+    static boolean isDriverPresent() {
+        try {
+            Class.forName(PG_OBJECT, false, PgJson.class.getClassLoader());
+            return true;
+        } catch (ClassNotFoundException | LinkageError ex) {
+            return false;
+        }
+    }
+
+    /**
+     * Bind JSON string as typed json or jsonb value, null is bound as typed NULL.
+     */
+    static void bind(PreparedStatement ps, int i, String json, String type) throws SQLException {
+        PGobject obj = new PGobject();
+        obj.setType(type);
+        obj.setValue(json);
+        ps.setObject(i, obj);
+    }
+
+    /**
+     * Bind JSON string as typed json value for PostgreSQL or as string for other databases.
+     * Without PostgreSQL driver classes (e.g. proxy drivers) value is bound untyped.
+     */
+    static void bindAuto(PreparedStatement ps, int i, String json) throws SQLException {
+        if (!isPostgres(ps.getConnection())) {
+            ps.setString(i, json);
+        } else if (DRIVER_PRESENT) {
+            bind(ps, i, json, "json");
+        } else if (json == null) {
+            ps.setNull(i, Types.OTHER);
+        } else {
+            ps.setObject(i, json, Types.OTHER);
+        }
+    }
+
+    static boolean isPostgres(Connection con) throws SQLException {
+        Boolean postgres = POSTGRES.get(con);
+        if (postgres == null) {
+            postgres = "PostgreSQL".equals(con.getMetaData().getDatabaseProductName());
+            POSTGRES.put(con, postgres);
+        }
+        return postgres;
+    }
+}
@@ -0,0 +1,279 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Vladislav Zablotsky
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE. 
+ */
+package com.github.jneat.mybatis;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
+import com.fasterxml.jackson.core.json.JsonGeneratorImpl;
+import com.fasterxml.jackson.databind.JsonSerializable;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.jsontype.TypeSerializer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * JSON document which is never parsed, it is passed from DB to Jackson output as is.
+ * When it is serialized by Jackson into JSON text, content is written as raw value, so DB-to-wire costs one copy.
+ * Other outputs (e.g. Smile or token buffers) and binary encoded documents are copied token by token,
+ * still without building tree. Documents read by codec which accepts non-standard JSON (e.g. default one,
+ * with unquoted field names or single quotes) are copied token by token too, so output is always standard JSON.
+ * NOTE content of raw values is not validated, so column should hold standard JSON, as json and jsonb columns always do.
+ *
+ * @see RawJsonTypeHandler
+ * @see RawJsonModule
+ */
+public final class RawJson implements JsonSerializable, Serializable {
+
+    private static final long serialVersionUID = -1750345810359719431L;
+
+    /**
+     * Parser features which accept non-standard JSON, such documents can not be written as is.
+     */
+    private static final JsonParser.Feature[] LENIENT_FEATURES;
+
+    static {
+        List<JsonParser.Feature> lenient = new ArrayList<>();
+        for (JsonParser.Feature f : JsonParser.Feature.values()) {
+            // Names are matched, so features of newer Jackson versions are covered too
+            if (f.name().startsWith("ALLOW_")) {
+                lenient.add(f);
+            }
+        }
+        LENIENT_FEATURES = lenient.toArray(new JsonParser.Feature[lenient.size()]);
+    }
+
+    private final JsonSource source;
+
+    /**
+     * Codec which read document from DB, null for documents wrapped by application.
+     */
+    private final ReaderWriter codec;
+
+    private RawJson(JsonSource source, ReaderWriter codec) {
+        this.source = source;
+        this.codec = codec;
+    }
+
+    /**
+     * Wrap JSON string, it is not validated.
+     */
+    public static RawJson of(String json) {
+        if (json == null) {
+            throw new IllegalArgumentException("JSON can not be null");
+        }
+        return new RawJson(JsonSource.of(json), null);
+    }
+
+    /**
+     * @return Null for SQL NULL, blank documents and documents dropped by limits.
+     */
+    static RawJson fromDb(JsonSource source, ReaderWriter codec) {
+        return source == null || source == JsonLimits.EXCEEDED || source.isBlank() ? null : new RawJson(source, codec);
+    }
+
+    JsonSource source() {
+        return source;
+    }
+
+    /**
+     * JSON string, binary documents are transcoded into JSON.
+     */
+    @Override
+    public String toString() {
+        return source.text();
+    }
+
+    @Override
+    public void serialize(JsonGenerator gen, SerializerProvider serializers) throws IOException {
+        write(source, codec, gen);
+    }
+
+    /**
+     * Document is written as is, without type information.
+     */
+    @Override
+    public void serializeWithType(JsonGenerator gen, SerializerProvider serializers, TypeSerializer typeSer) throws IOException {
+        write(source, codec, gen);
+    }
+
+    /**
+     * Write source as raw value into JSON text generators, copy it token by token into others.
+     * Documents read by lenient codec are always copied, so non-standard syntax is not passed to output.
+     *
+     * @param codec Codec which read source, null if source is trusted to be standard JSON.
+     */
+    static void write(JsonSource source, ReaderWriter codec, JsonGenerator gen) throws IOException {
+        JsonFactory factory = codec == null ? JsonSource.textFactory() : codec.factory();
+        if (!source.isBinary() && gen instanceof JsonGeneratorImpl && (codec == null || isStrict(JsonSource.textFactory(factory)))) {
+            gen.writeRawValue(new RawString(source));
+            return;
+        }
+        try (JsonParser p = source.parser(factory)) {
+            if (p.nextToken() == null) {
+                gen.writeNull();
+            } else {
+                gen.copyCurrentStructure(p);
+            }
+        }
+    }
+
+    private static boolean isStrict(JsonFactory factory) {
+        for (JsonParser.Feature f : LENIENT_FEATURES) {
+            if (factory.isEnabled(f)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Unquoted forms of source, byte based generators take UTF-8 bytes of source without decoding them.
+     * Quoted forms are JSON string literal of source, generators do not request them for raw values.
+     */
+    private static final class RawString implements SerializableString {
+
+        private final JsonSource source;
+
+        private String text;
+
+        private byte[] utf8;
+
+        RawString(JsonSource source) {
+            this.source = source;
+        }
+
+        @Override
+        public String getValue() {
+            if (text == null) {
+                text = source.text();
+            }
+            return text;
+        }
+
+        @Override
+        public int charLength() {
+            return getValue().length();
+        }
+
+        @Override
+        public byte[] asUnquotedUTF8() {
+            if (utf8 == null) {
+                utf8 = source.utf8();
+            }
+            return utf8;
+        }
+
+        @Override
+        public int appendUnquotedUTF8(byte[] buffer, int offset) {
+            byte[] b = asUnquotedUTF8();
+            if (offset + b.length > buffer.length) {
+                return -1;
+            }
+            System.arraycopy(b, 0, buffer, offset, b.length);
+            return b.length;
+        }
+
+        @Override
+        public int appendUnquoted(char[] buffer, int offset) {
+            String s = getValue();
+            if (offset + s.length() > buffer.length) {
+                return -1;
+            }
+            s.getChars(0, s.length(), buffer, offset);
+            return s.length();
+        }
+
+        @Override
+        public int writeUnquotedUTF8(OutputStream out) throws IOException {
+            byte[] b = asUnquotedUTF8();
+            out.write(b);
+            return b.length;
+        }
+
+        @Override
+        public int putUnquotedUTF8(ByteBuffer buffer) {
+            byte[] b = asUnquotedUTF8();
+            if (b.length > buffer.remaining()) {
+                return -1;
+            }
+            buffer.put(b);
+            return b.length;
+        }
+
+        @Override
+        public char[] asQuotedChars() {
+            return JsonStringEncoder.getInstance().quoteAsString(getValue());
+        }
+
+        @Override
+        public byte[] asQuotedUTF8() {
+            return JsonStringEncoder.getInstance().quoteAsUTF8(getValue());
+        }
+
+        @Override
+        public int appendQuotedUTF8(byte[] buffer, int offset) {
+            byte[] b = asQuotedUTF8();
+            if (offset + b.length > buffer.length) {
+                return -1;
+            }
+            System.arraycopy(b, 0, buffer, offset, b.length);
+            return b.length;
+        }
+
+        @Override
+        public int appendQuoted(char[] buffer, int offset) {
+            char[] c = asQuotedChars();
+            if (offset + c.length > buffer.length) {
+                return -1;
+            }
+            System.arraycopy(c, 0, buffer, offset, c.length);
+            return c.length;
+        }
+
+        @Override
+        public int writeQuotedUTF8(OutputStream out) throws IOException {
+            byte[] b = asQuotedUTF8();
+            out.write(b);
+            return b.length;
+        }
+
+        @Override
+        public int putQuotedUTF8(ByteBuffer buffer) {
+            byte[] b = asQuotedUTF8();
+            if (b.length > buffer.remaining()) {
+                return -1;
+            }
+            buffer.put(b);
+            return b.length;
+        }
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Vladislav Zablotsky
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE. 
+ */
+package com.github.jneat.mybatis;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.Version;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import java.io.IOException;
+
+/**
+ * Jackson module which writes values read from DB as {@link RawJson} does, without parsing them.
+ * Register it in mapper used for output, e.g. for HTTP responses:
+ * <pre>{@code
+ * mapper.registerModule(new RawJsonModule());
+ * }</pre>
+ * Values are written from DB source when it is still actual:
+ * <ul>
+ * <li>{@link TreeNodeLazyWrapper} - until any container of its tree was handed out, otherwise tree is written.</li>
+ * <li>{@link JsonNodeValue} and {@link JsonValue} - when value was read from DB, same as type handlers write them.</li>
+ * <li>{@link JsonEdit} - until document was edited.</li>
+ * </ul>
+ * Without this module Jackson writes these classes as beans.
+ */
+public class RawJsonModule extends SimpleModule {
+
+    private static final long serialVersionUID = 1794563468251384716L;
+
+    public RawJsonModule() {
+        super("RawJsonModule", Version.unknownVersion());
+        addSerializer(TreeNodeLazyWrapper.class, new TreeNodeSerializer());
+        addSerializer(JsonNodeValue.class, new JsonNodeValueSerializer());
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        Class<JsonValue<?>> valueClass = (Class)JsonValue.class;
+        addSerializer(valueClass, new JsonValueSerializer(valueClass));
+        addSerializer(JsonEdit.class, new JsonEditSerializer());
+    }
+
+    private static final class TreeNodeSerializer extends StdSerializer<TreeNodeLazyWrapper> {
+
+        private static final long serialVersionUID = -7493947792442193747L;
+
+        TreeNodeSerializer() {
+            super(TreeNodeLazyWrapper.class);
+        }
+
+        @Override
+        public void serialize(TreeNodeLazyWrapper value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            if (value.isSourceActual() && !value.isLimitExceeded()) {
+                RawJson.write(value.source(), value.codec(), gen);
+            } else {
+                value.node().serialize(gen, provider);
+            }
+        }
+    }
+
+    private static final class JsonNodeValueSerializer extends StdSerializer<JsonNodeValue> {
+
+        private static final long serialVersionUID = -925089704360395L;
+
+        JsonNodeValueSerializer() {
+            super(JsonNodeValue.class);
+        }
+
+        @Override
+        public void serialize(JsonNodeValue value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            if (value.hasDbSource()) {
+                RawJson.write(value.source(), value.codec(), gen);
+            } else if (value.isPresent()) {
+                value.node().serialize(gen, provider);
+            } else {
+                gen.writeNull();
+            }
+        }
+    }
+
+    private static final class JsonValueSerializer extends StdSerializer<JsonValue<?>> {
+
+        private static final long serialVersionUID = 7178980920279156730L;
+
+        JsonValueSerializer(Class<JsonValue<?>> type) {
+            super(type);
+        }
+
+        @Override
+        public void serialize(JsonValue<?> value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            if (value.hasDbSource()) {
+                RawJson.write(value.source(), value.codec(), gen);
+            } else if (value.isPresent()) {
+                provider.defaultSerializeValue(value.get(), gen);
+            } else {
+                gen.writeNull();
+            }
+        }
+    }
+
+    private static final class JsonEditSerializer extends StdSerializer<JsonEdit> {
+
+        private static final long serialVersionUID = 2700729211125859800L;
+
+        JsonEditSerializer() {
+            super(JsonEdit.class);
+        }
+
+        @Override
+        public void serialize(JsonEdit value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            JsonSource source = value.unchangedSource();
+            if (source != null) {
+                RawJson.write(source, value.codec(), gen);
+            } else if (value.isPresent()) {
+                value.edit().serialize(gen, provider);
+            } else {
+                gen.writeNull();
+            }
+        }
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Vladislav Zablotsky
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE. 
+ */
+package com.github.jneat.mybatis;
+
+import org.apache.ibatis.type.JdbcType;
+import org.apache.ibatis.type.MappedTypes;
+
+import java.sql.CallableStatement;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Map JSON column as {@link RawJson}, which is never parsed.
+ * Empty string or SQL NULL is returned as null, documents are written back as they were read.
+ * Documents dropped by {@link JsonLimitPolicy#MISSING} are returned as null too, so handler with this policy
+ * refuses to write null.
+ *
+ * @see RawJson
+ */
+@MappedTypes({RawJson.class})
+public class RawJsonTypeHandler extends AbstractJsonTypeHandler<RawJson> {
+
+    @Override
+    public void setParameter(PreparedStatement ps, int i, RawJson parameter, JdbcType jdbcType) throws SQLException {
+        if (parameter == null && getLimits().getPolicy() == JsonLimitPolicy.MISSING) {
+            throw new SQLException("Null can be JSON document dropped by limits, it can not be written by handler with MISSING policy");
+        }
+        super.setParameter(ps, i, parameter, jdbcType);
+    }
+
+    @Override
+    public void setNonNullParameter(PreparedStatement ps, int i, RawJson parameter, JdbcType jdbcType) throws SQLException {
+        writeSource(ps, i, parameter.source());
+    }
+
+    @Override
+    public RawJson getNullableResult(ResultSet rs, String columnName) throws SQLException {
+        return RawJson.fromDb(readSource(rs, columnName), codec());
+    }
+
+    @Override
+    public RawJson getNullableResult(ResultSet rs, int columnIndex) throws SQLException {
+        return RawJson.fromDb(readSource(rs, columnIndex), codec());
+    }
+
+    @Override
+    public RawJson getNullableResult(CallableStatement cs, int columnIndex) throws SQLException {
+        return RawJson.fromDb(readSource(cs, columnIndex), codec());
+    }
+}
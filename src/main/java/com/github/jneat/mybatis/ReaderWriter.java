@@ -23,38 +23,348 @@
  */
 package com.github.jneat.mybatis;
 
+import com.fasterxml.jackson.core.JsonFactory;
 import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonPointer;
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.core.TreeNode;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JavaType;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.ObjectReader;
 import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.databind.node.TextNode;
+import com.fasterxml.jackson.databind.type.TypeFactory;
 
 import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.lang.reflect.Type;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
-final class ReaderWriter {
+/**
+ * Named codec - readers and writers pre-built from one ObjectMapper.
+ * Lazy values keep reference to codec they were read with, so it is serialized by name only.
+ *
+ * @see JsonCodecs
+ */
+final class ReaderWriter implements Serializable {
+
+    private static final long serialVersionUID = 3874064815472086718L;
+
+    /**
+     * Result of {@link #readScalarAt(JsonSource, JsonPointer, JsonToken)} for object or array, compared by identity.
+     */
+    static final JsonNode CONTAINER = new TextNode("container");
+
+    private final String name;
+
+    private final transient ObjectReader reader;
+
+    private final transient ObjectReader treeReader;
+
+    private final transient ObjectReader freezableTreeReader;
+
+    private final transient ObjectWriter writer;
+
+    private final transient TypeFactory typeFactory;
+
+    private final transient JsonFactory factory;
+
+    private final transient boolean bigDecimals;
+
+    /*
+    Resolving reader or writer for a type looks up (de)serializers, so they are built once per type
+    and shared by all handlers and lazy values of that type.
+     */
+    private final transient ConcurrentMap<JavaType, ObjectReader> readers = new ConcurrentHashMap<>();
+
+    private final transient ConcurrentMap<JavaType, ObjectWriter> writers = new ConcurrentHashMap<>();
+
+    private transient volatile JsonTreeCache cache;
+
+    ReaderWriter(String name, ObjectMapper mapper) {
+        this.name = name;
+        this.typeFactory = mapper.getTypeFactory();
+        this.factory = mapper.getFactory();
+        this.writer = mapper.writer();
+        this.reader = mapper.reader();
+        this.treeReader = reader.forType(JsonNode.class);
+        this.freezableTreeReader = treeReader.with(FreezableNodeFactory.INSTANCE);
+        this.bigDecimals = mapper.isEnabled(DeserializationFeature.USE_BIG_DECIMAL_FOR_FLOATS);
+    }
+
+    String name() {
+        return name;
+    }
+
+    JsonFactory factory() {
+        return factory;
+    }
+
+    /**
+     * Codec encodes documents into binary format (e.g. Smile or CBOR) instead of JSON text.
+     */
+    boolean isBinary() {
+        return factory.canHandleBinaryNatively();
+    }
+
+    JsonNode readTree(JsonSource source) throws IOException {
+        return readValue(source, treeReader);
+    }
+
+    /**
+     * Read whole source with given reader, reporting parse time to metrics listeners.
+     */
+    <T> T readValue(JsonSource source, ObjectReader reader) throws IOException {
+        JsonMetricsListener metrics = JsonMetrics.listener();
+        if (metrics == null) {
+            return source.readValue(reader);
+        }
+        long start = System.nanoTime();
+        T value = source.readValue(reader);
+        metrics.parsed(name, source.length(), System.nanoTime() - start);
+        return value;
+    }
 
-    private static final ObjectReader READER;
+    /**
+     * Read only scalar at pointer, skipping other parts of document without building them.
+     * Root value is expected to be of given container type, when type is not null.
+     * Scalar nodes are immutable, so they are same as nodes of tree. Containers are not built,
+     * they should be taken from tree, so changes made in them are not lost.
+     *
+     * @return Scalar node, {@link #CONTAINER} or null if there is no such node.
+     */
+    JsonNode readScalarAt(JsonSource source, JsonPointer ptr, JsonToken root) throws IOException {
+        try (JsonParser p = source.parser(factory)) {
+            JsonToken t = p.nextToken();
+            if (t == null || (root != null && t != root)) {
+                return null;
+            }
+            return find(p, ptr);
+        }
+    }
 
-    private static final ObjectWriter WRITER;
+    /**
+     * Extract values of projection pointers in one pass, reporting parse time to metrics listeners.
+     */
+    ObjectNode project(JsonSource source, JsonProjection projection) throws IOException {
+        JsonMetricsListener metrics = JsonMetrics.listener();
+        long start = metrics == null ? 0 : System.nanoTime();
+        ObjectNode result;
+        try (JsonParser p = source.parser(factory)) {
+            result = projection.read(p, treeReader);
+        }
+        if (metrics != null) {
+            metrics.parsed(name, source.length(), System.nanoTime() - start);
+        }
+        return result;
+    }
 
-    static {
-        ObjectMapper mapper = new ObjectMapper();
-        WRITER = mapper.writer();
+    /**
+     * First token of source or null if there are no tokens at all.
+     */
+    JsonToken firstToken(JsonSource source) throws IOException {
+        try (JsonParser p = source.parser(factory)) {
+            return p.nextToken();
+        }
+    }
 
-        mapper.configure(JsonParser.Feature.ALLOW_UNQUOTED_FIELD_NAMES, true);
-        mapper.configure(JsonParser.Feature.ALLOW_NUMERIC_LEADING_ZEROS, true);
-        mapper.configure(JsonParser.Feature.ALLOW_SINGLE_QUOTES, true);
-        READER = mapper.reader();
+    /**
+     * Number of root container entries, repeated field names are counted once, same as in tree.
+     */
+    int size(JsonSource source) throws IOException {
+        try (JsonParser p = source.parser(factory)) {
+            JsonToken t = p.nextToken();
+            if (t == JsonToken.START_OBJECT) {
+                Set<String> names = new HashSet<>();
+                while (p.nextToken() == JsonToken.FIELD_NAME) {
+                    names.add(p.getCurrentName());
+                    p.nextToken();
+                    p.skipChildren();
+                }
+                return names.size();
+            }
+            int size = 0;
+            if (t == JsonToken.START_ARRAY) {
+                for (JsonToken e = p.nextToken(); e != JsonToken.END_ARRAY && e != null; e = p.nextToken()) {
+                    size++;
+                    p.skipChildren();
+                }
+            }
+            return size;
+        }
+    }
 
+    /**
+     * Check if source is empty object, empty array or null, looking at first tokens only.
+     */
+    boolean isEmpty(JsonSource source) throws IOException {
+        try (JsonParser p = source.parser(factory)) {
+            JsonToken t = p.nextToken();
+            if (t == JsonToken.START_OBJECT) {
+                return p.nextToken() == JsonToken.END_OBJECT;
+            }
+            if (t == JsonToken.START_ARRAY) {
+                return p.nextToken() == JsonToken.END_ARRAY;
+            }
+            return t == null || t == JsonToken.VALUE_NULL;
+        }
     }
 
-    static JsonNode readTree(String json) throws IOException {
-        return READER.readTree(json);
+    /*
+    Parser should be at the first token of value and it is left at the last token of value, same as after skipChildren().
+     */
+    private JsonNode find(JsonParser p, JsonPointer ptr) throws IOException {
+        if (ptr.matches()) {
+            if (p.getCurrentToken().isStructStart()) {
+                p.skipChildren();
+                return CONTAINER;
+            }
+            return treeReader.readTree(p);
+        }
+        JsonNode result = null;
+        JsonToken t = p.getCurrentToken();
+        if (t == JsonToken.START_OBJECT) {
+            String name = ptr.getMatchingProperty();
+            while (p.nextToken() == JsonToken.FIELD_NAME) {
+                boolean match = name.equals(p.getCurrentName());
+                p.nextToken();
+                if (match) {
+                    // Keep scanning, later duplicate replaces earlier one just like in tree
+                    result = find(p, ptr.tail());
+                } else {
+                    p.skipChildren();
+                }
+            }
+        } else if (t == JsonToken.START_ARRAY) {
+            int index = ptr.getMatchingIndex();
+            int i = 0;
+            for (JsonToken e = p.nextToken(); e != JsonToken.END_ARRAY && e != null; e = p.nextToken()) {
+                if (i++ == index) {
+                    result = find(p, ptr.tail());
+                } else {
+                    p.skipChildren();
+                }
+            }
+        }
+        return result;
     }
 
-    static String write(TreeNode tree) throws JsonProcessingException {
-        return WRITER.writeValueAsString(tree);
+    /**
+     * Read document into compact read only representation.
+     */
+    JsonTape readTape(JsonSource source) throws IOException {
+        JsonMetricsListener metrics = JsonMetrics.listener();
+        if (metrics == null) {
+            return JsonTape.read(source.parser(factory), bigDecimals);
+        }
+        long start = System.nanoTime();
+        JsonTape tape = JsonTape.read(source.parser(factory), bigDecimals);
+        metrics.parsed(name, source.length(), System.nanoTime() - start);
+        return tape;
+    }
+
+    JsonTreeCache cache() {
+        return cache;
+    }
+
+    void cache(JsonTreeCache cache) {
+        this.cache = cache;
+    }
+
+    /**
+     * Read tree which containers are read only, it is shared with other reads of same document if codec has cache.
+     */
+    JsonNode readFrozenTree(final JsonSource source) throws IOException {
+        JsonTreeCache c = cache;
+        if (c == null) {
+            return parseFrozenTree(source);
+        }
+        return c.get(source, () -> parseFrozenTree(source));
+    }
+
+    private JsonNode parseFrozenTree(JsonSource source) throws IOException {
+        return FreezableNodeFactory.freeze(this.<JsonNode>readValue(source, freezableTreeReader));
+    }
+
+    /**
+     * Serialize value into source, that can be read with this codec later.
+     */
+    JsonSource source(Object value) throws JsonProcessingException {
+        return source(value, writer);
+    }
+
+    JsonSource source(Object value, JavaType type) throws JsonProcessingException {
+        return source(value, writer(type));
+    }
+
+    private JsonSource source(Object value, ObjectWriter w) throws JsonProcessingException {
+        return isBinary() ? JsonSource.of(w.writeValueAsBytes(value), this) : JsonSource.of(w.writeValueAsString(value));
+    }
+
+    ObjectWriter writer() {
+        return writer;
+    }
+
+    JavaType type(Type type) {
+        return typeFactory.constructType(type);
+    }
+
+    ObjectReader reader(JavaType type) {
+        ObjectReader r = readers.get(type);
+        if (r == null) {
+            r = reader.forType(type);
+            ObjectReader prev = readers.putIfAbsent(type, r);
+            if (prev != null) {
+                r = prev;
+            }
+        }
+        return r;
+    }
+
+    ObjectWriter writer(JavaType type) {
+        ObjectWriter w = writers.get(type);
+        if (w == null) {
+            w = writer.forType(type);
+            ObjectWriter prev = writers.putIfAbsent(type, w);
+            if (prev != null) {
+                w = prev;
+            }
+        }
+        return w;
+    }
+
+    private Object writeReplace() {
+        return new Ref(name);
+    }
+
+    private void readObject(ObjectInputStream ois) throws InvalidObjectException {
+        throw new InvalidObjectException("Codec reference expected");
+    }
+
+    private static final class Ref implements Serializable {
+
+        private static final long serialVersionUID = -1270409218232294914L;
+
+        private final String name;
+
+        Ref(String name) {
+            this.name = name;
+        }
+
+        /*
+        Receiving side may not have such codec registered, JSON is still readable by default one.
+         */
+        private Object readResolve() {
+            ReaderWriter codec = JsonCodecs.find(name);
+            return codec == null ? JsonCodecs.defaultCodec() : codec;
+        }
     }
 }
@@ -0,0 +1,187 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Vladislav Zablotsky
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE. 
+ */
+package com.github.jneat.mybatis;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.io.ObjectStreamException;
+
+/**
+ * Serialized form of lazy JSON containers, it keeps single representation of document.
+ * Documents are written as they are stored (UTF-8 text, binary codec or compressed bytes),
+ * only trees without actual source are serialized, by codec of container.
+ * Deserialized containers are lazy again, so serialized caches do not parse documents on each copy.
+ * Layout: version, kind, flags, codec name, form, length-prefixed content.
+ */
+final class SerializedJson implements Externalizable {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final byte VERSION = 1;
+
+    static final byte TREE = 1;
+
+    static final byte NODE_VALUE = 2;
+
+    static final int COMPACT = 1;
+
+    static final int DB_SOURCE = 2;
+
+    static final int LIMIT_EXCEEDED = 4;
+
+    static final int MODIFIED = 8;
+
+    /**
+     * Compressed document is encoded by binary codec, so it can be read by that codec only.
+     */
+    private static final int BINARY_COMPRESSED = 16;
+
+    private static final byte NONE = 0;
+
+    private static final byte TEXT = 1;
+
+    private static final byte BINARY = 2;
+
+    private static final byte COMPRESSED = 3;
+
+    private byte kind;
+
+    private int flags;
+
+    private String codec;
+
+    private byte form;
+
+    private byte[] data;
+
+    /**
+     * Used by deserialization only.
+     */
+    public SerializedJson() {
+    }
+
+    private SerializedJson(byte kind, int flags, ReaderWriter codec, byte form, byte[] data) {
+        this.kind = kind;
+        this.flags = flags;
+        this.codec = codec == null ? "" : codec.name();
+        this.form = form;
+        this.data = data;
+    }
+
+    static SerializedJson of(byte kind, int flags, ReaderWriter codec, JsonSource source) throws IOException {
+        if (source == null) {
+            return new SerializedJson(kind, flags, codec, NONE, null);
+        }
+        if (source instanceof CompressedSource) {
+            int binary = source.isBinary() ? BINARY_COMPRESSED : 0;
+            return new SerializedJson(kind, flags | binary, codec, COMPRESSED, ((CompressedSource)source).binaryForm());
+        }
+        return new SerializedJson(kind, flags, codec, source.isBinary() ? BINARY : TEXT, source.stored());
+    }
+
+    static SerializedJson of(byte kind, int flags, ReaderWriter codec, JsonNode tree) throws IOException {
+        ReaderWriter c = codec == null ? JsonCodecs.defaultCodec() : codec;
+        return new SerializedJson(kind, flags, codec, c.isBinary() ? BINARY : TEXT, c.writer().writeValueAsBytes(tree));
+    }
+
+    @Override
+    public void writeExternal(ObjectOutput out) throws IOException {
+        out.writeByte(VERSION);
+        out.writeByte(kind);
+        out.writeByte(flags);
+        out.writeUTF(codec);
+        out.writeByte(form);
+        if (form != NONE) {
+            out.writeInt(data.length);
+            out.write(data);
+        }
+    }
+
+    @Override
+    public void readExternal(ObjectInput in) throws IOException {
+        byte version = in.readByte();
+        if (version != VERSION) {
+            throw new InvalidObjectException("Unsupported serialized JSON version " + version);
+        }
+        kind = in.readByte();
+        flags = in.readByte();
+        codec = in.readUTF();
+        form = in.readByte();
+        if (form != NONE) {
+            data = new byte[in.readInt()];
+            in.readFully(data);
+        }
+    }
+
+    private Object readResolve() throws ObjectStreamException {
+        // Receiving side may not have such codec registered, JSON text is still readable by default one
+        ReaderWriter c = codec.isEmpty() ? null : JsonCodecs.find(codec);
+        if (c == null) {
+            if (form == BINARY || (flags & BINARY_COMPRESSED) != 0) {
+                throw new InvalidObjectException("JSON codec '" + codec + "' is not registered, binary document can not be read");
+            }
+            c = JsonCodecs.defaultCodec();
+        }
+        JsonTreeModel model = (flags & COMPACT) != 0 ? JsonTreeModel.COMPACT : JsonTreeModel.NODES;
+        JsonSource source;
+        try {
+            source = source(c);
+        } catch (IOException ex) {
+            InvalidObjectException e = new InvalidObjectException("Can not restore JSON document. " + ex.getMessage());
+            e.initCause(ex);
+            throw e;
+        }
+        if (kind == TREE) {
+            TreeNodeLazyWrapper wrapper = new TreeNodeLazyWrapper(source == null ? JsonLimits.EXCEEDED : source, c, model);
+            if ((flags & MODIFIED) != 0) {
+                wrapper.restoredChanged();
+            }
+            return wrapper;
+        }
+        if (kind == NODE_VALUE) {
+            return JsonNodeValue.restore(source, c, model, (flags & DB_SOURCE) != 0, (flags & LIMIT_EXCEEDED) != 0);
+        }
+        throw new InvalidObjectException("Unknown serialized JSON container " + kind);
+    }
+
+    private JsonSource source(ReaderWriter c) throws IOException {
+        switch (form) {
+            case NONE:
+                return null;
+            case TEXT:
+                return JsonSource.of(data);
+            case BINARY:
+                return JsonSource.binary(data, c);
+            case COMPRESSED:
+                return JsonCompression.detect(JsonSource.of(data), c);
+            default:
+                throw new IOException("Unknown form " + form);
+        }
+    }
+}
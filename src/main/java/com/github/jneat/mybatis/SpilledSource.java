@@ -0,0 +1,179 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Vladislav Zablotsky
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE. 
+ */
+package com.github.jneat.mybatis;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectStreamException;
+import java.lang.ref.PhantomReference;
+import java.lang.ref.ReferenceQueue;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Document moved into temporary file by {@link JsonLimitPolicy#SPILL}, it is parsed straight from file.
+ * File is deleted when next file is created after this source was garbage collected.
+ * Serialized form holds document content, as other sources do.
+ */
+final class SpilledSource extends JsonSource {
+
+    private static final long serialVersionUID = -4105436935306315823L;
+
+    private static final ReferenceQueue<SpilledSource> COLLECTED = new ReferenceQueue<>();
+
+    private static final Set<FileRef> FILES = ConcurrentHashMap.newKeySet();
+
+    private final File file;
+
+    private final long size;
+
+    /**
+     * Codec of binary document, null for JSON text.
+     */
+    private final ReaderWriter codec;
+
+    SpilledSource(File file, long size, ReaderWriter codec) {
+        this.file = file;
+        this.size = size;
+        this.codec = codec;
+        FILES.add(new FileRef(this, file));
+    }
+
+    /**
+     * Create new spill file, deleting files of collected sources.
+     *
+     * @param directory Directory or null for default temporary one.
+     */
+    static File newFile(File directory) throws IOException {
+        FileRef ref;
+        while ((ref = (FileRef)COLLECTED.poll()) != null) {
+            FILES.remove(ref);
+            ref.file.delete();
+        }
+        return File.createTempFile("mybatis-json-", ".spill", directory);
+    }
+
+    File file() {
+        return file;
+    }
+
+    @Override
+    boolean isBlank() {
+        return size == 0;
+    }
+
+    @Override
+    boolean isBinary() {
+        return codec != null;
+    }
+
+    /**
+     * Spilled documents may be larger than int range, they are reported as largest possible.
+     */
+    @Override
+    int length() {
+        return (int)Math.min(size, Integer.MAX_VALUE);
+    }
+
+    @Override
+    String text() {
+        return new String(utf8(), StandardCharsets.UTF_8);
+    }
+
+    @Override
+    byte[] utf8() {
+        try {
+            return codec == null ? content() : transcode(parser(codec.factory()), textFactory());
+        } catch (IOException ex) {
+            throw new RuntimeException(ex.getMessage(), ex);
+        }
+    }
+
+    @Override
+    <T> T readValue(ObjectReader reader) throws IOException {
+        if (codec == null) {
+            return textReader(reader).readValue(file);
+        }
+        JsonFactory factory = codec.factory();
+        return (reader.getFactory() == factory ? reader : reader.with(factory)).readValue(file);
+    }
+
+    @Override
+    JsonParser parser(JsonFactory factory) throws IOException {
+        return codec == null ? textFactory(factory).createParser(file) : codec.factory().createParser(file);
+    }
+
+    @Override
+    byte[] stored() throws IOException {
+        return content();
+    }
+
+    @Override
+    byte[] encode(ReaderWriter target) throws IOException {
+        if (codec != null && target.factory().getFormatName().equals(codec.factory().getFormatName())) {
+            return content();
+        }
+        return super.encode(target);
+    }
+
+    /**
+     * Spilled documents are larger than any cache segment, so they are never shared.
+     */
+    @Override
+    Object cacheKey() {
+        return this;
+    }
+
+    private byte[] content() throws IOException {
+        return Files.readAllBytes(file.toPath());
+    }
+
+    private Object writeReplace() throws ObjectStreamException {
+        try {
+            byte[] data = content();
+            return codec == null ? JsonSource.of(data) : JsonSource.of(data, codec);
+        } catch (IOException ex) {
+            InvalidObjectException e = new InvalidObjectException("Can not read spilled JSON document. " + ex.getMessage());
+            e.initCause(ex);
+            throw e;
+        }
+    }
+
+    private static final class FileRef extends PhantomReference<SpilledSource> {
+
+        final File file;
+
+        FileRef(SpilledSource source, File file) {
+            super(source, COLLECTED);
+            this.file = file;
+        }
+    }
+}
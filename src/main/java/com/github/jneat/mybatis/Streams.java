@@ -0,0 +1,78 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Vladislav Zablotsky
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE. 
+ */
+package com.github.jneat.mybatis;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+final class Streams {
+
+    private static final int CHUNK = 8192;
+
+    private Streams() {
+    }
+
+    /**
+     * Read whole stream into byte array and close it. Return null for null stream.
+     */
+    static byte[] readBytes(InputStream in) throws IOException {
+        if (in == null) {
+            return null;
+        }
+        try (InputStream is = in) {
+            Utf8Buffer buf = new Utf8Buffer(CHUNK);
+            byte[] chunk = new byte[CHUNK];
+            int r;
+            while ((r = is.read(chunk)) != -1) {
+                buf.write(chunk, 0, r);
+            }
+            return buf.toByteArray();
+        }
+    }
+
+    /**
+     * Read whole character stream encoding it into UTF-8 on the fly and close it.
+     * Return null for null stream.
+     */
+    static byte[] readUtf8(Reader in) throws IOException {
+        if (in == null) {
+            return null;
+        }
+        try (Reader rd = in) {
+            Utf8Buffer buf = new Utf8Buffer(CHUNK);
+            char[] chunk = new char[CHUNK];
+            try (Writer w = new OutputStreamWriter(buf, StandardCharsets.UTF_8)) {
+                int r;
+                while ((r = rd.read(chunk)) != -1) {
+                    w.write(chunk, 0, r);
+                }
+            }
+            return buf.toByteArray();
+        }
+    }
+}
@@ -29,146 +29,503 @@ import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.core.ObjectCodec;
 import com.fasterxml.jackson.core.TreeNode;
 import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.MissingNode;
 
 import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectStreamException;
 import java.io.Serializable;
 import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.function.Function;
 
 /**
  * Lazy JSON node wrapper, that will create generate real TreeNode after first call to it's methods.
+ * Node type and size are taken from source tokens.
+ * Field, element and pointer lookups of scalars are answered without building the whole tree - source is streamed
+ * and only requested value is read. Scalars are immutable, objects and arrays are always taken from tree,
+ * so changes made in them are kept by this wrapper however many lookups were made before.
+ * When codec has {@link JsonTreeCache} tree is shared with other reads of same document
+ * and copied before any of its containers is returned.
+ * With {@link JsonTreeModel#COMPACT} model document is read into read only tape instead of node tree.
  * Note, that in a case if input JSON string is invalid it may throw runtime exception from any method.
  */
 public class TreeNodeLazyWrapper implements TreeNode, Serializable {
 
-    private static final long serialVersionUID = -5553988352322235606L;
+    // Streams of versions with json string field would be restored without content, so they are rejected
+    private static final long serialVersionUID = 138246006747863064L;
 
-    private final String json;
+    /**
+     * Each lookup scans source again, so after this number of lookups tree is built.
+     */
+    private static final int PARTIAL_LOOKUPS = 4;
+
+    private static final LazyInit<TreeNodeLazyWrapper> LAZY = new LazyInit<>(
+        AtomicReferenceFieldUpdater.newUpdater(TreeNodeLazyWrapper.class, LazyInit.Parse.class, "parse"));
+
+    private static final AtomicReferenceFieldUpdater<TreeNodeLazyWrapper, JsonNode> NODE =
+        AtomicReferenceFieldUpdater.newUpdater(TreeNodeLazyWrapper.class, JsonNode.class, "node");
+
+    private static final AtomicReferenceFieldUpdater<TreeNodeLazyWrapper, TreeNode> COMPACT_TREE =
+        AtomicReferenceFieldUpdater.newUpdater(TreeNodeLazyWrapper.class, TreeNode.class, "compactTree");
+
+    private final JsonSource source;
+
+    private final ReaderWriter codec;
+
+    private final boolean compact;
+
+    private volatile JsonNode node;
+
+    private transient volatile TreeNode compactTree;
+
+    private transient volatile LazyInit.Parse parse;
+
+    /**
+     * Set when container from tree was handed out, so tree may be changed and source is not actual anymore.
+     */
+    private volatile boolean exposed;
+
+    /**
+     * Source is tree which was changed before serialization, so it differs from DB content anyway.
+     */
+    private transient boolean changed;
 
-    private JsonNode node;
+    private transient int lookups;
+
+    /**
+     * Tree is being built by parse executor, lookups wait for it instead of scanning source again.
+     */
+    private transient boolean background;
+
+    private transient JsonToken firstToken;
+
+    private transient Integer size;
 
     TreeNodeLazyWrapper(String json) {
-        this.json = json;
+        this(JsonSource.of(json), JsonCodecs.defaultCodec());
+    }
+
+    TreeNodeLazyWrapper(JsonSource source, ReaderWriter codec) {
+        this(source, codec, JsonTreeModel.NODES);
+    }
+
+    TreeNodeLazyWrapper(JsonSource source, ReaderWriter codec, JsonTreeModel model) {
+        this.source = source;
+        this.codec = codec;
+        this.compact = model == JsonTreeModel.COMPACT;
+        JsonMetricsListener metrics = JsonMetrics.listener();
+        if (metrics != null && source != JsonLimits.EXCEEDED) {
+            metrics.lazyValueCreated(codec().name());
+        }
     }
 
     /**
      * This will return source JSON string passed as argument into constructor.
+     * If wrapper was created from raw bytes, string will be decoded at each call.
      */
     public String getJsonSource() {
-        return this.json;
+        return this.source.text();
+    }
+
+    JsonSource source() {
+        return this.source;
+    }
+
+    /**
+     * Document was dropped by {@link JsonLimitPolicy#MISSING}, wrapper is missing node which can not be written back.
+     */
+    public boolean isLimitExceeded() {
+        return this.source == JsonLimits.EXCEEDED;
+    }
+
+    boolean isMaterialized() {
+        return this.node != null || this.compactTree != null;
+    }
+
+    /**
+     * Return true if content is equal to source, so it can be written into DB as is.
+     */
+    boolean isSourceActual() {
+        return !this.exposed;
+    }
+
+    /**
+     * Check if content differs from source it was read from.
+     * Tree which was never handed out for modification is not modified, otherwise it is compared
+     * with source token by token, without serializing it.
+     *
+     * @throws RuntimeException On JSON parsing errors.
+     */
+    public boolean isModified() throws RuntimeException {
+        if (this.changed) {
+            return true;
+        }
+        if (!this.exposed) {
+            return false;
+        }
+        try {
+            return !JsonContent.equal(JsonContent.parser(source, codec()), tree().traverse());
+        } catch (IOException ex) {
+            throw new RuntimeException(ex.getMessage(), ex);
+        }
+    }
+
+    /**
+     * Called when tree is scheduled to be built by parse executor, so lookups do not depend on its progress.
+     */
+    void parsedInBackground() {
+        this.background = true;
+    }
+
+    /**
+     * Mark wrapper deserialized from changed tree, see {@link SerializedJson}.
+     */
+    void restoredChanged() {
+        this.changed = true;
+    }
+
+    /**
+     * Tree for serialization, it is not exposed for modification.
+     */
+    JsonNode node() {
+        return tree();
+    }
+
+    /**
+     * First token of source, which defines node type, or null when tree is already built.
+     */
+    private JsonToken shape() {
+        if (isMaterialized() || isLimitExceeded()) {
+            return null;
+        }
+        if (firstToken == null) {
+            try {
+                firstToken = codec().firstToken(source);
+            } catch (IOException ex) {
+                throw new RuntimeException(ex.getMessage(), ex);
+            }
+        }
+        return firstToken;
+    }
+
+    private boolean isPartial() {
+        return !background && !isMaterialized() && !isLimitExceeded() && lookups++ < PARTIAL_LOOKUPS;
+    }
+
+    /**
+     * @return Scalar, null if there is no such node or {@link ReaderWriter#CONTAINER} when tree should be used.
+     */
+    private JsonNode lookup(JsonPointer ptr, JsonToken root) {
+        try {
+            return codec().readScalarAt(source, ptr, root);
+        } catch (IOException ex) {
+            throw new RuntimeException(ex.getMessage(), ex);
+        }
+    }
+
+    private static JsonPointer fieldPointer(String name) {
+        return JsonPointer.compile("/" + name.replace("~", "~0").replace("/", "~1"));
+    }
+
+    /**
+     * Lookup in tree, containers are taken from mutable copy when tree is shared by cache.
+     */
+    private TreeNode expose(Function<JsonNode, JsonNode> lookup) {
+        JsonNode n = lookup.apply(tree());
+        if (n != null && n.isContainerNode()) {
+            exposed = true;
+            if (FreezableNodeFactory.isFrozen(n)) {
+                n = lookup.apply(mutableTree());
+            }
+        }
+        return n;
+    }
+
+    private static TreeNode orMissing(JsonNode n) {
+        return n == null ? MissingNode.getInstance() : n;
+    }
+
+    /**
+     * Only one representation is written: source while it is actual, otherwise tree, see {@link SerializedJson}.
+     * Tree of deserialized wrapper is built again on demand. Changed tree becomes source of deserialized wrapper,
+     * which still reports {@link #isModified()}, so its update is not skipped.
+     */
+    private Object writeReplace() throws ObjectStreamException {
+        int flags = compact ? SerializedJson.COMPACT : 0;
+        try {
+            if (isLimitExceeded()) {
+                return SerializedJson.of(SerializedJson.TREE, flags | SerializedJson.LIMIT_EXCEEDED, codec, (JsonSource)null);
+            }
+            if (isModified()) {
+                flags |= SerializedJson.MODIFIED;
+            }
+            return exposed
+                ? SerializedJson.of(SerializedJson.TREE, flags, codec, tree())
+                : SerializedJson.of(SerializedJson.TREE, flags, codec, source);
+        } catch (IOException ex) {
+            InvalidObjectException e = new InvalidObjectException("Can not serialize JSON tree. " + ex.getMessage());
+            e.initCause(ex);
+            throw e;
+        }
+    }
+
+    ReaderWriter codec() {
+        // Wrappers restored where their codec is not registered have no codec
+        return codec == null ? JsonCodecs.defaultCodec() : codec;
     }
 
     private JsonNode tree() {
-        if (this.node == null) {
-            synchronized (this) {
-                if (this.node == null) {
-                    try {
-                        node = ReaderWriter.readTree(json);
-                    } catch (IOException ex) {
-                        throw new RuntimeException(ex.getMessage(), ex);
-                    }
-                }
+        JsonNode n = this.node;
+        if (n != null) {
+            return n;
+        }
+        if (isLimitExceeded()) {
+            return MissingNode.getInstance();
+        }
+        try {
+            return LAZY.get(this, NODE, () -> {
+                ReaderWriter c = codec();
+                // Cached tree is shared with other values, so it is read only until exposed
+                JsonNode tree = c.cache() == null ? c.readTree(source) : c.readFrozenTree(source);
+                materializedNow();
+                return tree;
+            });
+        } catch (IOException ex) {
+            throw new RuntimeException(ex.getMessage(), ex);
+        }
+    }
+
+    /**
+     * Compact tree is read only, so lookups in it do not expose anything.
+     */
+    private TreeNode compactTree() {
+        TreeNode t = this.compactTree;
+        if (t != null) {
+            return t;
+        }
+        if (isLimitExceeded()) {
+            return MissingNode.getInstance();
+        }
+        try {
+            return LAZY.get(this, COMPACT_TREE, () -> {
+                TreeNode tree = codec().readTape(source).root();
+                materializedNow();
+                return tree;
+            });
+        } catch (IOException ex) {
+            throw new RuntimeException(ex.getMessage(), ex);
+        }
+    }
+
+    private TreeNode materialized() {
+        return compact ? compactTree() : tree();
+    }
+
+    /**
+     * Parse source ahead of first access, used by background parsing. Errors are thrown by accessors later.
+     */
+    void preload() {
+        if (source instanceof SpilledSource || isLimitExceeded()) {
+            // Spilled documents are parsed only when they are really needed
+            return;
+        }
+        try {
+            materialized();
+        } catch (RuntimeException ex) {
+            // Accessor will parse source again and report the error
+        }
+    }
+
+    private void materializedNow() {
+        JsonMetricsListener metrics = JsonMetrics.listener();
+        if (metrics != null) {
+            metrics.lazyValueMaterialized(codec().name());
+        }
+    }
+
+    /**
+     * Concurrent callers may copy shared tree at the same time, only one copy is installed and returned to all of them.
+     */
+    private JsonNode mutableTree() {
+        JsonNode n = tree();
+        if (n.isContainerNode() && FreezableNodeFactory.isFrozen(n)) {
+            JsonMetricsListener metrics = JsonMetrics.listener();
+            if (metrics != null) {
+                metrics.deepCopied(codec().name());
             }
+            n = LazyInit.replace(this, NODE, n, n.deepCopy());
         }
-        return this.node;
+        return n;
     }
 
     @Override
     public JsonToken asToken() {
-        return tree().asToken();
+        JsonToken t = shape();
+        return t == null ? materialized().asToken() : t;
     }
 
     @Override
     public JsonParser.NumberType numberType() {
-        return tree().numberType();
+        return materialized().numberType();
     }
 
     @Override
     public int size() {
-        return tree().size();
+        JsonToken t = shape();
+        if (t == null) {
+            return materialized().size();
+        }
+        if (t.isScalarValue()) {
+            return 0;
+        }
+        if (size == null) {
+            try {
+                size = codec().size(source);
+            } catch (IOException ex) {
+                throw new RuntimeException(ex.getMessage(), ex);
+            }
+        }
+        return size;
     }
 
     @Override
     public boolean isValueNode() {
-        return tree().isValueNode();
+        JsonToken t = shape();
+        return t == null ? materialized().isValueNode() : t.isScalarValue();
     }
 
     @Override
     public boolean isContainerNode() {
-        return tree().isContainerNode();
+        JsonToken t = shape();
+        return t == null ? materialized().isContainerNode() : t == JsonToken.START_OBJECT || t == JsonToken.START_ARRAY;
     }
 
     @Override
     public boolean isMissingNode() {
-        return tree().isMissingNode();
+        JsonToken t = shape();
+        return t == null ? materialized().isMissingNode() : false;
     }
 
     @Override
     public boolean isArray() {
-        return tree().isArray();
+        JsonToken t = shape();
+        return t == null ? materialized().isArray() : t == JsonToken.START_ARRAY;
     }
 
     @Override
     public boolean isObject() {
-        return tree().isObject();
+        JsonToken t = shape();
+        return t == null ? materialized().isObject() : t == JsonToken.START_OBJECT;
     }
 
     @Override
     public TreeNode get(String string) {
-        return tree().get(string);
+        if (isPartial()) {
+            JsonNode n = lookup(fieldPointer(string), JsonToken.START_OBJECT);
+            if (n != ReaderWriter.CONTAINER) {
+                return n;
+            }
+        }
+        if (compact) {
+            return compactTree().get(string);
+        }
+        return expose(n -> n.get(string));
     }
 
     @Override
     public TreeNode get(int i) {
-        return tree().get(i);
+        if (isPartial()) {
+            JsonNode n = lookup(JsonPointer.compile("/" + i), JsonToken.START_ARRAY);
+            if (n != ReaderWriter.CONTAINER) {
+                return n;
+            }
+        }
+        if (compact) {
+            return compactTree().get(i);
+        }
+        return expose(n -> n.get(i));
     }
 
     @Override
     public TreeNode path(String string) {
-        return tree().path(string);
+        if (isPartial()) {
+            JsonNode n = lookup(fieldPointer(string), JsonToken.START_OBJECT);
+            if (n != ReaderWriter.CONTAINER) {
+                return orMissing(n);
+            }
+        }
+        if (compact) {
+            return compactTree().path(string);
+        }
+        return expose(n -> n.path(string));
     }
 
     @Override
     public TreeNode path(int i) {
-        return tree().path(i);
+        if (isPartial()) {
+            JsonNode n = lookup(JsonPointer.compile("/" + i), JsonToken.START_ARRAY);
+            if (n != ReaderWriter.CONTAINER) {
+                return orMissing(n);
+            }
+        }
+        if (compact) {
+            return compactTree().path(i);
+        }
+        return expose(n -> n.path(i));
     }
 
     @Override
     public Iterator<String> fieldNames() {
-        return tree().fieldNames();
+        if (compact) {
+            return compactTree().fieldNames();
+        }
+        // Iterator of object node supports removal
+        exposed = true;
+        return mutableTree().fieldNames();
     }
 
     @Override
     public TreeNode at(JsonPointer jp) {
-        return tree().at(jp);
+        if (!jp.matches() && isPartial()) {
+            JsonNode n = lookup(jp, null);
+            if (n != ReaderWriter.CONTAINER) {
+                return orMissing(n);
+            }
+        }
+        if (compact) {
+            return compactTree().at(jp);
+        }
+        return expose(n -> n.at(jp));
     }
 
     @Override
     public TreeNode at(String string) throws IllegalArgumentException {
-        return tree().at(string);
+        return at(JsonPointer.compile(string));
     }
 
     @Override
     public JsonParser traverse() {
-        return tree().traverse();
+        return materialized().traverse();
     }
 
     @Override
     public JsonParser traverse(ObjectCodec oc) {
-        return tree().traverse(oc);
+        return materialized().traverse(oc);
     }
 
     @Override
     public String toString() {
-        return tree().toString();
+        return materialized().toString();
     }
 
     @Override
     public int hashCode() {
-        return tree().hashCode();
+        return materialized().hashCode();
     }
 
     @Override
     public boolean equals(Object o) {
-        return tree().equals(o);
+        return materialized().equals(o);
     }
 }
@@ -29,11 +29,9 @@ import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.MissingNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import org.apache.ibatis.executor.result.ResultMapException;
-import org.apache.ibatis.type.BaseTypeHandler;
 import org.apache.ibatis.type.JdbcType;
 import org.apache.ibatis.type.MappedTypes;
 
-import java.io.IOException;
 import java.sql.CallableStatement;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
@@ -42,47 +40,80 @@ import java.sql.SQLException;
 /**
  * Map JSON column string as TreeNode.
  * Return MissingNode instead of null.
- * Use JSON string representation as intermediate data format.
+ * Documents dropped by {@link JsonLimitPolicy#MISSING} are read as missing node which reports
+ * {@link TreeNodeLazyWrapper#isLimitExceeded()} and can not be written back.
+ * Use JSON string representation as intermediate data format,
+ * or raw UTF-8 bytes depending on {@link JsonReadMode}.
  *
  * @see TreeNode
  */
 @MappedTypes({JsonNode.class, TreeNode.class, ArrayNode.class, ObjectNode.class})
-public class TreeNodeTypeHandler extends BaseTypeHandler<TreeNode> {
+public class TreeNodeTypeHandler extends AbstractJsonTypeHandler<TreeNode> {
+
+    private JsonTreeModel treeModel = JsonTreeModel.NODES;
+
+    public JsonTreeModel getTreeModel() {
+        return treeModel;
+    }
+
+    /**
+     * Set how lazy TreeNode builds document on access. Default is {@link JsonTreeModel#NODES}.
+     */
+    public void setTreeModel(JsonTreeModel treeModel) {
+        if (treeModel == null) {
+            throw new IllegalArgumentException("Tree model can not be null");
+        }
+        this.treeModel = treeModel;
+    }
 
     @Override
     public void setNonNullParameter(PreparedStatement ps, int i, TreeNode parameter, JdbcType jdbcType) throws SQLException {
-        try {
-            ps.setString(i, ReaderWriter.write(parameter));
-        } catch (IOException ex) {
-            throw new RuntimeException(ex.getMessage(), ex);
+        if (parameter instanceof TreeNodeLazyWrapper) {
+            TreeNodeLazyWrapper wrapper = (TreeNodeLazyWrapper)parameter;
+            if (wrapper.isLimitExceeded()) {
+                throw new SQLException("JSON value was dropped because it exceeds limits, it can not be written");
+            }
+            if (wrapper.isSourceActual()) {
+                // Nobody could change it since it was read, so there is no need to serialize it again
+                writeSource(ps, i, wrapper.source());
+            } else {
+                writeTree(ps, i, wrapper.node());
+            }
+        } else {
+            writeTree(ps, i, parameter);
         }
     }
 
     @Override
     public TreeNode getNullableResult(ResultSet rs, String columnName) throws SQLException {
-        String jsonSource = rs.getString(columnName);
-        return fromString(jsonSource);
+        return fromSource(readSource(rs, columnName));
     }
 
     @Override
     public TreeNode getNullableResult(ResultSet rs, int columnIndex) throws SQLException {
-        String jsonSource = rs.getString(columnIndex);
-        return fromString(jsonSource);
+        return fromSource(readSource(rs, columnIndex));
     }
 
     @Override
     public TreeNode getNullableResult(CallableStatement cs, int columnIndex) throws SQLException {
-        String jsonSource = cs.getString(columnIndex);
-        return fromString(jsonSource);
+        return fromSource(readSource(cs, columnIndex));
     }
 
-    private TreeNode fromString(String source) {
-        if (source == null || source.isEmpty()) {
+    private TreeNode fromSource(JsonSource source) {
+        if (source == JsonLimits.EXCEEDED) {
+            // Missing node which remembers that document was dropped, so it is not written back as NULL
+            return new TreeNodeLazyWrapper(source, codec(), treeModel);
+        }
+        if (source == null || source.length() == 0) {
             // This is where we replace null result with empty node
             return MissingNode.getInstance();
         } else {
             // I really hope that source will be valid JSON string  (^_^)
-            return new TreeNodeLazyWrapper(source);
+            TreeNodeLazyWrapper wrapper = new TreeNodeLazyWrapper(source, codec(), treeModel);
+            if (submitParse(wrapper::preload)) {
+                wrapper.parsedInBackground();
+            }
+            return wrapper;
         }
     }
 
@@ -0,0 +1,80 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Vladislav Zablotsky
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE. 
+ */
+package com.github.jneat.mybatis;
+
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * Not synchronized growable byte buffer with direct access to its content.
+ */
+final class Utf8Buffer extends OutputStream {
+
+    private byte[] buf;
+
+    private int size;
+
+    Utf8Buffer(int capacity) {
+        this.buf = new byte[capacity];
+    }
+
+    @Override
+    public void write(int b) {
+        ensure(size + 1);
+        buf[size++] = (byte)b;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+        ensure(size + len);
+        System.arraycopy(b, off, buf, size, len);
+        size += len;
+    }
+
+    private void ensure(int capacity) {
+        if (capacity > buf.length) {
+            buf = Arrays.copyOf(buf, Math.max(capacity, buf.length << 1));
+        }
+    }
+
+    byte[] buffer() {
+        return buf;
+    }
+
+    int size() {
+        return size;
+    }
+
+    int capacity() {
+        return buf.length;
+    }
+
+    void reset() {
+        size = 0;
+    }
+
+    byte[] toByteArray() {
+        return Arrays.copyOf(buf, size);
+    }
+}
@@ -0,0 +1,35 @@
+-- Apply RFC 6902 patch produced by JsonEditTypeHandler to jsonb document.
+-- Only "add", "remove" and "replace" operations are supported, array elements are addressed by index.
+CREATE OR REPLACE FUNCTION jsonb_patch(doc jsonb, patch jsonb) RETURNS jsonb AS $$
+DECLARE
+    op jsonb;
+    path text[];
+BEGIN
+    IF patch IS NULL THEN
+        RETURN doc;
+    END IF;
+    FOR op IN SELECT * FROM jsonb_array_elements(patch) LOOP
+        IF op->>'path' = '' THEN
+            IF op->>'op' = 'remove' THEN
+                doc := NULL;
+            ELSE
+                doc := op->'value';
+            END IF;
+            CONTINUE;
+        END IF;
+        SELECT array_agg(replace(replace(p, '~1', '/'), '~0', '~') ORDER BY n) INTO path
+        FROM unnest(string_to_array(substr(op->>'path', 2), '/')) WITH ORDINALITY AS s(p, n);
+        -- Path "/" addresses top level empty key, string_to_array returns no segments for it
+        path := coalesce(path, ARRAY['']);
+        CASE op->>'op'
+            WHEN 'remove' THEN
+                doc := doc #- path;
+            WHEN 'add', 'replace' THEN
+                doc := jsonb_set(doc, path, op->'value', true);
+            ELSE
+                RAISE EXCEPTION 'Unsupported JSON patch operation: %', op->>'op';
+        END CASE;
+    END LOOP;
+    RETURN doc;
+END;
+$$ LANGUAGE plpgsql IMMUTABLE;
@@ -0,0 +1,108 @@
+package com.github.jneat.mybatis;
+
+import static org.assertj.core.api.Assertions.*;
+
+import com.fasterxml.jackson.core.TreeNode;
+import org.junit.Test;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+public class BackgroundParseTest {
+
+    private final List<Runnable> tasks = new ArrayList<>();
+
+    @Test
+    public void treeNodeParsedByExecutor() throws SQLException {
+        TreeNodeTypeHandler handler = new TreeNodeTypeHandler();
+        handler.setParseExecutor(tasks::add);
+        TreeNodeLazyWrapper wrapper = (TreeNodeLazyWrapper)handler.getResult(JdbcStubs.resultSet("{\"a\": 1}"), 1);
+        handler.getResult(JdbcStubs.resultSet(null), 1);
+        assertThat(tasks).hasSize(1);
+        assertThat(wrapper.isMaterialized()).isFalse();
+
+        tasks.get(0).run();
+        assertThat(wrapper.isMaterialized()).isTrue();
+        assertThat(wrapper.get("a").toString()).isEqualTo("1");
+        assertThat(wrapper.isSourceActual()).isTrue();
+    }
+
+    @Test
+    public void lookupsDoNotDependOnBackgroundProgress() throws SQLException {
+        TreeNodeTypeHandler handler = new TreeNodeTypeHandler();
+        handler.setParseExecutor(tasks::add);
+        TreeNodeLazyWrapper wrapper = (TreeNodeLazyWrapper)handler.getResult(JdbcStubs.resultSet("{\"a\": 1}"), 1);
+
+        // Lookup before scheduled parse ran uses tree as well, without scanning source
+        assertThat(wrapper.get("a").toString()).isEqualTo("1");
+        assertThat(wrapper.isMaterialized()).isTrue();
+        tasks.get(0).run();
+        assertThat(wrapper.get("a").toString()).isEqualTo("1");
+
+        TreeNodeLazyWrapper plain = (TreeNodeLazyWrapper)new TreeNodeTypeHandler().getResult(JdbcStubs.resultSet("{\"a\": 1}"), 1);
+        plain.get("a");
+        assertThat(plain.isMaterialized()).isFalse();
+    }
+
+    @Test
+    public void valuesParsedByExecutor() throws SQLException {
+        JsonNodeValueTypeHandler nodeHandler = new JsonNodeValueTypeHandler();
+        nodeHandler.setParseExecutor(tasks::add);
+        JsonNodeValue node = nodeHandler.getResult(JdbcStubs.resultSet("[1]"), 1);
+        nodeHandler.getResult(JdbcStubs.resultSet(""), 1);
+
+        JsonTypeHandlerTest.DtoValueTypeHandler valueHandler = new JsonTypeHandlerTest.DtoValueTypeHandler();
+        valueHandler.setParseExecutor(tasks::add);
+        JsonValue<JsonTypeHandlerTest.Dto> value = valueHandler.getResult(JdbcStubs.resultSet("{\"name\": \"a\"}"), 1);
+
+        assertThat(tasks).hasSize(2);
+        tasks.forEach(Runnable::run);
+        assertThat(node.hasDbSource()).isTrue();
+        assertThat(node.view().size()).isEqualTo(1);
+        assertThat(value.get().name).isEqualTo("a");
+    }
+
+    @Test
+    public void errorsAreReportedByAccessors() throws SQLException {
+        TreeNodeTypeHandler handler = new TreeNodeTypeHandler();
+        handler.setParseExecutor(tasks::add);
+        TreeNode node = handler.getResult(JdbcStubs.resultSet("{\"a\": "), 1);
+        tasks.get(0).run();
+        assertThat(((TreeNodeLazyWrapper)node).isMaterialized()).isFalse();
+        assertThatThrownBy(node::toString).isInstanceOf(RuntimeException.class);
+    }
+
+    @Test
+    public void rejectedTasksAreParsedLazily() throws SQLException {
+        TreeNodeTypeHandler handler = new TreeNodeTypeHandler();
+        handler.setParseExecutor(task -> {
+            throw new RejectedExecutionException();
+        });
+        TreeNode node = handler.getResult(JdbcStubs.resultSet("{\"a\": 1}"), 1);
+        assertThat(node.toString()).isEqualTo("{\"a\":1}");
+    }
+
+    @Test
+    public void concurrentAccess() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            TreeNodeTypeHandler handler = new TreeNodeTypeHandler();
+            handler.setParseExecutor(executor);
+            List<TreeNode> rows = new ArrayList<>();
+            for (int i = 0; i < 2000; i++) {
+                rows.add(handler.getResult(JdbcStubs.resultSet("{\"id\": " + i + ", \"tags\": [\"x\", \"y\"]}"), 1));
+            }
+            for (int i = 0; i < rows.size(); i++) {
+                assertThat(rows.get(i).toString()).isEqualTo("{\"id\":" + i + ",\"tags\":[\"x\",\"y\"]}");
+            }
+        } finally {
+            executor.shutdown();
+            executor.awaitTermination(10, TimeUnit.SECONDS);
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.github.jneat.mybatis;
+
+import static org.assertj.core.api.Assertions.*;
+
+import com.fasterxml.jackson.core.TreeNode;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.databind.type.TypeFactory;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.type.JdbcType;
+import org.apache.ibatis.type.TypeHandlerRegistry;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Map;
+
+public class BinaryTypeHandlerTest {
+
+    private static final byte[] SMILE_HEADER = {':', ')', '\n'};
+
+    @Test
+    public void smileRoundTrip() throws SQLException {
+        BinaryTreeNodeTypeHandler handler = new BinaryTreeNodeTypeHandler();
+        assertThat(handler.getCodec()).isEqualTo(JsonCodecs.SMILE);
+        ObjectNode node = new ObjectMapper().createObjectNode().put("name", "Grüße");
+        node.putArray("list").add(1).add(2);
+
+        Map<Integer, Object> params = JdbcStubs.params();
+        handler.setParameter(JdbcStubs.preparedStatement(params), 1, node, null);
+        byte[] data = (byte[])params.get(1);
+        assertThat(Arrays.copyOf(data, 3)).isEqualTo(SMILE_HEADER);
+
+        TreeNode read = handler.getResult(JdbcStubs.binaryResultSet(data), "json");
+        assertThat(read.get("name").toString()).isEqualTo("\"Grüße\"");
+        assertThat(read.get("list").size()).isEqualTo(2);
+        assertThat(((TreeNodeLazyWrapper)read).getJsonSource()).isEqualTo("{\"name\":\"Grüße\",\"list\":[1,2]}");
+    }
+
+    @Test
+    public void textDocumentsInBinaryColumn() throws SQLException {
+        BinaryJsonNodeValueTypeHandler handler = new BinaryJsonNodeValueTypeHandler();
+        JsonNodeValue value = handler.getResult(JdbcStubs.binaryResultSet(" {a: 1}".getBytes(StandardCharsets.UTF_8)), 1);
+        assertThat(value.get().get("a").asInt()).isEqualTo(1);
+
+        // Text is rewritten in binary format, binary document is passed as is
+        Map<Integer, Object> params = JdbcStubs.params();
+        handler.setParameter(JdbcStubs.preparedStatement(params), 1, value, null);
+        byte[] data = (byte[])params.get(1);
+        assertThat(Arrays.copyOf(data, 3)).isEqualTo(SMILE_HEADER);
+
+        JsonNodeValue binary = handler.getResult(JdbcStubs.binaryResultSet(data), 1);
+        handler.setParameter(JdbcStubs.preparedStatement(params), 1, binary, null);
+        assertThat(params.get(1)).isSameAs(data);
+        assertThat(binary.get()).isEqualTo(value.get());
+
+        // and text handler writes JSON text
+        new JsonNodeValueTypeHandler().setParameter(JdbcStubs.preparedStatement(params), 1, binary, null);
+        assertThat(params.get(1)).isEqualTo("{\"a\":1}");
+    }
+
+    @Test
+    public void cborPojo() throws SQLException {
+        JsonTypeHandler<JsonTypeHandlerTest.Dto> handler = JsonTypeHandler.of(JsonTypeHandlerTest.Dto.class);
+        handler.setCodec(JsonCodecs.CBOR);
+        assertThat(handler.getReadMode()).isEqualTo(JsonReadMode.BYTES);
+        assertThat(handler.getWriteMode()).isEqualTo(JsonWriteMode.BYTES);
+        assertThatThrownBy(() -> handler.setReadMode(JsonReadMode.STRING)).isInstanceOf(IllegalArgumentException.class);
+
+        JsonTypeHandlerTest.Dto dto = new JsonTypeHandlerTest.Dto();
+        dto.name = "cbor";
+        Map<Integer, Object> params = JdbcStubs.params();
+        handler.setParameter(JdbcStubs.preparedStatement(params), 1, dto, null);
+        assertThat(handler.getResult(JdbcStubs.binaryResultSet((byte[])params.get(1)), 1).name).isEqualTo("cbor");
+    }
+
+    @Test
+    public void textReaderIsShared() {
+        ObjectReader smile = JsonCodecs.get(JsonCodecs.SMILE).reader(TypeFactory.defaultInstance().constructType(JsonNode.class));
+        ObjectReader text = JsonSource.textReader(smile);
+        assertThat(text.getFactory().canHandleBinaryNatively()).isFalse();
+        assertThat(JsonSource.textReader(smile)).isSameAs(text);
+        assertThat(JsonSource.textReader(text)).isSameAs(text);
+    }
+
+    @Test
+    public void notRegisteredByPackageScan() {
+        TypeHandlerRegistry registry = new Configuration().getTypeHandlerRegistry();
+        registry.register(TreeNodeTypeHandler.class);
+        registry.register(BinaryTreeNodeTypeHandler.class);
+        registry.register(BinaryJsonNodeValueTypeHandler.class);
+
+        // BLOB columns with JSON text keep text handler
+        assertThat(registry.getTypeHandler(JsonNode.class)).isExactlyInstanceOf(TreeNodeTypeHandler.class);
+        assertThat(registry.getTypeHandler(JsonNode.class, JdbcType.BLOB)).isExactlyInstanceOf(TreeNodeTypeHandler.class);
+        assertThat(registry.hasTypeHandler(JsonNodeValue.class)).isFalse();
+
+        registry.register(JsonNode.class, JdbcType.BLOB, BinaryTreeNodeTypeHandler.class);
+        assertThat(registry.getTypeHandler(JsonNode.class, JdbcType.BLOB)).isExactlyInstanceOf(BinaryTreeNodeTypeHandler.class);
+        assertThat(registry.getTypeHandler(JsonNode.class, JdbcType.VARCHAR)).isExactlyInstanceOf(TreeNodeTypeHandler.class);
+    }
+}
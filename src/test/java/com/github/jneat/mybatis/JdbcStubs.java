@@ -0,0 +1,113 @@
+package com.github.jneat.mybatis;
+
+import java.io.ByteArrayInputStream;
+import java.io.StringReader;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Minimal in-memory JDBC objects for handler tests without database.
+ */
+final class JdbcStubs {
+
+    private JdbcStubs() {
+    }
+
+    /**
+     * ResultSet with single row and single column "json" (index 1) with given value.
+     */
+    static ResultSet resultSet(final String json) {
+        return resultSet(json, json == null ? null : json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * ResultSet with single binary column, string accessors are not supported.
+     */
+    static ResultSet binaryResultSet(final byte[] data) {
+        return resultSet(null, data);
+    }
+
+    private static ResultSet resultSet(final String json, final byte[] bytes) {
+        return (ResultSet)Proxy.newProxyInstance(JdbcStubs.class.getClassLoader(), new Class<?>[]{ResultSet.class},
+            (proxy, method, args) -> {
+                if (json == null && bytes != null && (method.getName().equals("getString") || method.getName().equals("getCharacterStream"))) {
+                    throw new UnsupportedOperationException(method.getName());
+                }
+                switch (method.getName()) {
+                    case "getString":
+                        return json;
+                    case "getBytes":
+                        return bytes;
+                    case "getBinaryStream":
+                        return bytes == null ? null : new ByteArrayInputStream(bytes);
+                    case "getCharacterStream":
+                        return json == null ? null : new StringReader(json);
+                    case "wasNull":
+                        return bytes == null;
+                    default:
+                        throw new UnsupportedOperationException(method.getName());
+                }
+            });
+    }
+
+    /**
+     * PreparedStatement that remembers values passed into set* methods by parameter index.
+     */
+    static PreparedStatement preparedStatement(final Map<Integer, Object> params) {
+        return preparedStatement(params, "Stub");
+    }
+
+    /**
+     * Same as {@link #preparedStatement(Map)}, connection metadata reports given database product name.
+     * Name of the last called set* method is stored by negative parameter index.
+     */
+    static PreparedStatement preparedStatement(final Map<Integer, Object> params, final String databaseProductName) {
+        final DatabaseMetaData meta = (DatabaseMetaData)Proxy.newProxyInstance(JdbcStubs.class.getClassLoader(), new Class<?>[]{DatabaseMetaData.class},
+            (proxy, method, args) -> {
+                if (method.getName().equals("getDatabaseProductName")) {
+                    return databaseProductName;
+                }
+                throw new UnsupportedOperationException(method.getName());
+            });
+        final Connection con = (Connection)Proxy.newProxyInstance(JdbcStubs.class.getClassLoader(), new Class<?>[]{Connection.class},
+            (proxy, method, args) -> {
+                if (method.getName().equals("getMetaData")) {
+                    return meta;
+                }
+                if (method.getName().equals("hashCode")) {
+                    return System.identityHashCode(proxy);
+                }
+                if (method.getName().equals("equals")) {
+                    return proxy == args[0];
+                }
+                throw new UnsupportedOperationException(method.getName());
+            });
+        return (PreparedStatement)Proxy.newProxyInstance(JdbcStubs.class.getClassLoader(), new Class<?>[]{PreparedStatement.class},
+            (proxy, method, args) -> {
+                if (method.getName().equals("getConnection")) {
+                    return con;
+                }
+                if (method.getName().equals("setNull")) {
+                    params.put((Integer)args[0], null);
+                    params.put(-(Integer)args[0], method.getName());
+                    return null;
+                }
+                if (method.getName().startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer) {
+                    params.put((Integer)args[0], args[1]);
+                    params.put(-(Integer)args[0], method.getName());
+                    return null;
+                }
+                throw new UnsupportedOperationException(method.getName());
+            });
+    }
+
+    static Map<Integer, Object> params() {
+        return new HashMap<>();
+    }
+}
@@ -0,0 +1,97 @@
+package com.github.jneat.mybatis;
+
+import static org.assertj.core.api.Assertions.*;
+
+import com.fasterxml.jackson.core.TreeNode;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import org.apache.ibatis.builder.xml.XMLConfigBuilder;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.StringReader;
+import java.sql.SQLException;
+import java.util.Properties;
+
+public class JsonCodecsTest {
+
+    @Test
+    public void builtInCodecs() throws SQLException {
+        TreeNodeTypeHandler handler = new TreeNodeTypeHandler();
+        assertThat(handler.getCodec()).isEqualTo(JsonCodecs.DEFAULT);
+        assertThat(handler.getResult(JdbcStubs.resultSet("{a: 'b'}"), 1).get("a").toString()).isEqualTo("\"b\"");
+
+        handler.setCodec(JsonCodecs.STRICT);
+        TreeNode node = handler.getResult(JdbcStubs.resultSet("{a: 'b'}"), 1);
+        assertThatThrownBy(node::size).isInstanceOf(RuntimeException.class);
+
+        assertThatThrownBy(() -> handler.setCodec("unknown")).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void configureFromProperties() throws SQLException {
+        Properties props = new Properties();
+        props.setProperty("test-quotes.features", "ALLOW_SINGLE_QUOTES, -FAIL_ON_UNKNOWN_PROPERTIES");
+        props.setProperty("test-quotes.other", "ignored");
+        JsonCodecs.configure(props);
+        assertThat(JsonCodecs.isRegistered("test-quotes")).isTrue();
+
+        JsonTypeHandler<JsonTypeHandlerTest.Dto> handler = JsonTypeHandler.of(JsonTypeHandlerTest.Dto.class);
+        handler.setCodec("test-quotes");
+        assertThat(handler.getResult(JdbcStubs.resultSet("{'name': 'a', 'unknown': 1}"), 1).name).isEqualTo("a");
+
+        props.setProperty("test-wrong.features", "NO_SUCH_FEATURE");
+        assertThatThrownBy(() -> JsonCodecs.configure(props)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    public static class FailingModule extends SimpleModule {
+
+        private static final long serialVersionUID = 1L;
+
+        public FailingModule() {
+            throw new IllegalStateException("module failed");
+        }
+    }
+
+    @Test
+    public void configureModules() {
+        Properties props = new Properties();
+        props.setProperty("test-modules.modules", RawJsonModule.class.getName());
+        JsonCodecs.configure(props);
+        assertThat(JsonCodecs.isRegistered("test-modules")).isTrue();
+
+        props.setProperty("test-modules.modules", FailingModule.class.getName());
+        assertThatThrownBy(() -> JsonCodecs.configure(props)).isInstanceOf(IllegalArgumentException.class)
+            .hasMessageContaining(FailingModule.class.getName());
+    }
+
+    @Test
+    public void configureWithPlugin() {
+        String xml = "<?xml version=\"1.0\" encoding=\"UTF-8\" ?>"
+            + "<!DOCTYPE configuration PUBLIC \"-//mybatis.org//DTD Config 3.0//EN\" \"http://mybatis.org/dtd/mybatis-3-config.dtd\">"
+            + "<configuration><plugins><plugin interceptor=\"com.github.jneat.mybatis.JsonCodecsPlugin\">"
+            + "<property name=\"test-plugin.features\" value=\"ALLOW_COMMENTS\"/>"
+            + "</plugin></plugins></configuration>";
+        new XMLConfigBuilder(new StringReader(xml)).parse();
+        assertThat(JsonCodecs.isRegistered("test-plugin")).isTrue();
+    }
+
+    @Test
+    public void serializeCodecByName() throws SQLException, IOException, ClassNotFoundException {
+        JsonNodeValueTypeHandler handler = new JsonNodeValueTypeHandler();
+        handler.setCodec(JsonCodecs.STRICT);
+        JsonNodeValue value = handler.getResult(JdbcStubs.resultSet("{\"a\": 1}"), 1);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream oos = new ObjectOutputStream(bytes)) {
+            oos.writeObject(value);
+        }
+        try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            JsonNodeValue copy = (JsonNodeValue)ois.readObject();
+            assertThat(copy.get().get("a").asInt()).isEqualTo(1);
+        }
+    }
+}
@@ -0,0 +1,229 @@
+package com.github.jneat.mybatis;
+
+import static org.assertj.core.api.Assertions.*;
+
+import com.fasterxml.jackson.core.TreeNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.apache.ibatis.executor.result.ResultMapException;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Map;
+
+public class JsonCompressionTest {
+
+    private static final byte[] HEADER = {0, 'J', 'Z', 7, 'd', 'e', 'f', 'l', 'a', 't', 'e'};
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    private ObjectNode document() {
+        ObjectNode doc = mapper.createObjectNode().put("name", "файл 😀");
+        ArrayNode items = doc.putArray("items");
+        for (int i = 0; i < 200; i++) {
+            items.addObject().put("id", i).put("title", "Item number " + i);
+        }
+        return doc;
+    }
+
+    @Test
+    public void roundTrip() throws SQLException, IOException {
+        ObjectNode doc = document();
+        for (JsonWriteMode mode : Arrays.asList(JsonWriteMode.STRING, JsonWriteMode.CHARACTER_STREAM, JsonWriteMode.BYTES, JsonWriteMode.BINARY_STREAM)) {
+            TreeNodeTypeHandler handler = new TreeNodeTypeHandler();
+            handler.setWriteMode(mode);
+            handler.setCompression(JsonCompression.DEFLATE);
+            Object stored = bind(handler, doc);
+            int plain = mapper.writeValueAsBytes(doc).length;
+
+            // Plain handler reads compressed documents as well
+            TreeNode read;
+            if (stored instanceof String) {
+                assertThat((String)stored).startsWith("~deflate:");
+                assertThat(((String)stored).length()).isLessThan(plain / 2);
+                read = new TreeNodeTypeHandler().getResult(JdbcStubs.resultSet((String)stored), 1);
+            } else {
+                byte[] data = (byte[])stored;
+                assertThat(Arrays.copyOf(data, HEADER.length)).isEqualTo(HEADER);
+                assertThat(data.length).isLessThan(plain / 2);
+                TreeNodeTypeHandler reader = new TreeNodeTypeHandler();
+                reader.setReadMode(JsonReadMode.BINARY_STREAM);
+                read = reader.getResult(JdbcStubs.binaryResultSet(data), 1);
+            }
+            assertThat(read.size()).isEqualTo(2);
+            assertThat(read.toString()).isEqualTo(doc.toString());
+        }
+    }
+
+    @Test
+    public void threshold() throws SQLException {
+        JsonNodeValueTypeHandler handler = new JsonNodeValueTypeHandler();
+        handler.setCompression(JsonCompression.DEFLATE);
+        assertThat(bind(handler, JsonNodeValue.from("{\"a\": 1}"))).isEqualTo("{\"a\":1}");
+        handler.setCompressionThreshold(0);
+        assertThat((String)bind(handler, JsonNodeValue.from("{\"a\": 1}"))).startsWith("~deflate:");
+    }
+
+    @Test
+    public void mixedRows() throws SQLException, IOException {
+        JsonNodeValueTypeHandler handler = new JsonNodeValueTypeHandler();
+        handler.setReadMode(JsonReadMode.BYTES);
+        handler.setWriteMode(JsonWriteMode.BYTES);
+        handler.setCompression(JsonCompression.DEFLATE);
+        byte[] plain = mapper.writeValueAsBytes(document());
+
+        // Unchanged plain document is compressed when it is written back
+        JsonNodeValue value = handler.getResult(JdbcStubs.binaryResultSet(plain), 1);
+        byte[] compressed = (byte[])bind(handler, value);
+        assertThat(Arrays.copyOf(compressed, HEADER.length)).isEqualTo(HEADER);
+
+        // and compressed one is written as it is stored
+        JsonNodeValue read = handler.getResult(JdbcStubs.binaryResultSet(compressed), 1);
+        assertThat(bind(handler, read)).isSameAs(compressed);
+        assertThat(read.get()).isEqualTo(value.get());
+
+        // Handler without compression writes it decompressed, in text mode
+        assertThat(bind(new JsonNodeValueTypeHandler(), read)).isEqualTo(new String(plain, StandardCharsets.UTF_8));
+
+        // Same document stored as text is converted into binary form
+        TreeNodeTypeHandler textHandler = new TreeNodeTypeHandler();
+        textHandler.setCompression(JsonCompression.DEFLATE);
+        String text = (String)bind(textHandler, document());
+        JsonNodeValue fromText = handler.getResult(JdbcStubs.resultSet(text), 1);
+        byte[] binary = (byte[])bind(handler, fromText);
+        assertThat(handler.getResult(JdbcStubs.binaryResultSet(binary), 1).get()).isEqualTo(value.get());
+    }
+
+    @Test
+    public void mappedObjects() throws SQLException {
+        JsonTypeHandlerTest.DtoValueTypeHandler handler = new JsonTypeHandlerTest.DtoValueTypeHandler();
+        handler.setCompression(JsonCompression.DEFLATE);
+        handler.setCompressionThreshold(0);
+        JsonTypeHandlerTest.Dto dto = new JsonTypeHandlerTest.Dto();
+        dto.name = "compressed";
+        String stored = (String)bind(handler, JsonValue.of(dto));
+        assertThat(stored).startsWith("~deflate:");
+        assertThat(handler.getResult(JdbcStubs.resultSet(stored), 1).get().name).isEqualTo("compressed");
+    }
+
+    @Test
+    public void smile() throws SQLException {
+        BinaryJsonNodeValueTypeHandler handler = new BinaryJsonNodeValueTypeHandler();
+        handler.setCompression(JsonCompression.DEFLATE);
+        handler.setCompressionThreshold(0);
+        byte[] stored = (byte[])bind(handler, JsonNodeValue.from(document()));
+        assertThat(Arrays.copyOf(stored, HEADER.length)).isEqualTo(HEADER);
+        JsonNodeValue read = new BinaryJsonNodeValueTypeHandler().getResult(JdbcStubs.binaryResultSet(stored), 1);
+        assertThat(read.get()).isEqualTo(document());
+    }
+
+    @Test
+    public void limitsCheckContent() throws SQLException {
+        TreeNodeTypeHandler writer = new TreeNodeTypeHandler();
+        writer.setCompression(JsonCompression.DEFLATE);
+        String stored = (String)bind(writer, document());
+        for (JsonReadMode mode : JsonReadMode.values()) {
+            TreeNodeTypeHandler handler = new TreeNodeTypeHandler();
+            handler.setReadMode(mode);
+            handler.setLimits(JsonLimits.NONE.withMaxElements(100));
+            assertThatThrownBy(() -> handler.getResult(JdbcStubs.resultSet(stored), 1))
+                .isInstanceOf(ResultMapException.class)
+                .hasMessageContaining("has more than 100 elements");
+        }
+    }
+
+    @Test
+    public void lengthLimitCheckedAfterDecompression() throws SQLException {
+        char[] filler = new char[200000];
+        Arrays.fill(filler, 'x');
+        TreeNodeTypeHandler writer = new TreeNodeTypeHandler();
+        writer.setCompression(JsonCompression.DEFLATE);
+        String stored = (String)bind(writer, JsonNodeValue.from("{\"a\": \"" + new String(filler) + "\"}").get());
+        assertThat(stored.length()).isLessThan(10000);
+
+        for (JsonReadMode mode : JsonReadMode.values()) {
+            TreeNodeTypeHandler handler = new TreeNodeTypeHandler();
+            handler.setReadMode(mode);
+            handler.setLimits(JsonLimits.NONE.withMaxLength(10000));
+            assertThatThrownBy(() -> handler.getResult(JdbcStubs.resultSet(stored), 1))
+                .isInstanceOf(ResultMapException.class)
+                .hasMessageContaining("is longer than 10000");
+
+            handler.setLimits(JsonLimits.NONE.withMaxLength(10000).withPolicy(JsonLimitPolicy.MISSING));
+            assertThat(((TreeNodeLazyWrapper)handler.getResult(JdbcStubs.resultSet(stored), 1)).isLimitExceeded()).isTrue();
+
+            // Document within limit keeps compressed form
+            handler.setLimits(JsonLimits.NONE.withMaxLength(300000));
+            assertThat(((TreeNodeLazyWrapper)handler.getResult(JdbcStubs.resultSet(stored), 1)).source())
+                .isInstanceOf(CompressedSource.class);
+        }
+    }
+
+    @Test
+    public void validation() {
+        TreeNodeTypeHandler handler = new TreeNodeTypeHandler();
+        assertThatThrownBy(() -> handler.setCompression("lz4")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> handler.setCompressionThreshold(-1)).isInstanceOf(IllegalArgumentException.class);
+        handler.setCompression(JsonCompression.DEFLATE);
+        assertThatThrownBy(() -> handler.setWriteMode(JsonWriteMode.AUTO)).isInstanceOf(IllegalArgumentException.class);
+        handler.setCompression(null);
+        handler.setWriteMode(JsonWriteMode.AUTO);
+        assertThatThrownBy(() -> handler.setCompression(JsonCompression.DEFLATE)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> JsonCompression.register(new NamedCompressor("a:b")))
+            .isInstanceOf(IllegalArgumentException.class);
+
+        assertThatThrownBy(() -> new TreeNodeTypeHandler().getResult(JdbcStubs.resultSet("~lz4:AAAA"), 1))
+            .isInstanceOf(ResultMapException.class)
+            .hasMessageContaining("Unknown JSON compression 'lz4'");
+    }
+
+    static Object bind(AbstractJsonTypeHandler<?> handler, Object value) throws SQLException {
+        Map<Integer, Object> params = JdbcStubs.params();
+        @SuppressWarnings("unchecked")
+        AbstractJsonTypeHandler<Object> h = (AbstractJsonTypeHandler<Object>)handler;
+        h.setNonNullParameter(JdbcStubs.preparedStatement(params), 1, value, null);
+        Object v = params.get(1);
+        try {
+            if (v instanceof Reader) {
+                return new String(Streams.readUtf8((Reader)v), StandardCharsets.UTF_8);
+            }
+            if (v instanceof InputStream) {
+                return Streams.readBytes((InputStream)v);
+            }
+        } catch (IOException ex) {
+            throw new SQLException(ex);
+        }
+        return v;
+    }
+
+    private static final class NamedCompressor implements JsonCompressor {
+
+        private final String name;
+
+        NamedCompressor(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public String name() {
+            return name;
+        }
+
+        @Override
+        public OutputStream compress(OutputStream out) {
+            return out;
+        }
+
+        @Override
+        public InputStream decompress(InputStream in) {
+            return in;
+        }
+    }
+}
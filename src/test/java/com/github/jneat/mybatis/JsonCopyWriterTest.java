@@ -0,0 +1,89 @@
+package com.github.jneat.mybatis;
+
+import static org.assertj.core.api.Assertions.*;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Collections;
+
+public class JsonCopyWriterTest {
+
+    private static final String DOC = "{\"text\": \"tab\\tquote\\\" back\\\\slash\", \"uni\": \"é€\"}";
+
+    private static byte[] rows(JsonCopyWriter.Format format) throws IOException, SQLException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        TreeNodeTypeHandler handler = new TreeNodeTypeHandler();
+        JsonTypeHandlerTest.Dto dto = new JsonTypeHandlerTest.Dto();
+        dto.name = "line\nbreak";
+        dto.list = Arrays.asList(1, 2);
+        byte[] smile = new ObjectMapper(new SmileFactory()).writeValueAsBytes(Collections.singletonMap("a", 1));
+        ReaderWriter smileCodec = JsonCodecs.get(JsonCodecs.SMILE);
+
+        try (JsonCopyWriter w = new JsonCopyWriter(out, format, JsonCodecs.DEFAULT)) {
+            w.writeText(1).writeJson(new ObjectMapper().readTree(DOC)).writeText("plain\t\"text\"\\ 😀").endRow();
+            w.writeText(2).writeJson(JsonNodeValue.fromDb(JsonSource.of("{ \"raw\":\n  \"a\\\\b\" }"), JsonCodecs.defaultCodec())).writeNull().endRow();
+            w.writeText(3).writeJson(handler.getResult(JdbcStubs.resultSet(DOC), 1)).writeText("").endRow();
+            w.writeText(4).writeJson(JsonValue.of(dto)).writeJson(JsonNodeValue.EMPTY).endRow();
+            w.writeText(5).writeJson(JsonNodeValue.fromDb(JsonSource.of(smile, smileCodec), smileCodec)).writeJson("str").endRow();
+            assertThat(w.getRowCount()).isEqualTo(5);
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] golden(String name) throws IOException {
+        try (InputStream in = JsonCopyWriterTest.class.getResourceAsStream(name)) {
+            return Streams.readBytes(in);
+        }
+    }
+
+    @Test
+    public void textFormat() throws IOException, SQLException {
+        assertThat(new String(rows(JsonCopyWriter.Format.TEXT), StandardCharsets.UTF_8))
+            .isEqualTo(new String(golden("copy-text.txt"), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void csvFormat() throws IOException, SQLException {
+        assertThat(new String(rows(JsonCopyWriter.Format.CSV), StandardCharsets.UTF_8))
+            .isEqualTo(new String(golden("copy-csv.csv"), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void largeRowsAreBuffered() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 5000; i++) {
+            sb.append("é\\");
+        }
+        try (JsonCopyWriter w = new JsonCopyWriter(out)) {
+            w.writeText(sb).writeJson(Collections.singletonList(sb.toString())).endRow();
+        }
+        String expected = sb.toString().replace("\\", "\\\\");
+        assertThat(new String(out.toByteArray(), StandardCharsets.UTF_8))
+            .isEqualTo(expected + "\t[\"" + expected.replace("\\\\", "\\\\\\\\") + "\"]\n");
+    }
+
+    @Test
+    public void binaryCodecsAreRejected() {
+        assertThatThrownBy(() -> new JsonCopyWriter(new ByteArrayOutputStream(), JsonCopyWriter.Format.TEXT, JsonCodecs.SMILE))
+            .isInstanceOf(IllegalArgumentException.class);
+
+        // COPY is not started for rejected codec
+        Connection con = (Connection)Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Connection.class},
+            (proxy, method, args) -> {
+                throw new AssertionError(method.getName());
+            });
+        assertThatThrownBy(() -> JsonCopyWriter.postgres(con, "COPY t FROM STDIN", JsonCopyWriter.Format.TEXT, JsonCodecs.SMILE))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+}
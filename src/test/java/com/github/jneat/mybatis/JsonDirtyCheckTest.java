@@ -0,0 +1,131 @@
+package com.github.jneat.mybatis;
+
+import static org.assertj.core.api.Assertions.*;
+
+import com.fasterxml.jackson.core.TreeNode;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.apache.ibatis.builder.StaticSqlSource;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.ParameterMapping;
+import org.apache.ibatis.mapping.SqlCommandType;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.session.Configuration;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+public class JsonDirtyCheckTest {
+
+    private static final String DOC = "{\"a\": 1.50, \"big\": 123456789012345678901234567890, \"list\": [\"x\", {\"y\": null}], \"ok\": true}";
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @Test
+    public void content() throws IOException {
+        ReaderWriter codec = JsonCodecs.defaultCodec();
+        assertThat(equal(DOC, DOC.replace(" ", "\n  ").replace("1.50", "1.5"))).isTrue();
+        assertThat(JsonContent.equal(JsonContent.parser(JsonSource.of(DOC), codec), mapper.readTree(DOC).traverse())).isTrue();
+        assertThat(equal(DOC, DOC.replace("\"x\"", "\"z\""))).isFalse();
+        assertThat(equal("{\"a\": \"1\"}", "{\"a\": 1}")).isFalse();
+        assertThat(equal("[1, 2]", "[1, 2, 3]")).isFalse();
+        assertThat(equal("123456789012345678901234567890", "123456789012345678901234567891")).isFalse();
+
+        // Decimal trees are compared exactly, beyond double precision
+        ObjectMapper decimals = new ObjectMapper().enable(DeserializationFeature.USE_BIG_DECIMAL_FOR_FLOATS);
+        JsonNode tree = decimals.readTree("[0.10000000000000000001]");
+        assertThat(JsonContent.equal(JsonContent.parser(JsonSource.of("[0.1]"), codec), tree.traverse())).isFalse();
+        assertThat(JsonContent.equal(JsonContent.parser(JsonSource.of("[0.100000000000000000010]"), codec), tree.traverse())).isTrue();
+    }
+
+    private static boolean equal(String a, String b) throws IOException {
+        ReaderWriter codec = JsonCodecs.defaultCodec();
+        return JsonContent.equal(JsonContent.parser(JsonSource.of(a), codec), JsonContent.parser(JsonSource.of(b), codec));
+    }
+
+    @Test
+    public void lazyWrapper() throws SQLException {
+        TreeNodeTypeHandler handler = new TreeNodeTypeHandler();
+        TreeNode tree = handler.getResult(JdbcStubs.resultSet(DOC), 1);
+        TreeNodeLazyWrapper wrapper = (TreeNodeLazyWrapper)tree;
+        assertThat(wrapper.isModified()).isFalse();
+
+        // Exposed, but not changed
+        tree.fieldNames();
+        ArrayNode list = (ArrayNode)tree.path("list");
+        assertThat(wrapper.isSourceActual()).isFalse();
+        assertThat(wrapper.isModified()).isFalse();
+
+        list.add(1);
+        assertThat(wrapper.isModified()).isTrue();
+        list.remove(2);
+        assertThat(wrapper.isModified()).isFalse();
+    }
+
+    @Test
+    public void nodeValue() throws SQLException, IOException {
+        JsonNodeValue db = new JsonNodeValueTypeHandler().getResult(JdbcStubs.resultSet(DOC), 1);
+        assertThat(db.isModified()).isFalse();
+        JsonNode copy = db.get();
+        JsonNodeValue same = JsonNodeValue.from(copy);
+        assertThat(same.isModified()).isTrue();
+        assertThat(db.sameContent(same)).isTrue();
+        ((ObjectNode)copy).put("ok", false);
+        assertThat(db.sameContent(same)).isFalse();
+        assertThat(db.sameContent(JsonNodeValue.EMPTY)).isFalse();
+        assertThat(JsonNodeValue.EMPTY.sameContent(null)).isTrue();
+    }
+
+    @Test
+    public void skipUnchangedUpdates() throws Throwable {
+        Configuration configuration = new Configuration();
+        MappedStatement update = statement(configuration, "Docs.updateJson", SqlCommandType.UPDATE);
+        MappedStatement other = statement(configuration, "Docs.updateAll", SqlCommandType.UPDATE);
+        JsonDirtyCheckPlugin plugin = new JsonDirtyCheckPlugin();
+        Properties properties = new Properties();
+        properties.setProperty("statements", ".*Json");
+        plugin.setProperties(properties);
+
+        TreeNode tree = new TreeNodeTypeHandler().getResult(JdbcStubs.resultSet(DOC), 1);
+        Map<String, Object> params = new HashMap<>();
+        params.put("id", 1);
+        params.put("doc", tree);
+        params.put("value", new JsonNodeValueTypeHandler().getResult(JdbcStubs.resultSet(DOC), 1));
+        assertThat(plugin.intercept(invocation(update, params))).isEqualTo(0);
+        assertThat(plugin.intercept(invocation(other, params))).isEqualTo(1);
+
+        tree.fieldNames();
+        ((ObjectNode)tree.path("list").get(1)).put("y", 2);
+        assertThat(plugin.intercept(invocation(update, params))).isEqualTo(1);
+
+        // Statement without JSON parameters is never skipped
+        params.put("doc", 1);
+        params.put("value", 2);
+        assertThat(plugin.intercept(invocation(update, params))).isEqualTo(1);
+    }
+
+    private static MappedStatement statement(Configuration configuration, String id, SqlCommandType type) {
+        StaticSqlSource sql = new StaticSqlSource(configuration, "UPDATE docs SET doc = ?, value = ? WHERE id = ?", Arrays.asList(
+            new ParameterMapping.Builder(configuration, "doc", Object.class).build(),
+            new ParameterMapping.Builder(configuration, "value", Object.class).build(),
+            new ParameterMapping.Builder(configuration, "id", Object.class).build()));
+        return new MappedStatement.Builder(configuration, id, sql, type).build();
+    }
+
+    private static Invocation invocation(MappedStatement ms, Object parameter) throws NoSuchMethodException {
+        Executor executor = (Executor)Proxy.newProxyInstance(JsonDirtyCheckTest.class.getClassLoader(), new Class<?>[]{Executor.class},
+            (proxy, method, args) -> 1);
+        return new Invocation(executor, Executor.class.getMethod("update", MappedStatement.class, Object.class),
+            new Object[]{ms, parameter});
+    }
+}
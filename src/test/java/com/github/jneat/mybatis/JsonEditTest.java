@@ -0,0 +1,112 @@
+package com.github.jneat.mybatis;
+
+import static org.assertj.core.api.Assertions.*;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.sql.SQLException;
+import java.util.Map;
+
+public class JsonEditTest {
+
+    private static final String DOC = "{\"name\": \"doc\", \"a/b\": 1, \"tags\": [\"x\", \"y\", \"z\"], \"ui\": {\"theme\": \"light\"}}";
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @Test
+    public void diff() throws IOException {
+        JsonNode source = mapper.readTree(DOC);
+        JsonNode target = mapper.readTree("{\"name\": \"doc\", \"tags\": [\"x\", \"q\"], \"ui\": {\"theme\": \"dark\", \"~\": true}}");
+        assertThat(JsonDiff.diff(source, target).toString()).isEqualTo("["
+            + "{\"op\":\"remove\",\"path\":\"/a~1b\"},"
+            + "{\"op\":\"replace\",\"path\":\"/tags/1\",\"value\":\"q\"},"
+            + "{\"op\":\"remove\",\"path\":\"/tags/2\"},"
+            + "{\"op\":\"replace\",\"path\":\"/ui/theme\",\"value\":\"dark\"},"
+            + "{\"op\":\"add\",\"path\":\"/ui/~0\",\"value\":true}]");
+
+        assertThat(JsonDiff.diff(mapper.readTree("[1]"), mapper.readTree("[1, 2, 3]")).toString())
+            .isEqualTo("[{\"op\":\"add\",\"path\":\"/1\",\"value\":2},{\"op\":\"add\",\"path\":\"/2\",\"value\":3}]");
+        assertThat(JsonDiff.diff(mapper.readTree("[1]"), mapper.readTree("{}")).toString())
+            .isEqualTo("[{\"op\":\"replace\",\"path\":\"\",\"value\":{}}]");
+        assertThat(JsonDiff.diff(source, null).toString()).isEqualTo("[{\"op\":\"remove\",\"path\":\"\"}]");
+        assertThat(JsonDiff.diff(null, source).toString()).startsWith("[{\"op\":\"add\",\"path\":\"\",");
+        assertThat(JsonDiff.diff(null, null).size()).isEqualTo(0);
+        // Empty key is addressed by "/", patch function maps it to single empty path segment
+        assertThat(JsonDiff.diff(mapper.readTree("{\"\": 1, \"a\": {\"\": 2}}"), mapper.readTree("{\"\": 3, \"a\": {}}")).toString())
+            .isEqualTo("[{\"op\":\"replace\",\"path\":\"/\",\"value\":3},{\"op\":\"remove\",\"path\":\"/a/\"}]");
+        assertThat(JsonDiff.diff(source, source.deepCopy()).size()).isEqualTo(0);
+    }
+
+    @Test
+    public void editDbValue() throws SQLException {
+        JsonEditTypeHandler handler = new JsonEditTypeHandler();
+        JsonEdit edit = handler.getResult(JdbcStubs.resultSet(DOC), 1);
+        assertThat(edit.isPresent()).isTrue();
+        assertThat(edit.isModified()).isFalse();
+        assertThat(bind(handler, edit)).isEqualTo("[]");
+
+        // Read only original and its copy are equal until copy is changed
+        assertThat(edit.edit()).isSameAs(edit.edit());
+        assertThat(edit.isModified()).isFalse();
+        assertThatThrownBy(() -> ((ObjectNode) edit.original()).put("x", 1)).isInstanceOf(UnsupportedOperationException.class);
+
+        ((ObjectNode) edit.edit().get("ui")).put("theme", "dark");
+        ((ArrayNode) edit.edit().get("tags")).add("w");
+        assertThat(edit.isModified()).isTrue();
+        assertThat(bind(handler, edit)).isEqualTo("["
+            + "{\"op\":\"add\",\"path\":\"/tags/3\",\"value\":\"w\"},"
+            + "{\"op\":\"replace\",\"path\":\"/ui/theme\",\"value\":\"dark\"}]");
+        assertThat(edit.original().path("ui").path("theme").asText()).isEqualTo("light");
+
+        ((ObjectNode) edit.edit().get("ui")).put("theme", "light");
+        ((ArrayNode) edit.edit().get("tags")).remove(3);
+        assertThat(edit.isModified()).isFalse();
+    }
+
+    @Test
+    public void newAndEmptyValues() throws SQLException, IOException {
+        JsonEditTypeHandler handler = new JsonEditTypeHandler();
+        JsonEdit empty = handler.getResult(JdbcStubs.resultSet(null), 1);
+        assertThat(empty).isSameAs(JsonEdit.empty());
+        assertThat(empty.isPresent()).isFalse();
+        assertThat(empty.edit().isMissingNode()).isTrue();
+        assertThat(bind(handler, empty)).isEqualTo("[]");
+
+        JsonEdit created = JsonEdit.of(mapper.readTree("{\"a\": 1}"));
+        assertThat(created.isModified()).isTrue();
+        assertThat(created.original().isMissingNode()).isTrue();
+        assertThat(bind(handler, created)).isEqualTo("[{\"op\":\"add\",\"path\":\"\",\"value\":{\"a\":1}}]");
+    }
+
+    @Test
+    public void serialize() throws SQLException, IOException, ClassNotFoundException {
+        JsonEdit edit = new JsonEditTypeHandler().getResult(JdbcStubs.resultSet(DOC), 1);
+        ((ObjectNode) edit.edit()).remove("name");
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream oos = new ObjectOutputStream(bytes)) {
+            oos.writeObject(edit);
+            oos.writeObject(JsonEdit.empty());
+        }
+        try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            JsonEdit copy = (JsonEdit) ois.readObject();
+            assertThat(copy.patch()).isEqualTo(edit.patch());
+            assertThat(ois.readObject()).isSameAs(JsonEdit.empty());
+        }
+    }
+
+    private static String bind(JsonEditTypeHandler handler, JsonEdit value) throws SQLException {
+        Map<Integer, Object> params = JdbcStubs.params();
+        handler.setNonNullParameter(JdbcStubs.preparedStatement(params), 1, value, null);
+        return params.get(1).toString();
+    }
+}
@@ -0,0 +1,139 @@
+package com.github.jneat.mybatis;
+
+import static org.assertj.core.api.Assertions.*;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.apache.ibatis.type.MappedTypes;
+import org.apache.ibatis.type.TypeHandlerRegistry;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.stream.Collectors;
+
+public class JsonElementsTest {
+
+    private static final String JSON = "[{\"name\": \"a\"}, {\"name\": \"b\"}, null, {\"name\": \"c\"}]";
+
+    @MappedTypes(JsonElements.class)
+    public static class DtoElementsTypeHandler extends JsonElementsTypeHandler<JsonTypeHandlerTest.Dto> {
+    }
+
+    private static List<String> names(JsonElements<JsonTypeHandlerTest.Dto> elements) {
+        return elements.stream().map(d -> d == null ? null : d.name).collect(Collectors.toList());
+    }
+
+    @Test
+    public void readFromSource() throws SQLException {
+        DtoElementsTypeHandler handler = new DtoElementsTypeHandler();
+        JsonElements<JsonTypeHandlerTest.Dto> elements = handler.getResult(JdbcStubs.resultSet(JSON), 1);
+        assertThat(names(elements)).containsExactly("a", "b", null, "c");
+        // Source is kept, so elements can be iterated again
+        assertThat(names(elements)).containsExactly("a", "b", null, "c");
+
+        handler.setReadMode(JsonReadMode.BYTES);
+        assertThat(names(handler.getResult(JdbcStubs.resultSet(JSON), "json"))).hasSize(4);
+    }
+
+    @Test
+    public void nestedIterations() throws SQLException {
+        JsonElements<JsonTypeHandlerTest.Dto> elements = new DtoElementsTypeHandler().getResult(JdbcStubs.resultSet(JSON), 1);
+        List<String> pairs = new ArrayList<>();
+        for (JsonTypeHandlerTest.Dto outer : elements) {
+            for (JsonTypeHandlerTest.Dto inner : elements) {
+                pairs.add((outer == null ? null : outer.name) + (inner == null ? null : inner.name));
+            }
+        }
+        assertThat(pairs).hasSize(16).startsWith("aa", "ab", "anull", "ac", "ba").endsWith("cc");
+
+        Iterator<JsonTypeHandlerTest.Dto> first = elements.iterator();
+        Iterator<JsonTypeHandlerTest.Dto> second = elements.iterator();
+        assertThat(first.next().name).isEqualTo("a");
+        assertThat(second.next().name).isEqualTo("a");
+        elements.close();
+        assertThat(names(elements)).containsExactly("a", "b", null, "c");
+    }
+
+    @Test
+    public void readFromStreams() throws SQLException {
+        for (JsonReadMode mode : Arrays.asList(JsonReadMode.BINARY_STREAM, JsonReadMode.CHARACTER_STREAM)) {
+            DtoElementsTypeHandler handler = new DtoElementsTypeHandler();
+            handler.setReadMode(mode);
+            JsonElements<JsonTypeHandlerTest.Dto> elements = handler.getResult(JdbcStubs.resultSet(JSON), 1);
+            assertThat(elements.source()).isNull();
+            assertThat(names(elements)).as(mode.name()).containsExactly("a", "b", null, "c");
+            assertThatThrownBy(elements::iterator).isInstanceOf(IllegalStateException.class);
+            assertThatThrownBy(() -> handler.setNonNullParameter(JdbcStubs.preparedStatement(JdbcStubs.params()), 1, elements, null))
+                .isInstanceOf(SQLException.class);
+        }
+    }
+
+    @Test
+    public void treeNodeElements() throws SQLException {
+        JsonElementsTypeHandler<JsonNode> handler = JsonElementsTypeHandler.of(JsonNode.class);
+        handler.setReadMode(JsonReadMode.BINARY_STREAM);
+        Iterator<JsonNode> it = handler.getResult(JdbcStubs.resultSet("[1, 'two', [3], {a: 4}, null]"), 1).iterator();
+        List<String> result = new ArrayList<>();
+        it.forEachRemaining(n -> result.add(n.toString()));
+        assertThat(result).containsExactly("1", "\"two\"", "[3]", "{\"a\":4}", "null");
+        assertThat(it.hasNext()).isFalse();
+        assertThatThrownBy(it::next).isInstanceOf(NoSuchElementException.class);
+    }
+
+    @Test
+    public void emptyAndInvalidColumns() throws SQLException {
+        DtoElementsTypeHandler handler = new DtoElementsTypeHandler();
+        JsonElements<JsonTypeHandlerTest.Dto> empty = handler.getResult(JdbcStubs.resultSet(null), 1);
+        assertThat(empty.isPresent()).isFalse();
+        assertThat(empty.iterator().hasNext()).isFalse();
+        assertThat(handler.getResult(JdbcStubs.resultSet("null"), 1).iterator().hasNext()).isFalse();
+        assertThat(handler.getResult(JdbcStubs.resultSet("[]"), 1).iterator().hasNext()).isFalse();
+
+        assertThatThrownBy(() -> handler.getResult(JdbcStubs.resultSet("{\"name\": \"a\"}"), 1).iterator())
+            .isInstanceOf(RuntimeException.class).hasMessageContaining("array expected");
+        Iterator<JsonTypeHandlerTest.Dto> broken = handler.getResult(JdbcStubs.resultSet("[{\"name\": \"a\"}, {"), 1).iterator();
+        assertThat(broken.next().name).isEqualTo("a");
+        assertThatThrownBy(broken::next).isInstanceOf(RuntimeException.class);
+    }
+
+    @Test
+    public void binaryCodec() throws IOException, SQLException {
+        byte[] smile = new ObjectMapper(new SmileFactory()).writeValueAsBytes(new ObjectMapper().readTree(JSON));
+        DtoElementsTypeHandler handler = new DtoElementsTypeHandler();
+        handler.setCodec(JsonCodecs.SMILE);
+        assertThat(names(handler.getResult(JdbcStubs.binaryResultSet(smile), 1))).containsExactly("a", "b", null, "c");
+        handler.setReadMode(JsonReadMode.BINARY_STREAM);
+        assertThat(names(handler.getResult(JdbcStubs.binaryResultSet(smile), 1))).containsExactly("a", "b", null, "c");
+    }
+
+    @Test
+    public void writeElements() throws SQLException {
+        DtoElementsTypeHandler handler = new DtoElementsTypeHandler();
+        Map<Integer, Object> params = JdbcStubs.params();
+        handler.setParameter(JdbcStubs.preparedStatement(params), 1, handler.getResult(JdbcStubs.resultSet(JSON), 1), null);
+        assertThat(params.get(1)).isEqualTo(JSON);
+
+        JsonTypeHandlerTest.Dto dto = new JsonTypeHandlerTest.Dto();
+        dto.name = "x";
+        handler.setParameter(JdbcStubs.preparedStatement(params), 2, JsonElements.of(Arrays.asList(dto, dto)), null);
+        assertThat(params.get(2)).isEqualTo("[{\"name\":\"x\",\"list\":null},{\"name\":\"x\",\"list\":null}]");
+
+        handler.setParameter(JdbcStubs.preparedStatement(params), 3, JsonElements.<JsonTypeHandlerTest.Dto>empty(), null);
+        assertThat(params).containsEntry(3, null);
+    }
+
+    @Test
+    public void registerByPackageScan() {
+        TypeHandlerRegistry registry = new TypeHandlerRegistry();
+        registry.register(DtoElementsTypeHandler.class);
+        assertThat(registry.getTypeHandler(JsonElements.class)).isInstanceOf(DtoElementsTypeHandler.class);
+    }
+}
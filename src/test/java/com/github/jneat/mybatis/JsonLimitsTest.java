@@ -0,0 +1,205 @@
+package com.github.jneat.mybatis;
+
+import static org.assertj.core.api.Assertions.*;
+
+import com.fasterxml.jackson.core.TreeNode;
+import com.fasterxml.jackson.databind.JsonNode;
+import org.apache.ibatis.executor.result.ResultMapException;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.Map;
+
+public class JsonLimitsTest {
+
+    private static final String DOC = "{\"items\": [1, 2, 3], \"name\": \"файл 😀\"}";
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void validation() {
+        assertThat(JsonLimits.NONE.isNone()).isTrue();
+        assertThat(JsonLimits.NONE.withMaxDepth(2).isNone()).isFalse();
+        assertThat(JsonLimits.NONE.withMaxDepth(2).withMaxDepth(0).isNone()).isTrue();
+        assertThatThrownBy(() -> JsonLimits.NONE.withMaxLength(-1)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> JsonLimits.NONE.withPolicy(null)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new TreeNodeTypeHandler().setLimits(null)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void rejectLength() throws SQLException {
+        for (JsonReadMode mode : JsonReadMode.values()) {
+            TreeNodeTypeHandler handler = new TreeNodeTypeHandler();
+            handler.setReadMode(mode);
+            handler.setLimits(JsonLimits.NONE.withMaxLength(20));
+            assertThatThrownBy(() -> handler.getResult(JdbcStubs.resultSet(DOC), 1))
+                .isInstanceOf(ResultMapException.class)
+                .hasMessageContaining("is longer than 20");
+            assertThat(handler.getResult(JdbcStubs.resultSet("[1, 2]"), 1).size()).isEqualTo(2);
+        }
+    }
+
+    @Test
+    public void rejectStructure() throws SQLException {
+        TreeNodeTypeHandler handler = new TreeNodeTypeHandler();
+        handler.setLimits(JsonLimits.NONE.withMaxDepth(2).withMaxElements(6));
+        assertThat(handler.getResult(JdbcStubs.resultSet(DOC), 1).size()).isEqualTo(2);
+        assertThatThrownBy(() -> handler.getResult(JdbcStubs.resultSet("[[[1]]]"), 1))
+            .hasMessageContaining("is nested deeper than 2");
+        assertThatThrownBy(() -> handler.getResult(JdbcStubs.resultSet("[1, 2, 3, 4, 5, 6]"), 1))
+            .hasMessageContaining("has more than 6 elements");
+
+        // Invalid JSON is reported on access, as without limits
+        TreeNode invalid = handler.getResult(JdbcStubs.resultSet("{\"a\": "), 1);
+        assertThatThrownBy(invalid::toString).isInstanceOf(RuntimeException.class);
+    }
+
+    @Test
+    public void missing() throws SQLException {
+        JsonLimits limits = JsonLimits.NONE.withMaxElements(3).withPolicy(JsonLimitPolicy.MISSING);
+
+        TreeNodeTypeHandler treeHandler = new TreeNodeTypeHandler();
+        treeHandler.setLimits(limits);
+        TreeNode tree = treeHandler.getResult(JdbcStubs.resultSet(DOC), 1);
+        assertThat(tree.isMissingNode()).isTrue();
+        assertThat(tree.path("a").isMissingNode()).isTrue();
+        assertThat(((TreeNodeLazyWrapper)tree).isLimitExceeded()).isTrue();
+        assertThat(((TreeNodeLazyWrapper)treeHandler.getResult(JdbcStubs.resultSet("[1]"), 1)).isLimitExceeded()).isFalse();
+        // Dropped document is not replaced with NULL
+        assertThatThrownBy(() -> treeHandler.setNonNullParameter(JdbcStubs.preparedStatement(JdbcStubs.params()), 1, tree, null))
+            .isInstanceOf(SQLException.class);
+
+        JsonTypeHandlerTest.DtoTypeHandler dtoHandler = new JsonTypeHandlerTest.DtoTypeHandler();
+        dtoHandler.setLimits(limits);
+        assertThat(dtoHandler.getResult(JdbcStubs.resultSet(DOC), 1)).isNull();
+        assertThatThrownBy(() -> dtoHandler.setParameter(JdbcStubs.preparedStatement(JdbcStubs.params()), 1, null, null))
+            .isInstanceOf(SQLException.class);
+
+        JsonNodeValueTypeHandler nodeHandler = new JsonNodeValueTypeHandler();
+        nodeHandler.setLimits(limits);
+        JsonNodeValue node = nodeHandler.getResult(JdbcStubs.resultSet(DOC), 1);
+        assertThat(node.isPresent()).isFalse();
+        assertThat(node.isLimitExceeded()).isTrue();
+        assertThat(JsonNodeValue.EMPTY.isLimitExceeded()).isFalse();
+        assertThat(nodeHandler.getResult(JdbcStubs.resultSet("[1]"), 1).isLimitExceeded()).isFalse();
+        assertThatThrownBy(() -> nodeHandler.setNonNullParameter(JdbcStubs.preparedStatement(JdbcStubs.params()), 1, node, null))
+            .isInstanceOf(SQLException.class);
+
+        JsonTypeHandlerTest.DtoValueTypeHandler valueHandler = new JsonTypeHandlerTest.DtoValueTypeHandler();
+        valueHandler.setLimits(limits);
+        JsonValue<JsonTypeHandlerTest.Dto> value = valueHandler.getResult(JdbcStubs.resultSet("{\"name\": \"a\", \"list\": [1]}"), 1);
+        assertThat(value.isPresent()).isFalse();
+        assertThat(value.isLimitExceeded()).isTrue();
+        assertThat(JsonValue.empty().isLimitExceeded()).isFalse();
+        assertThatThrownBy(() -> valueHandler.setNonNullParameter(JdbcStubs.preparedStatement(JdbcStubs.params()), 1, value, null))
+            .isInstanceOf(SQLException.class);
+
+        RawJsonTypeHandler rawHandler = new RawJsonTypeHandler();
+        rawHandler.setLimits(limits);
+        assertThat(rawHandler.getResult(JdbcStubs.resultSet(DOC), 1)).isNull();
+        assertThatThrownBy(() -> rawHandler.setParameter(JdbcStubs.preparedStatement(JdbcStubs.params()), 1, null, null))
+            .isInstanceOf(SQLException.class);
+
+        JsonElementsTypeHandler<Integer> elementsHandler = JsonElementsTypeHandler.of(Integer.class);
+        elementsHandler.setLimits(limits);
+        JsonElements<Integer> elements = elementsHandler.getResult(JdbcStubs.resultSet("[1, 2, 3, 4, 5, 6]"), 1);
+        assertThat(elements.isPresent()).isFalse();
+        assertThat(elements.isLimitExceeded()).isTrue();
+        assertThat(elements).isEmpty();
+        assertThat(JsonElements.empty().isLimitExceeded()).isFalse();
+        assertThatThrownBy(() -> elementsHandler.setNonNullParameter(JdbcStubs.preparedStatement(JdbcStubs.params()), 1, elements, null))
+            .isInstanceOf(SQLException.class);
+    }
+
+    @Test
+    public void spillStreams() throws SQLException, IOException {
+        for (JsonReadMode mode : new JsonReadMode[]{JsonReadMode.BINARY_STREAM, JsonReadMode.CHARACTER_STREAM, JsonReadMode.STRING}) {
+            JsonNodeValueTypeHandler handler = new JsonNodeValueTypeHandler();
+            handler.setReadMode(mode);
+            handler.setLimits(JsonLimits.NONE.withMaxLength(10).withPolicy(JsonLimitPolicy.SPILL)
+                .withSpillDirectory(folder.getRoot()));
+            JsonNodeValue value = handler.getResult(JdbcStubs.resultSet(DOC), 1);
+            assertThat(value.source()).isInstanceOf(SpilledSource.class);
+            File file = ((SpilledSource)value.source()).file();
+            assertThat(file.getParentFile()).isEqualTo(folder.getRoot());
+            assertThat(file.length()).isEqualTo(DOC.getBytes("UTF-8").length);
+
+            JsonNode node = value.view();
+            assertThat(node.get("name").asText()).isEqualTo("файл 😀");
+            assertThat(node.get("items").size()).isEqualTo(3);
+
+            Map<Integer, Object> params = JdbcStubs.params();
+            handler.setParameter(JdbcStubs.preparedStatement(params), 1, value, null);
+            assertThat(params.get(1)).isEqualTo(DOC);
+        }
+    }
+
+    @Test
+    public void spillLongCharacterStream() throws SQLException {
+        StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; i < 10000; i++) {
+            sb.append(i == 0 ? "" : ",").append("\"😀\"");
+        }
+        String json = sb.append(']').toString();
+        TreeNodeTypeHandler handler = new TreeNodeTypeHandler();
+        handler.setReadMode(JsonReadMode.CHARACTER_STREAM);
+        handler.setLimits(JsonLimits.NONE.withMaxLength(9000).withPolicy(JsonLimitPolicy.SPILL)
+            .withSpillDirectory(folder.getRoot()));
+        TreeNodeLazyWrapper tree = (TreeNodeLazyWrapper)handler.getResult(JdbcStubs.resultSet(json), 1);
+        assertThat(tree.source()).isInstanceOf(SpilledSource.class);
+        assertThat(tree.getJsonSource()).isEqualTo(json);
+        assertThat(tree.size()).isEqualTo(10000);
+    }
+
+    @Test
+    public void spilledElements() throws SQLException {
+        JsonElementsTest.DtoElementsTypeHandler handler = new JsonElementsTest.DtoElementsTypeHandler();
+        handler.setReadMode(JsonReadMode.BINARY_STREAM);
+        handler.setLimits(JsonLimits.NONE.withMaxLength(10).withPolicy(JsonLimitPolicy.SPILL)
+            .withSpillDirectory(folder.getRoot()));
+        JsonElements<JsonTypeHandlerTest.Dto> elements = handler.getResult(JdbcStubs.resultSet("[{\"name\": \"a\"}, {\"name\": \"b\"}]"), 1);
+        assertThat(elements.source()).isInstanceOf(SpilledSource.class);
+        assertThat(elements).extracting("name").containsExactly("a", "b");
+    }
+
+    @Test
+    public void spilledValueIsNotParsedInBackground() throws SQLException {
+        JsonStatistics stats = new JsonStatistics();
+        JsonMetrics.addListener(stats);
+        try {
+            JsonNodeValueTypeHandler handler = new JsonNodeValueTypeHandler();
+            handler.setLimits(JsonLimits.NONE.withMaxDepth(1).withPolicy(JsonLimitPolicy.SPILL)
+                .withSpillDirectory(folder.getRoot()));
+            handler.setParseExecutor(Runnable::run);
+            JsonNodeValue value = handler.getResult(JdbcStubs.resultSet(DOC), 1);
+            assertThat(value.source()).isInstanceOf(SpilledSource.class);
+            assertThat(stats.getLazyValuesMaterialized()).isEqualTo(0);
+            assertThat(value.tree().size()).isEqualTo(2);
+            assertThat(stats.getLazyValuesMaterialized()).isEqualTo(1);
+            assertThat(stats.getLimitsExceeded()).isEqualTo(1);
+        } finally {
+            JsonMetrics.removeListener(stats);
+        }
+    }
+
+    @Test
+    public void statistics() throws SQLException {
+        JsonStatistics stats = new JsonStatistics();
+        JsonMetrics.addListener(stats);
+        try {
+            TreeNodeTypeHandler handler = new TreeNodeTypeHandler();
+            handler.setLimits(JsonLimits.NONE.withMaxLength(10).withPolicy(JsonLimitPolicy.MISSING));
+            handler.getResult(JdbcStubs.resultSet(DOC), 1);
+            handler.getResult(JdbcStubs.resultSet("[]"), 1);
+            assertThat(stats.getLimitsExceeded()).isEqualTo(1);
+            assertThat(stats.getCellsRead()).isEqualTo(2);
+        } finally {
+            JsonMetrics.removeListener(stats);
+        }
+    }
+}
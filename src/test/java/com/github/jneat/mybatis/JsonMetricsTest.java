@@ -0,0 +1,139 @@
+package com.github.jneat.mybatis;
+
+import static org.assertj.core.api.Assertions.*;
+
+import com.fasterxml.jackson.core.TreeNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import org.junit.After;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+public class JsonMetricsTest {
+
+    private final List<String> events = new ArrayList<>();
+
+    private final JsonMetricsListener listener = new JsonMetricsListener() {
+        @Override
+        public void cellRead(String codec, int size) {
+            events.add("read " + codec + " " + size);
+        }
+
+        @Override
+        public void cellWritten(String codec, int size) {
+            events.add("written " + codec + " " + size);
+        }
+
+        @Override
+        public void parsed(String codec, int size, long nanos) {
+            assertThat(nanos).isGreaterThanOrEqualTo(0);
+            events.add("parsed " + codec + " " + size);
+        }
+
+        @Override
+        public void serialized(String codec, int size, long nanos) {
+            assertThat(nanos).isGreaterThanOrEqualTo(0);
+            events.add("serialized " + codec + " " + size);
+        }
+
+        @Override
+        public void lazyValueCreated(String codec) {
+            events.add("created " + codec);
+        }
+
+        @Override
+        public void lazyValueMaterialized(String codec) {
+            events.add("materialized " + codec);
+        }
+
+        @Override
+        public void deepCopied(String codec) {
+            events.add("copied " + codec);
+        }
+    };
+
+    @After
+    public void cleanup() {
+        JsonMetrics.removeListener(listener);
+        JsonMetrics.unregisterMBean();
+    }
+
+    @Test
+    public void disabledByDefault() throws SQLException {
+        assertThat(JsonMetrics.listener()).isNull();
+        new TreeNodeTypeHandler().getResult(JdbcStubs.resultSet("{}"), 1).toString();
+        assertThat(events).isEmpty();
+    }
+
+    @Test
+    public void treeNodeEvents() throws SQLException {
+        JsonMetrics.addListener(listener);
+        TreeNodeTypeHandler handler = new TreeNodeTypeHandler();
+        TreeNode node = handler.getResult(JdbcStubs.resultSet("{\"a\": 1}"), 1);
+        handler.getResult(JdbcStubs.resultSet(null), 1);
+        assertThat(events).containsExactly("read default 8", "created default");
+
+        assertThat(node.toString()).isEqualTo("{\"a\":1}");
+        handler.setParameter(JdbcStubs.preparedStatement(JdbcStubs.params()), 1, node, null);
+        handler.setParameter(JdbcStubs.preparedStatement(JdbcStubs.params()), 1,
+            JsonNodeFactory.instance.arrayNode().add(1), null);
+        assertThat(events).containsExactly("read default 8", "created default",
+            "parsed default 8", "materialized default", "written default 8",
+            "serialized default 3", "written default 3");
+    }
+
+    @Test
+    public void jsonNodeValueEvents() throws SQLException {
+        JsonMetrics.addListener(listener);
+        JsonNodeValueTypeHandler handler = new JsonNodeValueTypeHandler();
+        JsonNodeValue value = handler.getResult(JdbcStubs.resultSet("[1, 2]"), 1);
+        value.view();
+        value.get();
+        value.get();
+        assertThat(events).containsExactly("read default 6", "created default",
+            "parsed default 6", "materialized default", "copied default", "copied default");
+
+        events.clear();
+        JsonNodeValue.from("[3]").view();
+        assertThat(events).containsExactly("parsed default 3");
+    }
+
+    @Test
+    public void statistics() throws Exception {
+        JsonStatistics stats = JsonMetrics.registerMBean();
+        assertThat(JsonMetrics.registerMBean()).isSameAs(stats);
+        JsonMetrics.addListener(listener);
+
+        JsonNodeValueTypeHandler handler = new JsonNodeValueTypeHandler();
+        handler.getResult(JdbcStubs.resultSet("[1, 2]"), 1).get();
+        handler.getResult(JdbcStubs.resultSet("{\"name\": \"value\"}"), 1);
+        assertThat(events).hasSize(7);
+
+        assertThat(stats.getCellsRead()).isEqualTo(2);
+        assertThat(stats.getBytesRead()).isEqualTo(23);
+        assertThat(stats.getLargestDocumentRead()).isEqualTo(17);
+        assertThat(stats.getParseCount()).isEqualTo(1);
+        assertThat(stats.getParseTimeHistogram()).hasSize(32);
+        assertThat(stats.getParseTimeP99Micros()).isGreaterThan(0).isLessThanOrEqualTo(stats.getParseTimeMaxMicros() + 1);
+        assertThat(stats.getLazyValuesCreated()).isEqualTo(2);
+        assertThat(stats.getLazyMaterializationRatio()).isEqualTo(0.5);
+        assertThat(stats.getDeepCopies()).isEqualTo(1);
+        assertThat(stats.getSerializeCount()).isEqualTo(0);
+
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName(JsonMetrics.OBJECT_NAME);
+        assertThat(server.getAttribute(name, "CellsRead")).isEqualTo(2L);
+        server.invoke(name, "reset", null, null);
+        assertThat(stats.getCellsRead()).isEqualTo(0);
+        assertThat(stats.getParseTimeP50Micros()).isEqualTo(0);
+
+        JsonMetrics.unregisterMBean();
+        assertThat(server.isRegistered(name)).isFalse();
+        assertThat(JsonMetrics.listener()).isSameAs(listener);
+    }
+}
@@ -23,7 +23,11 @@ public class JsonNodeValueTest {
             {null, true, true},
             {"1", false, false},
             {"{test:1}", false, false},
-            {"[1,2,3]", false, false}
+            {"[1,2,3]", false, false},
+            {" { } ", true, false},
+            {"[\n]", true, false},
+            {"[null]", false, false},
+            {"\"\"", false, false}
         });
     }
 
@@ -44,5 +48,7 @@ public class JsonNodeValueTest {
         JsonNodeValue value = JsonNodeValue.from(input);
         assertThat(value.isEmpty()).isEqualTo(empty);
         assertThat(value.get().isMissingNode()).isEqualTo(missing);
+        // Parsed value gives same answer
+        assertThat(value.isEmpty()).isEqualTo(empty);
     }
 }
@@ -0,0 +1,101 @@
+package com.github.jneat.mybatis;
+
+import static org.assertj.core.api.Assertions.*;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Iterator;
+
+public class JsonNodeValueViewTest {
+
+    private static final String JSON = "{\"a\": {\"b\": [1, {\"c\": \"text\"}]}, \"d\": null}";
+
+    @Test
+    public void viewDoesNotCopy() {
+        JsonNodeValue value = JsonNodeValue.from(JSON);
+        JsonNode view = value.view();
+        assertThat(view).isSameAs(value.view());
+        assertThat(view.isObject()).isTrue();
+        assertThat(view.at("/a/b/1/c").asText()).isEqualTo("text");
+        assertThat(view.path("a").path("b").size()).isEqualTo(2);
+        assertThat(view.get("d").isNull()).isTrue();
+        assertThat(view.findValue("c").asText()).isEqualTo("text");
+        assertThat(view.equals(value.get())).isTrue();
+        assertThat(view.toString()).isEqualTo("{\"a\":{\"b\":[1,{\"c\":\"text\"}]},\"d\":null}");
+    }
+
+    @Test
+    public void viewIsReadOnly() {
+        JsonNodeValue value = JsonNodeValue.from(JSON);
+        Iterator<JsonNode> it = value.view().elements();
+        it.next();
+        try {
+            it.remove();
+            fail("View should not allow modifications");
+        } catch (UnsupportedOperationException ex) {
+            // expected
+        }
+        try {
+            ((ObjectNode)value.view()).put("x", 1);
+            fail("View should not allow modifications");
+        } catch (UnsupportedOperationException ex) {
+            // expected
+        }
+        try {
+            ((ArrayNode)value.view().at("/a/b")).add(1);
+            fail("View should not allow modifications");
+        } catch (UnsupportedOperationException ex) {
+            // expected
+        }
+        try {
+            ((ObjectNode)value.view().at("/a/b/1")).remove("c");
+            fail("View should not allow modifications");
+        } catch (UnsupportedOperationException ex) {
+            // expected
+        }
+        assertThat(value.get().size()).isEqualTo(2);
+        assertThat(value.view().at("/a/b").size()).isEqualTo(2);
+    }
+
+    @Test
+    public void copyIsMutable() throws IOException {
+        JsonNodeValue value = JsonNodeValue.from(JSON);
+        ObjectNode copy = value.view().deepCopy();
+        copy.put("e", 1);
+        assertThat(value.view().has("e")).isFalse();
+
+        copy.with("a").withArray("b").addObject().put("f", 2);
+        assertThat(copy.at("/a/b/2/f").asInt()).isEqualTo(2);
+
+        ObjectNode other = (ObjectNode)value.get();
+        other.remove("a");
+        assertThat(value.view().has("a")).isTrue();
+        assertThat(new ObjectMapper().writeValueAsString(value.view())).isEqualTo(value.get().toString());
+    }
+
+    @Test
+    public void viewOfNode() throws IOException {
+        ObjectNode node = (ObjectNode)new ObjectMapper().readTree(JSON);
+        JsonNodeValue value = JsonNodeValue.from(node);
+        assertThat(value.view()).isEqualTo(node);
+        assertThat(value.view()).isNotSameAs(node);
+        // Read only copy is made once
+        assertThat(value.view()).isSameAs(value.view());
+        node.put("x", 1);
+        assertThat(value.view().has("x")).isFalse();
+        assertThat(value.get().has("x")).isTrue();
+        ((ArrayNode)node.at("/a/b")).add(1);
+        assertThat(node.at("/a/b").size()).isEqualTo(3);
+    }
+
+    @Test
+    public void missingView() {
+        assertThat(JsonNodeValue.EMPTY.view().isMissingNode()).isTrue();
+        assertThat(JsonNodeValue.from("12").view().asInt()).isEqualTo(12);
+    }
+}
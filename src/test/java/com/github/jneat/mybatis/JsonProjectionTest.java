@@ -0,0 +1,102 @@
+package com.github.jneat.mybatis;
+
+import static org.assertj.core.api.Assertions.*;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.util.List;
+
+public class JsonProjectionTest {
+
+    private static final String DOC = "{\"id\": 7, \"skip\": {\"deep\": [1, 2, {\"x\": \"y\"}]},"
+        + " \"customer\": {\"name\": \"Ann\", \"tags\": [\"a\", \"b\"]},"
+        + " \"items\": [{\"sku\": \"A-1\"}, {\"sku\": \"B-2\"}], \"total\": 12.50}";
+
+    public static class Summary {
+        public String customerName;
+        public BigDecimal total;
+        public String secondSku;
+        public List<String> tags;
+        public String firstTag;
+        public JsonNode customer;
+        public String missing = "default";
+    }
+
+    public static class SummaryTypeHandler extends JsonProjectionTypeHandler<Summary> {
+        public SummaryTypeHandler() {
+            project("/customer/name", "customerName");
+            project("/total", "total");
+            project("/items/1/sku", "secondSku");
+            project("/customer/tags", "tags");
+            project("/customer/tags/0", "firstTag");
+            project("/customer", "customer");
+            project("/no/such", "missing");
+        }
+    }
+
+    @Test
+    public void projectFields() throws SQLException {
+        for (JsonReadMode mode : JsonReadMode.values()) {
+            SummaryTypeHandler handler = new SummaryTypeHandler();
+            handler.setReadMode(mode);
+            Summary s = handler.getResult(JdbcStubs.resultSet(DOC), 1);
+            assertThat(s.customerName).isEqualTo("Ann");
+            assertThat(s.total).isEqualByComparingTo("12.5");
+            assertThat(s.secondSku).isEqualTo("B-2");
+            assertThat(s.tags).containsExactly("a", "b");
+            assertThat(s.firstTag).isEqualTo("a");
+            assertThat(s.customer.get("name").asText()).isEqualTo("Ann");
+            assertThat(s.missing).isEqualTo("default");
+        }
+    }
+
+    @Test
+    public void nullAndScalarDocuments() throws SQLException {
+        SummaryTypeHandler handler = new SummaryTypeHandler();
+        assertThat(handler.getResult(JdbcStubs.resultSet(null), 1)).isNull();
+        assertThat(handler.getResult(JdbcStubs.resultSet("  "), 1)).isNull();
+        assertThat(handler.getResult(JdbcStubs.resultSet("[1, 2]"), 1).customerName).isNull();
+        assertThat(handler.getResult(JdbcStubs.resultSet("\"text\""), 1).total).isNull();
+    }
+
+    @Test
+    public void programmaticHandler() throws SQLException {
+        JsonProjectionTypeHandler<JsonNode> handler = JsonProjectionTypeHandler.of(JsonNode.class)
+            .project("", "doc")
+            .project("/id", "id")
+            .project("/items/0", "first")
+            .project("/0", "zero");
+        JsonNode n = handler.getResult(JdbcStubs.resultSet(DOC), 1);
+        assertThat(n.get("doc").size()).isEqualTo(5);
+        assertThat(n.get("id").asInt()).isEqualTo(7);
+        assertThat(n.get("first").get("sku").asText()).isEqualTo("A-1");
+        assertThat(n.has("zero")).isFalse();
+
+        // Numeric segment matches both field and element
+        assertThat(handler.getResult(JdbcStubs.resultSet("{\"0\": true}"), 1).get("zero").asBoolean()).isTrue();
+        assertThat(handler.getResult(JdbcStubs.resultSet("[false]"), 1).get("zero").asBoolean()).isFalse();
+
+        assertThatThrownBy(() -> handler.project("no-slash", "x")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> handler.setNonNullParameter(JdbcStubs.preparedStatement(JdbcStubs.params()), 1, n, null))
+            .isInstanceOf(SQLException.class);
+    }
+
+    @Test
+    public void sameAsTreeLookups() throws Exception {
+        JsonNode tree = new ObjectMapper().readTree(DOC);
+        JsonProjectionTypeHandler<JsonNode> handler = JsonProjectionTypeHandler.of(JsonNode.class);
+        String[] pointers = {"/skip/deep/2/x", "/skip/deep/5", "/customer/tags/1", "/items", "/total"};
+        for (String p : pointers) {
+            handler.project(p, p);
+        }
+        JsonNode n = handler.getResult(JdbcStubs.resultSet(DOC), 1);
+        for (String p : pointers) {
+            JsonNode expected = tree.at(p);
+            assertThat(n.path(p)).isEqualTo(expected);
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package com.github.jneat.mybatis;
+
+import static org.assertj.core.api.Assertions.*;
+
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.TreeNode;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+public class JsonTapeTest {
+
+    private static final String JSON = "{\"a\": {\"b\": [10, {\"c\": \"x\"}, [1, 2]], \"a/b\": 1, \"~\": 2},"
+        + " \"d\": null, \"0\": \"zero\", \"dup\": {\"v\": 1}, \"e\": [true, false, []], \"dup\": {\"w\": 2},"
+        + " \"n\": [2147483648, 12345678901234567890, -1.5e3, 0.1], \"s\": \"café € 😀\", \"o\": {}}";
+
+    private static final String[] POINTERS = {
+        "", "/a", "/a/b", "/a/b/0", "/a/b/1/c", "/a/b/2/1", "/a/b/3", "/a/b/-1", "/a/b/x", "/a/a~1b", "/a/~0",
+        "/d", "/d/x", "/0", "/dup", "/dup/v", "/dup/w", "/e/0", "/e/1", "/e/2", "/e/0/x", "/n/0", "/n/1", "/n/2",
+        "/n/3", "/s", "/o", "/missing", "/missing/deep", "/"
+    };
+
+    private static TreeNode tape(String json) throws IOException {
+        return JsonCodecs.defaultCodec().readTape(JsonSource.of(json)).root();
+    }
+
+    @Test
+    public void navigationMatchesTree() throws IOException {
+        JsonNode tree = new ObjectMapper().readTree(JSON);
+        TreeNode tape = tape(JSON);
+        for (String ptr : POINTERS) {
+            TreeNode expected = tree.at(ptr);
+            TreeNode actual = tape.at(ptr);
+            assertThat(actual).as(ptr).isEqualTo(expected);
+            assertThat(actual.asToken()).as(ptr).isEqualTo(expected.asToken());
+            assertThat(actual.size()).as(ptr).isEqualTo(expected.size());
+            assertThat(actual.numberType()).as(ptr).isEqualTo(expected.numberType());
+            assertThat(actual.isObject()).as(ptr).isEqualTo(expected.isObject());
+            assertThat(actual.isArray()).as(ptr).isEqualTo(expected.isArray());
+            assertThat(actual.isMissingNode()).as(ptr).isEqualTo(expected.isMissingNode());
+            assertThat(names(actual.fieldNames())).as(ptr).isEqualTo(names(expected.fieldNames()));
+        }
+        assertThat(tape.toString()).isEqualTo(tree.toString());
+        assertThat(tape.hashCode()).isEqualTo(tree.hashCode());
+        assertThat(tape.get("a").get("b")).isEqualTo(tree.get("a").get("b"));
+        assertThat(tape.get("missing")).isNull();
+        assertThat(tape.get(0)).isNull();
+        assertThat(tape.path("missing").isMissingNode()).isTrue();
+    }
+
+    @Test
+    public void arrayIndexAccess() throws IOException {
+        TreeNode tape = tape("[0, [1, [2]], {\"x\": 3}, 4, 5]");
+        assertThat(tape.size()).isEqualTo(5);
+        for (int i = 0; i < 2; i++) {
+            assertThat(tape.get(3).toString()).isEqualTo("4");
+            assertThat(tape.get(4).toString()).isEqualTo("5");
+            assertThat(tape.get(1).toString()).isEqualTo("[1,[2]]");
+            assertThat(tape.get(0).toString()).isEqualTo("0");
+            assertThat(tape.get(2).toString()).isEqualTo("{\"x\":3}");
+        }
+        assertThat(tape.get(5)).isNull();
+        assertThat(tape.get(-1)).isNull();
+        assertThat(tape.path(5).isMissingNode()).isTrue();
+        assertThat(tape.get("x")).isNull();
+    }
+
+    @Test
+    public void scalarAndEmptyDocuments() throws IOException {
+        assertThat(tape("\"text\"").toString()).isEqualTo("\"text\"");
+        assertThat(tape("42").numberType()).isEqualTo(com.fasterxml.jackson.core.JsonParser.NumberType.INT);
+        assertThat(tape("  ").isMissingNode()).isTrue();
+        assertThat(tape("[]").size()).isZero();
+        assertThat(tape("{}").asToken()).isEqualTo(JsonToken.START_OBJECT);
+        assertThat(tape("{a: 'lenient'}").get("a").toString()).isEqualTo("\"lenient\"");
+    }
+
+    @Test
+    public void bindToObjects() throws IOException {
+        ObjectMapper mapper = new ObjectMapper();
+        TreeNode tape = tape(JSON);
+        Map<?, ?> map = mapper.readValue(tape.get("a").traverse(), Map.class);
+        assertThat(map.get("a/b")).isEqualTo(1);
+        assertThat(mapper.readValue(tape.get("n").traverse(mapper), double[].class)).containsExactly(
+            2147483648d, 12345678901234567890d, -1500d, 0.1d);
+    }
+
+    @Test
+    public void bigDecimals() throws IOException {
+        JsonCodecs.register("test-decimals", new ObjectMapper().enable(DeserializationFeature.USE_BIG_DECIMAL_FOR_FLOATS));
+        TreeNode tape = JsonCodecs.get("test-decimals").readTape(JsonSource.of("[0.10000000000000000001]")).root();
+        assertThat(((JsonNode)tape.get(0)).decimalValue()).isEqualTo(new BigDecimal("0.10000000000000000001"));
+    }
+
+    @Test
+    public void binarySource() throws IOException {
+        byte[] smile = new ObjectMapper(new SmileFactory()).writeValueAsBytes(new ObjectMapper().readTree(JSON));
+        ReaderWriter codec = JsonCodecs.get(JsonCodecs.SMILE);
+        TreeNode tape = codec.readTape(JsonSource.of(smile, codec)).root();
+        assertThat(tape).isEqualTo(new ObjectMapper().readTree(JSON));
+    }
+
+    @Test
+    public void compactWrapper() throws SQLException {
+        TreeNodeTypeHandler handler = new TreeNodeTypeHandler();
+        handler.setTreeModel(JsonTreeModel.COMPACT);
+        TreeNodeLazyWrapper wrapper = (TreeNodeLazyWrapper)handler.getResult(JdbcStubs.resultSet(JSON), 1);
+        assertThat(wrapper.size()).isEqualTo(8);
+        for (int i = 0; i < 5; i++) {
+            assertThat(wrapper.at("/a/b/1/c").toString()).isEqualTo("\"x\"");
+        }
+        assertThat(wrapper.isMaterialized()).isTrue();
+        assertThat(wrapper.get("a")).isNotInstanceOf(JsonNode.class);
+        assertThat(wrapper.fieldNames().next()).isEqualTo("a");
+        assertThat(wrapper.isSourceActual()).isTrue();
+        assertThat(wrapper.toString()).isEqualTo(wrapper.node().toString());
+
+        assertThatThrownBy(() -> handler.setTreeModel(null)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void compactValue() throws SQLException {
+        JsonNodeValueTypeHandler handler = new JsonNodeValueTypeHandler();
+        handler.setTreeModel(JsonTreeModel.COMPACT);
+        JsonNodeValue value = handler.getResult(JdbcStubs.resultSet(JSON), 1);
+        TreeNode tree = value.tree();
+        assertThat(tree).isNotInstanceOf(JsonNode.class);
+        assertThat(value.tree()).isSameAs(tree);
+        assertThat(tree).isEqualTo(value.view());
+
+        JsonNodeValue regular = new JsonNodeValueTypeHandler().getResult(JdbcStubs.resultSet(JSON), 1);
+        assertThat(regular.tree()).isSameAs(regular.view());
+        assertThat(JsonNodeValue.EMPTY.tree().isMissingNode()).isTrue();
+    }
+
+    private static List<String> names(Iterator<String> it) {
+        List<String> result = new ArrayList<>();
+        it.forEachRemaining(result::add);
+        return result;
+    }
+}
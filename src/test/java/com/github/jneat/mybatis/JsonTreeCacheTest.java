@@ -0,0 +1,131 @@
+package com.github.jneat.mybatis;
+
+import static org.assertj.core.api.Assertions.*;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.util.Properties;
+
+public class JsonTreeCacheTest {
+
+    private static final String CODEC = "test-cache";
+
+    private JsonTreeCache cache;
+
+    private JsonNodeValueTypeHandler valueHandler;
+
+    private TreeNodeTypeHandler treeHandler;
+
+    @Before
+    public void setUp() {
+        JsonCodecs.register(CODEC, new ObjectMapper());
+        cache = new JsonTreeCache(16 * 1024);
+        JsonCodecs.setCache(CODEC, cache);
+        valueHandler = new JsonNodeValueTypeHandler();
+        valueHandler.setCodec(CODEC);
+        treeHandler = new TreeNodeTypeHandler();
+        treeHandler.setCodec(CODEC);
+    }
+
+    @After
+    public void tearDown() {
+        JsonCodecs.setCache(CODEC, null);
+    }
+
+    @Test
+    public void sharedTreeForSameContent() throws SQLException, IOException {
+        JsonNodeValue first = valueHandler.getResult(JdbcStubs.resultSet("{\"a\": [1, 2]}"), 1);
+        JsonNodeValue second = valueHandler.getResult(JdbcStubs.resultSet("{\"a\": [1, 2]}"), 1);
+        valueHandler.setReadMode(JsonReadMode.BYTES);
+        JsonNodeValue bytes = valueHandler.getResult(
+            JdbcStubs.binaryResultSet("{\"a\": [1, 2]}".getBytes(StandardCharsets.UTF_8)), 1);
+
+        assertThat(second.view()).isSameAs(first.view());
+        assertThat(bytes.view()).isEqualTo(first.view());
+        assertThat(cache.getMissCount()).isEqualTo(2);
+        assertThat(cache.getHitCount()).isEqualTo(1);
+        assertThat(cache.getSize()).isEqualTo(2);
+        assertThat(cache.getWeight()).isEqualTo(2 * JsonTreeCache.weight(first.view(), Long.MAX_VALUE));
+
+        assertThatThrownBy(() -> ((ObjectNode)first.view()).put("b", 1)).isInstanceOf(UnsupportedOperationException.class);
+        ((ObjectNode)first.get()).put("b", 1);
+        assertThat(second.view().has("b")).isFalse();
+    }
+
+    @Test
+    public void evictLeastRecentlyUsed() throws SQLException {
+        for (int i = 0; i < 200; i++) {
+            valueHandler.getResult(JdbcStubs.resultSet("{\"id\": " + (1000 + i) + "}"), 1).view();
+        }
+        assertThat(cache.getMissCount()).isEqualTo(200);
+        assertThat(cache.getEvictionCount()).isGreaterThan(0);
+        assertThat(cache.getWeight()).isLessThanOrEqualTo(cache.getMaxWeight());
+        assertThat((long)cache.getSize()).isEqualTo(200 - cache.getEvictionCount());
+
+        cache.clear();
+        assertThat(cache.getSize()).isZero();
+        assertThat(cache.getWeight()).isZero();
+    }
+
+    @Test
+    public void weightIsTreeSize() throws IOException {
+        ObjectMapper mapper = new ObjectMapper();
+        long compact = JsonTreeCache.weight(mapper.readTree("{\"a\":[1,2]}"), Long.MAX_VALUE);
+        assertThat(JsonTreeCache.weight(mapper.readTree("{ \"a\" :  [ 1 ,  2 ]   }"), Long.MAX_VALUE)).isEqualTo(compact);
+        assertThat(JsonTreeCache.weight(mapper.readTree("{\"a\":[1,2,3]}"), Long.MAX_VALUE)).isGreaterThan(compact);
+        // Small numbers in source take more heap as nodes than as text
+        assertThat(compact).isGreaterThan("{\"a\":[1,2]}".length() * 2);
+    }
+
+    @Test
+    public void largeDocumentsAreNotCached() throws SQLException {
+        StringBuilder sb = new StringBuilder("[0");
+        for (int i = 1; i < 100; i++) {
+            sb.append(',').append(i);
+        }
+        String json = sb.append(']').toString();
+        valueHandler.getResult(JdbcStubs.resultSet(json), 1).view();
+        valueHandler.getResult(JdbcStubs.resultSet(json), 1).view();
+        assertThat(cache.getMissCount()).isEqualTo(2);
+        assertThat(cache.getSize()).isZero();
+    }
+
+    @Test
+    public void lazyWrapperCopiesSharedTree() throws SQLException {
+        String json = "{\"a\": {\"b\": 1}, \"c\": 2}";
+        JsonNodeValue value = valueHandler.getResult(JdbcStubs.resultSet(json), 1);
+        value.view();
+
+        TreeNodeLazyWrapper wrapper = (TreeNodeLazyWrapper)treeHandler.getResult(JdbcStubs.resultSet(json), 1);
+        assertThat(wrapper.toString()).isEqualTo("{\"a\":{\"b\":1},\"c\":2}");
+        assertThat(cache.getHitCount()).isEqualTo(1);
+
+        ((ObjectNode)wrapper.get("a")).put("b", 3);
+        assertThat(wrapper.at("/a/b").toString()).isEqualTo("3");
+        assertThat(wrapper.isSourceActual()).isFalse();
+        assertThat(value.view().at("/a/b").intValue()).isEqualTo(1);
+    }
+
+    @Test
+    public void configureFromProperties() {
+        Properties props = new Properties();
+        props.setProperty(CODEC + ".cache", "4096");
+        JsonCodecs.configure(props);
+        assertThat(JsonCodecs.getCache(CODEC).getMaxWeight()).isEqualTo(4096);
+
+        props.setProperty(CODEC + ".cache", "0");
+        JsonCodecs.configure(props);
+        assertThat(JsonCodecs.getCache(CODEC)).isNull();
+
+        props.setProperty(CODEC + ".cache", "big");
+        assertThatThrownBy(() -> JsonCodecs.configure(props)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new JsonTreeCache(1)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,95 @@
+package com.github.jneat.mybatis;
+
+import static org.assertj.core.api.Assertions.*;
+
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.type.MappedTypes;
+import org.apache.ibatis.type.TypeHandlerRegistry;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+
+public class JsonTypeHandlerTest {
+
+    public static class Dto {
+
+        public String name;
+
+        public List<Integer> list;
+    }
+
+    public static class DtoTypeHandler extends JsonTypeHandler<Dto> {
+    }
+
+    public static class DtoListTypeHandler extends JsonTypeHandler<List<Dto>> {
+    }
+
+    @MappedTypes(JsonValue.class)
+    public static class DtoValueTypeHandler extends JsonValueTypeHandler<Dto> {
+    }
+
+    @Test
+    public void readObject() throws SQLException {
+        DtoTypeHandler handler = new DtoTypeHandler();
+        for (JsonReadMode mode : JsonReadMode.values()) {
+            handler.setReadMode(mode);
+            Dto dto = handler.getResult(JdbcStubs.resultSet("{\"name\": \"José\", \"list\": [1, 2]}"), "json");
+            assertThat(dto.name).isEqualTo("José");
+            assertThat(dto.list).containsExactly(1, 2);
+
+            assertThat(handler.getResult(JdbcStubs.resultSet(null), 1)).isNull();
+            assertThat(handler.getResult(JdbcStubs.resultSet(" "), 1)).isNull();
+        }
+    }
+
+    @Test
+    public void readGenericType() throws SQLException {
+        List<Dto> list = new DtoListTypeHandler().getResult(JdbcStubs.resultSet("[{\"name\": \"a\"}, {\"name\": \"b\"}]"), 1);
+        assertThat(list).hasSize(2);
+        assertThat(list.get(1)).isInstanceOf(Dto.class);
+        assertThat(list.get(1).name).isEqualTo("b");
+    }
+
+    @Test
+    public void writeObject() throws SQLException {
+        Dto dto = new Dto();
+        dto.name = "x";
+        JsonTypeHandler<Dto> handler = JsonTypeHandler.of(Dto.class);
+        handler.setWriteMode(JsonWriteMode.BYTES);
+
+        Map<Integer, Object> params = JdbcStubs.params();
+        handler.setParameter(JdbcStubs.preparedStatement(params), 1, dto, null);
+        assertThat(new String((byte[])params.get(1), StandardCharsets.UTF_8)).isEqualTo("{\"name\":\"x\",\"list\":null}");
+    }
+
+    @Test
+    public void lazyValue() throws SQLException {
+        DtoValueTypeHandler handler = new DtoValueTypeHandler();
+        assertThat(handler.getResult(JdbcStubs.resultSet(null), 1).isPresent()).isFalse();
+
+        JsonValue<Dto> value = handler.getResult(JdbcStubs.resultSet("{\"name\" : \"a\"}"), 1);
+        Map<Integer, Object> params = JdbcStubs.params();
+
+        // Not accessed value is written as is
+        handler.setParameter(JdbcStubs.preparedStatement(params), 1, value, null);
+        assertThat(params.get(1)).isEqualTo("{\"name\" : \"a\"}");
+
+        assertThat(value.get()).isSameAs(value.get());
+        value.get().name = "b";
+        handler.setParameter(JdbcStubs.preparedStatement(params), 1, value, null);
+        assertThat(params.get(1)).isEqualTo("{\"name\":\"b\",\"list\":null}");
+    }
+
+    @Test
+    public void mybatisRegistration() {
+        TypeHandlerRegistry registry = new Configuration().getTypeHandlerRegistry();
+        registry.register(DtoTypeHandler.class);
+        registry.register(DtoValueTypeHandler.class);
+
+        assertThat(registry.getTypeHandler(Dto.class)).isInstanceOf(DtoTypeHandler.class);
+        assertThat(registry.getTypeHandler(JsonValue.class)).isInstanceOf(DtoValueTypeHandler.class);
+    }
+}
@@ -0,0 +1,176 @@
+package com.github.jneat.mybatis;
+
+import static org.assertj.core.api.Assertions.*;
+
+import com.fasterxml.jackson.core.TreeNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class LazyInitStressTest {
+
+    private static final int THREADS = 8;
+
+    private static final int ROUNDS = 300;
+
+    private static final String DOC = "{\"id\": 1, \"tags\": [\"x\", \"y\"], \"nested\": {\"a\": [1, 2, 3]}}";
+
+    private final AtomicInteger parses = new AtomicInteger();
+
+    private final JsonMetricsListener counter = new JsonMetricsListener() {
+        @Override
+        public void parsed(String codec, int size, long nanos) {
+            parses.incrementAndGet();
+        }
+    };
+
+    private ExecutorService executor;
+
+    private CyclicBarrier barrier;
+
+    @Before
+    public void setUp() {
+        executor = Executors.newFixedThreadPool(THREADS);
+        barrier = new CyclicBarrier(THREADS);
+        JsonMetrics.addListener(counter);
+    }
+
+    @After
+    public void tearDown() throws InterruptedException {
+        JsonMetrics.removeListener(counter);
+        executor.shutdownNow();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void treeNodeParsedOnce() throws Exception {
+        TreeNodeTypeHandler handler = new TreeNodeTypeHandler();
+        for (int round = 0; round < ROUNDS; round++) {
+            TreeNode node = handler.getResult(JdbcStubs.resultSet(DOC), 1);
+            List<Object> results = race(node::toString);
+            assertThat(results).containsOnly("{\"id\":1,\"tags\":[\"x\",\"y\"],\"nested\":{\"a\":[1,2,3]}}");
+        }
+        assertThat(parses.get()).isEqualTo(ROUNDS);
+    }
+
+    @Test
+    public void compactTreeParsedOnce() throws Exception {
+        TreeNodeTypeHandler handler = new TreeNodeTypeHandler();
+        handler.setTreeModel(JsonTreeModel.COMPACT);
+        for (int round = 0; round < ROUNDS; round++) {
+            TreeNodeLazyWrapper node = (TreeNodeLazyWrapper)handler.getResult(JdbcStubs.resultSet(DOC), 1);
+            race(() -> {
+                node.preload();
+                return node.fieldNames().next();
+            });
+        }
+        assertThat(parses.get()).isEqualTo(ROUNDS);
+    }
+
+    @Test
+    public void jsonNodeValueSharesView() throws Exception {
+        JsonNodeValueTypeHandler handler = new JsonNodeValueTypeHandler();
+        for (int round = 0; round < ROUNDS; round++) {
+            JsonNodeValue value = handler.getResult(JdbcStubs.resultSet(DOC), 1);
+            List<Object> results = race(value::view);
+            assertThat(results).hasSize(THREADS);
+            for (Object r : results) {
+                assertThat(r).isSameAs(results.get(0));
+            }
+        }
+        assertThat(parses.get()).isEqualTo(ROUNDS);
+    }
+
+    @Test
+    public void jsonValueParsedOnce() throws Exception {
+        JsonTypeHandlerTest.DtoValueTypeHandler handler = new JsonTypeHandlerTest.DtoValueTypeHandler();
+        for (int round = 0; round < ROUNDS; round++) {
+            JsonValue<JsonTypeHandlerTest.Dto> value = handler.getResult(JdbcStubs.resultSet("{\"name\": \"n" + round + "\"}"), 1);
+            List<Object> results = race(value::get);
+            for (Object r : results) {
+                assertThat(r).isSameAs(results.get(0));
+            }
+        }
+        assertThat(parses.get()).isEqualTo(ROUNDS);
+    }
+
+    /**
+     * With shared cached tree every exposing lookup returns containers of the one installed mutable copy.
+     */
+    @Test
+    public void exposedCopyIsInstalledOnce() throws Exception {
+        JsonCodecs.register("stress", new ObjectMapper());
+        JsonCodecs.setCache("stress", new JsonTreeCache(1 << 16));
+        TreeNodeTypeHandler handler = new TreeNodeTypeHandler();
+        handler.setCodec("stress");
+        for (int round = 0; round < ROUNDS; round++) {
+            TreeNode node = handler.getResult(JdbcStubs.resultSet(DOC), 1);
+            node.toString();
+            List<Object> results = race(() -> node.get("nested"));
+            for (Object r : results) {
+                assertThat(r).isSameAs(results.get(0));
+            }
+            assertThat(((TreeNodeLazyWrapper)node).isSourceActual()).isFalse();
+        }
+    }
+
+    @Test
+    public void failuresAreReportedToEachCaller() throws Exception {
+        JsonNodeValueTypeHandler handler = new JsonNodeValueTypeHandler();
+        for (int round = 0; round < ROUNDS / 10; round++) {
+            JsonNodeValue value = handler.getResult(JdbcStubs.resultSet("{\"a\": [1, "), 1);
+            List<Object> results = race(() -> {
+                try {
+                    return value.view();
+                } catch (RuntimeException ex) {
+                    return ex;
+                }
+            });
+            assertThat(results).hasSize(THREADS);
+            for (Object r : results) {
+                assertThat(r).isInstanceOf(RuntimeException.class);
+            }
+            assertThatThrownBy(value::view).hasMessageContaining("Can not parse JSON string");
+        }
+    }
+
+    @Test
+    public void backgroundParseAndAccessors() throws Exception {
+        JsonNodeValueTypeHandler handler = new JsonNodeValueTypeHandler();
+        handler.setParseExecutor(executor);
+        List<JsonNodeValue> values = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            values.add(handler.getResult(JdbcStubs.resultSet("{\"id\": " + i + "}"), 1));
+        }
+        for (int i = 0; i < values.size(); i++) {
+            assertThat(values.get(i).view().get("id").asInt()).isEqualTo(i);
+        }
+        assertThat(parses.get()).isEqualTo(2000);
+    }
+
+    private List<Object> race(Callable<Object> access) throws Exception {
+        List<Future<Object>> futures = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            futures.add(executor.submit(() -> {
+                barrier.await(10, TimeUnit.SECONDS);
+                return access.call();
+            }));
+        }
+        List<Object> results = new ArrayList<>();
+        for (Future<Object> f : futures) {
+            results.add(f.get(10, TimeUnit.SECONDS));
+        }
+        return results;
+    }
+}
@@ -0,0 +1,66 @@
+package com.github.jneat.mybatis;
+
+import static org.assertj.core.api.Assertions.*;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.junit.Test;
+import org.postgresql.util.PGobject;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Map;
+
+public class PostgresBindingTest {
+
+    private final ObjectNode node = new ObjectMapper().createObjectNode().put("a", 1);
+
+    @Test
+    public void autoDetectPostgresql() throws SQLException {
+        TreeNodeTypeHandler handler = new TreeNodeTypeHandler();
+        handler.setWriteMode(JsonWriteMode.AUTO);
+
+        Map<Integer, Object> params = JdbcStubs.params();
+        PreparedStatement pg = JdbcStubs.preparedStatement(params, "PostgreSQL");
+        PreparedStatement h2 = JdbcStubs.preparedStatement(params, "H2");
+        // Statements of pooled connections are interleaved
+        for (int n = 0; n < 2; n++) {
+            handler.setParameter(pg, 1, node, null);
+            PGobject obj = (PGobject)params.get(1);
+            assertThat(obj.getType()).isEqualTo("json");
+            assertThat(obj.getValue()).isEqualTo("{\"a\":1}");
+
+            handler.setParameter(h2, 1, node, null);
+            assertThat(params.get(1)).isEqualTo("{\"a\":1}");
+            assertThat(params.get(-1)).isEqualTo("setString");
+        }
+
+        JsonNodeValueTypeHandler valueHandler = new JsonNodeValueTypeHandler();
+        valueHandler.setWriteMode(JsonWriteMode.AUTO);
+        valueHandler.setParameter(pg, 1, JsonNodeValue.EMPTY, null);
+        PGobject obj = (PGobject)params.get(1);
+        assertThat(obj.getType()).isEqualTo("json");
+        assertThat(obj.getValue()).isNull();
+    }
+
+    @Test
+    public void typedJsonb() throws SQLException {
+        JsonNodeValueTypeHandler handler = new JsonNodeValueTypeHandler();
+        handler.setWriteMode(JsonWriteMode.JSONB);
+
+        Map<Integer, Object> params = JdbcStubs.params();
+        handler.setParameter(JdbcStubs.preparedStatement(params), 1, JsonNodeValue.from(node), null);
+        PGobject obj = (PGobject)params.get(1);
+        assertThat(obj.getType()).isEqualTo("jsonb");
+        assertThat(obj.getValue()).isEqualTo("{\"a\":1}");
+
+        handler.setParameter(JdbcStubs.preparedStatement(params), 1, JsonNodeValue.EMPTY, null);
+        obj = (PGobject)params.get(1);
+        assertThat(obj.getType()).isEqualTo("jsonb");
+        assertThat(obj.getValue()).isNull();
+
+        handler.setCodec(JsonCodecs.SMILE);
+        assertThat(handler.getWriteMode()).isEqualTo(JsonWriteMode.BYTES);
+        assertThatThrownBy(() -> handler.setWriteMode(JsonWriteMode.JSON)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -116,6 +116,24 @@ public class PostgresqlTest extends JsonHandlersTestApi {
         }
     }
 
+    @Test
+    public void test5CopyRows() throws IOException, SQLException {
+        try (SqlSession sess = sessionFactory.openSession()) {
+            String sql = "COPY mybatis_jackson (id, jsonArray, jsonObject, nodeArray, nodeObject) FROM STDIN";
+            try (JsonCopyWriter w = JsonCopyWriter.postgres(sess.getConnection(), sql, JsonCopyWriter.Format.TEXT)) {
+                w.writeText(5).writeJson(aNode).writeJson(oNode)
+                    .writeJson(JsonNodeValue.from(aNode)).writeJson(JsonNodeValue.from(oNode)).endRow();
+            }
+
+            JsonEntity e = sess.getMapper(JsonMapper.class).get(5);
+            compareArrays(aNode, e.getJsonArray());
+            compareObjects(oNode, e.getJsonObject());
+            compareArrays(aNode, e.getNodeArray().get());
+            compareObjects(oNode, e.getNodeObject().get());
+            sess.commit(true);
+        }
+    }
+
     protected void compareArrays(TreeNode a, TreeNode b) {
         assertThat(a.isArray()).isEqualTo(b.isArray());
         assertThat(a.size()).isEqualTo(b.size());
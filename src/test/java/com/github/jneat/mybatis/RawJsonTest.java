@@ -0,0 +1,119 @@
+package com.github.jneat.mybatis;
+
+import static org.assertj.core.api.Assertions.*;
+
+import com.fasterxml.jackson.core.TreeNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public class RawJsonTest {
+
+    // Formatting shows that document is not rewritten
+    private static final String DOC = "{ \"name\":  \"doc\",\n  \"items\": [1, 2.50, \"é\"] }";
+
+    private final ObjectMapper mapper = new ObjectMapper().registerModule(new RawJsonModule());
+
+    private static <T extends AbstractJsonTypeHandler<?>> T strict(T handler) {
+        handler.setCodec(JsonCodecs.STRICT);
+        return handler;
+    }
+
+    private static Map<String, Object> response(Object doc) {
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("id", 1);
+        response.put("doc", doc);
+        return response;
+    }
+
+    @Test
+    public void lazyTreeWrittenRaw() throws SQLException, IOException {
+        TreeNode tree = strict(new TreeNodeTypeHandler()).getResult(JdbcStubs.resultSet(DOC), 1);
+        TreeNodeLazyWrapper wrapper = (TreeNodeLazyWrapper)tree;
+
+        assertThat(mapper.writeValueAsString(response(tree))).isEqualTo("{\"id\":1,\"doc\":" + DOC + "}");
+        assertThat(new String(mapper.writeValueAsBytes(response(tree)), StandardCharsets.UTF_8))
+            .isEqualTo("{\"id\":1,\"doc\":" + DOC + "}");
+        assertThat(wrapper.isMaterialized()).isFalse();
+
+        // Exposed tree may be changed, so it is written instead of source
+        tree.fieldNames();
+        ((ArrayNode)tree.path("items")).add(3);
+        assertThat(mapper.writeValueAsString(response(tree)))
+            .isEqualTo("{\"id\":1,\"doc\":{\"name\":\"doc\",\"items\":[1,2.5,\"é\",3]}}");
+    }
+
+    @Test
+    public void valuesWrittenRaw() throws SQLException, IOException {
+        JsonNodeValue value = strict(new JsonNodeValueTypeHandler()).getResult(JdbcStubs.resultSet(DOC), 1);
+        assertThat(mapper.writeValueAsString(value)).isEqualTo(DOC);
+        assertThat(mapper.writeValueAsString(JsonNodeValue.EMPTY)).isEqualTo("null");
+        ObjectNode node = mapper.createObjectNode().put("a", 1);
+        assertThat(mapper.writeValueAsString(JsonNodeValue.from(node))).isEqualTo("{\"a\":1}");
+
+        JsonValue<JsonTypeHandlerTest.Dto> dto = strict(new JsonTypeHandlerTest.DtoValueTypeHandler())
+            .getResult(JdbcStubs.resultSet("{ \"name\" : \"a\" }"), 1);
+        assertThat(mapper.writeValueAsString(dto)).isEqualTo("{ \"name\" : \"a\" }");
+        assertThat(mapper.writeValueAsString(JsonValue.of(Collections.singletonMap("a", 1)))).isEqualTo("{\"a\":1}");
+
+        JsonEdit edit = strict(new JsonEditTypeHandler()).getResult(JdbcStubs.resultSet(DOC), 1);
+        assertThat(mapper.writeValueAsString(edit)).isEqualTo(DOC);
+        ((ObjectNode)edit.edit()).put("name", "changed");
+        assertThat(mapper.writeValueAsString(edit)).isEqualTo("{\"name\":\"changed\",\"items\":[1,2.5,\"é\"]}");
+    }
+
+    @Test
+    public void lenientDocumentsNormalized() throws SQLException, IOException {
+        String lenient = "{test:'x', n:007}";
+        String normalized = "{\"test\":\"x\",\"n\":7}";
+        ObjectMapper strictMapper = new ObjectMapper();
+        Object[] values = {
+            new TreeNodeTypeHandler().getResult(JdbcStubs.resultSet(lenient), 1),
+            new JsonNodeValueTypeHandler().getResult(JdbcStubs.resultSet(lenient), 1),
+            new JsonEditTypeHandler().getResult(JdbcStubs.resultSet(lenient), 1),
+            new RawJsonTypeHandler().getResult(JdbcStubs.resultSet(lenient), 1)
+        };
+        for (Object value : values) {
+            String json = mapper.writeValueAsString(value);
+            assertThat(json).as(value.getClass().getSimpleName()).isEqualTo(normalized);
+            assertThat(new String(mapper.writeValueAsBytes(value), StandardCharsets.UTF_8)).isEqualTo(normalized);
+            assertThat(strictMapper.readTree(json).path("n").intValue()).isEqualTo(7);
+        }
+    }
+
+    @Test
+    public void tokensCopiedIntoOtherFormats() throws IOException {
+        ObjectMapper smileMapper = new ObjectMapper(new SmileFactory()).registerModule(new RawJsonModule());
+        RawJson raw = RawJson.of(DOC);
+        byte[] smile = smileMapper.writeValueAsBytes(raw);
+        assertThat(new ObjectMapper(new SmileFactory()).readTree(smile)).isEqualTo(mapper.readTree(DOC));
+
+        // Binary source is transcoded into JSON text
+        ReaderWriter smileCodec = JsonCodecs.get(JsonCodecs.SMILE);
+        RawJson binary = RawJson.fromDb(JsonSource.of(smile, smileCodec), smileCodec);
+        assertThat(mapper.writeValueAsString(binary)).isEqualTo("{\"name\":\"doc\",\"items\":[1,2.5,\"é\"]}");
+        assertThat(binary.toString()).isEqualTo("{\"name\":\"doc\",\"items\":[1,2.5,\"é\"]}");
+    }
+
+    @Test
+    public void typeHandler() throws SQLException {
+        RawJsonTypeHandler handler = strict(new RawJsonTypeHandler());
+        RawJson raw = handler.getResult(JdbcStubs.resultSet(DOC), 1);
+        assertThat(raw.toString()).isEqualTo(DOC);
+        assertThat(handler.getResult(JdbcStubs.resultSet(null), 1)).isNull();
+        assertThat(handler.getResult(JdbcStubs.resultSet(" "), 1)).isNull();
+
+        Map<Integer, Object> params = JdbcStubs.params();
+        handler.setNonNullParameter(JdbcStubs.preparedStatement(params), 1, raw, null);
+        assertThat(params.get(1)).isEqualTo(DOC);
+    }
+}
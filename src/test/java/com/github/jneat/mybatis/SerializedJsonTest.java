@@ -0,0 +1,146 @@
+package com.github.jneat.mybatis;
+
+import static org.assertj.core.api.Assertions.*;
+
+import com.fasterxml.jackson.core.TreeNode;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.sql.SQLException;
+
+public class SerializedJsonTest {
+
+    private static final String DOC = "{\"name\": \"doc\", \"items\": [1, 2, 3], \"nested\": {\"text\": \"é\"}}";
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    private static byte[] serialize(Object value) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream oos = new ObjectOutputStream(bytes)) {
+            oos.writeObject(value);
+        }
+        return bytes.toByteArray();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T copy(T value) throws IOException, ClassNotFoundException {
+        try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(serialize(value)))) {
+            return (T)ois.readObject();
+        }
+    }
+
+    @Test
+    public void treeKeepsSingleRepresentation() throws SQLException, IOException, ClassNotFoundException {
+        TreeNodeTypeHandler handler = new TreeNodeTypeHandler();
+        handler.setCodec(JsonCodecs.STRICT);
+        TreeNode tree = handler.getResult(JdbcStubs.resultSet(DOC), 1);
+        int lazySize = serialize(tree).length;
+
+        // Parsed tree is not written next to source
+        for (int i = 0; i < 5; i++) {
+            assertThat(tree.path("name").toString()).isEqualTo("\"doc\"");
+        }
+        assertThat(((TreeNodeLazyWrapper)tree).isMaterialized()).isTrue();
+        assertThat(serialize(tree).length).isEqualTo(lazySize);
+
+        TreeNodeLazyWrapper copy = copy((TreeNodeLazyWrapper)tree);
+        assertThat(copy.isMaterialized()).isFalse();
+        assertThat(copy.getJsonSource()).isEqualTo(DOC);
+        assertThat((JsonNode)mapper.readTree(copy.traverse())).isEqualTo(mapper.readTree(DOC));
+
+        // Exposed but unchanged tree is still unmodified
+        tree.fieldNames();
+        assertThat(copy((TreeNodeLazyWrapper)tree).isModified()).isFalse();
+
+        // Changed tree is written instead of stale source and stays modified, so its update is not skipped
+        ((ArrayNode)tree.path("items")).add(4);
+        TreeNodeLazyWrapper changed = copy((TreeNodeLazyWrapper)tree);
+        assertThat(changed.path("items").size()).isEqualTo(4);
+        assertThat(changed.isModified()).isTrue();
+        assertThat(copy(changed).isModified()).isTrue();
+    }
+
+    @Test
+    public void nodeValues() throws SQLException, IOException, ClassNotFoundException {
+        JsonNodeValue db = new JsonNodeValueTypeHandler().getResult(JdbcStubs.resultSet(DOC), 1);
+        JsonNodeValue dbCopy = copy(db);
+        assertThat(dbCopy.hasDbSource()).isTrue();
+        assertThat(dbCopy.isModified()).isFalse();
+        assertThat(dbCopy.get()).isEqualTo(db.get());
+        // Content and short header, without class descriptors of sources and codecs
+        assertThat(serialize(db).length).isLessThan(DOC.length() + 100);
+
+        JsonNode node = mapper.readTree(DOC);
+        JsonNodeValue fromNode = copy(JsonNodeValue.from(node));
+        assertThat(fromNode.hasDbSource()).isFalse();
+        assertThat(fromNode.isModified()).isTrue();
+        assertThat(fromNode.get()).isEqualTo(node);
+
+        assertThat(copy(JsonNodeValue.EMPTY)).isSameAs(JsonNodeValue.EMPTY);
+        assertThat(copy(JsonNodeValue.fromDb(JsonLimits.EXCEEDED, JsonCodecs.defaultCodec())).isLimitExceeded()).isTrue();
+        TreeNodeLazyWrapper dropped = copy(new TreeNodeLazyWrapper(JsonLimits.EXCEEDED, JsonCodecs.defaultCodec()));
+        assertThat(dropped.isLimitExceeded()).isTrue();
+        assertThat(dropped.isMissingNode()).isTrue();
+    }
+
+    @Test
+    public void droppedJsonValueIsNotWritten() throws SQLException, IOException, ClassNotFoundException {
+        JsonTypeHandlerTest.DtoValueTypeHandler handler = new JsonTypeHandlerTest.DtoValueTypeHandler();
+        handler.setLimits(JsonLimits.NONE.withMaxLength(5).withPolicy(JsonLimitPolicy.MISSING));
+        JsonValue<JsonTypeHandlerTest.Dto> dropped = copy(handler.getResult(JdbcStubs.resultSet("{\"name\": \"a\"}"), 1));
+        assertThat(dropped.isLimitExceeded()).isTrue();
+        assertThatThrownBy(() -> handler.setNonNullParameter(JdbcStubs.preparedStatement(JdbcStubs.params()), 1, dropped, null))
+            .isInstanceOf(SQLException.class);
+        assertThat(copy(JsonValue.empty())).isSameAs(JsonValue.empty());
+        assertThat(copy(JsonValue.of("a")).get()).isEqualTo("a");
+    }
+
+    @Test
+    public void storedForms() throws IOException, ClassNotFoundException, SQLException {
+        ReaderWriter smileCodec = JsonCodecs.get(JsonCodecs.SMILE);
+        byte[] smile = new ObjectMapper(new SmileFactory()).writeValueAsBytes(mapper.readTree(DOC));
+        JsonNodeValue binary = copy(JsonNodeValue.fromDb(JsonSource.of(smile, smileCodec), smileCodec));
+        assertThat(binary.source().isBinary()).isTrue();
+        assertThat(binary.source().stored()).isEqualTo(smile);
+        assertThat(binary.get()).isEqualTo(mapper.readTree(DOC));
+
+        // Changed trees are written by codec of wrapper
+        TreeNode tree = new TreeNodeLazyWrapper(JsonSource.of(smile, smileCodec), smileCodec);
+        tree.fieldNames();
+        ((ArrayNode)tree.path("items")).add(4);
+        TreeNodeLazyWrapper smileCopy = copy((TreeNodeLazyWrapper)tree);
+        assertThat(smileCopy.source().isBinary()).isTrue();
+        assertThat(smileCopy.path("items").size()).isEqualTo(4);
+
+        JsonNodeValueTypeHandler handler = new JsonNodeValueTypeHandler();
+        handler.setReadMode(JsonReadMode.BYTES);
+        handler.setWriteMode(JsonWriteMode.BYTES);
+        handler.setCompression(JsonCompression.DEFLATE);
+        handler.setCompressionThreshold(0);
+        Object stored = JsonCompressionTest.bind(handler, JsonNodeValue.from(DOC));
+        JsonNodeValue compressed = copy(handler.getResult(JdbcStubs.binaryResultSet((byte[])stored), 1));
+        assertThat(compressed.source()).isInstanceOf(CompressedSource.class);
+        assertThat(compressed.get()).isEqualTo(mapper.readTree(DOC));
+    }
+
+    @Test
+    public void unregisteredCodec() throws IOException, ClassNotFoundException {
+        ReaderWriter smileCodec = new ReaderWriter("unregistered-smile", new ObjectMapper(new SmileFactory()));
+        byte[] smile = smileCodec.writer().writeValueAsBytes(mapper.readTree(DOC));
+        JsonNodeValue binary = JsonNodeValue.fromDb(JsonSource.of(smile, smileCodec), smileCodec);
+        assertThatThrownBy(() -> copy(binary)).isInstanceOf(InvalidObjectException.class).hasMessageContaining("unregistered-smile");
+
+        // JSON text is read by default codec
+        ReaderWriter textCodec = new ReaderWriter("unregistered-json", new ObjectMapper());
+        assertThat(copy(JsonNodeValue.fromDb(JsonSource.of(DOC), textCodec)).get()).isEqualTo(mapper.readTree(DOC));
+    }
+}
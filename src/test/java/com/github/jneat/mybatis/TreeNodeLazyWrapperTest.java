@@ -0,0 +1,104 @@
+package com.github.jneat.mybatis;
+
+import static org.assertj.core.api.Assertions.*;
+
+import com.fasterxml.jackson.core.JsonPointer;
+import com.fasterxml.jackson.core.TreeNode;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.sql.SQLException;
+
+public class TreeNodeLazyWrapperTest {
+
+    private static final String JSON = "{\"a\": {\"b\": [10, {\"c\": \"x\"}, [1, 2]], \"a/b\": 1, \"~\": 2},"
+        + " \"d\": null, \"0\": \"zero\", \"dup\": {\"v\": 1}, \"dup\": {\"w\": 2}, \"e\": [true]}";
+
+    private static final String[] POINTERS = {
+        "/a", "/a/b", "/a/b/0", "/a/b/1/c", "/a/b/2/1", "/a/b/3", "/a/b/-1", "/a/b/x", "/a/a~1b", "/a/~0",
+        "/d", "/d/x", "/0", "/dup", "/dup/v", "/dup/w", "/e/0", "/e/0/x", "/missing", "/missing/deep", "/"
+    };
+
+    private static TreeNodeLazyWrapper wrapper(String json) {
+        return new TreeNodeLazyWrapper(json);
+    }
+
+    @Test
+    public void pointerLookupsMatchTree() throws IOException {
+        JsonNode tree = new ObjectMapper().readTree(JSON);
+        for (String ptr : POINTERS) {
+            TreeNodeLazyWrapper w = wrapper(JSON);
+            assertThat(w.at(ptr)).as(ptr).isEqualTo(tree.at(ptr));
+            assertThat(w.at(JsonPointer.compile(ptr))).as(ptr).isEqualTo(tree.at(ptr));
+            // Only scalars are read without tree
+            assertThat(w.isMaterialized()).as(ptr).isEqualTo(tree.at(ptr).isContainerNode());
+        }
+    }
+
+    @Test
+    public void changesOfLookedUpContainersAreKept() {
+        TreeNodeLazyWrapper w = wrapper(JSON);
+        ((ObjectNode)w.get("a")).put("z", 1);
+        ((ArrayNode)w.at("/a/b")).add(3);
+        assertThat(w.path("a").path("z").toString()).isEqualTo("1");
+        assertThat(w.at("/a/b").size()).isEqualTo(4);
+        assertThat(w.isModified()).isTrue();
+    }
+
+    @Test
+    public void fieldAndElementLookupsMatchTree() throws IOException {
+        for (String json : new String[]{JSON, "[1, {\"a\": 2}, [3]]", "12", "\"text\""}) {
+            JsonNode tree = new ObjectMapper().readTree(json);
+            for (String field : new String[]{"a", "0", "d", "dup", "missing"}) {
+                assertThat(wrapper(json).get(field)).as(json + " " + field).isEqualTo(tree.get(field));
+                assertThat(wrapper(json).path(field)).as(json + " " + field).isEqualTo(tree.path(field));
+            }
+            for (int i = -1; i < 4; i++) {
+                assertThat(wrapper(json).get(i)).as(json + " " + i).isEqualTo(tree.get(i));
+                assertThat(wrapper(json).path(i)).as(json + " " + i).isEqualTo(tree.path(i));
+            }
+        }
+    }
+
+    @Test
+    public void shapeWithoutParsing() throws IOException {
+        for (String json : new String[]{JSON, "[1, {\"a\": 2}, [3]]", "{}", "[]", " 12", "\"text\"", "null", "true"}) {
+            JsonNode tree = new ObjectMapper().readTree(json);
+            TreeNodeLazyWrapper w = wrapper(json);
+            assertThat(w.asToken()).as(json).isEqualTo(tree.asToken());
+            assertThat(w.isArray()).as(json).isEqualTo(tree.isArray());
+            assertThat(w.isObject()).as(json).isEqualTo(tree.isObject());
+            assertThat(w.isContainerNode()).as(json).isEqualTo(tree.isContainerNode());
+            assertThat(w.isValueNode()).as(json).isEqualTo(tree.isValueNode());
+            assertThat(w.isMissingNode()).as(json).isFalse();
+            assertThat(w.size()).as(json).isEqualTo(tree.size());
+            assertThat(w.isMaterialized()).isFalse();
+        }
+    }
+
+    @Test
+    public void materializeAfterSeveralLookups() {
+        TreeNodeLazyWrapper w = wrapper(JSON);
+        for (int i = 0; i < 10; i++) {
+            assertThat(w.get("d").toString()).isEqualTo("null");
+        }
+        assertThat(w.isMaterialized()).isTrue();
+
+        TreeNode whole = wrapper(JSON).at("");
+        assertThat(whole.size()).isEqualTo(5);
+    }
+
+    @Test
+    public void binarySource() throws IOException, SQLException {
+        BinaryTreeNodeTypeHandler handler = new BinaryTreeNodeTypeHandler();
+        byte[] smile = new ObjectMapper(new SmileFactory()).writeValueAsBytes(new ObjectMapper().readTree(JSON));
+        TreeNodeLazyWrapper w = (TreeNodeLazyWrapper)handler.getResult(JdbcStubs.binaryResultSet(smile), 1);
+        assertThat(w.at("/a/b/1/c").toString()).isEqualTo("\"x\"");
+        assertThat(w.isMaterialized()).isFalse();
+    }
+}
@@ -0,0 +1,62 @@
+package com.github.jneat.mybatis;
+
+import static org.assertj.core.api.Assertions.*;
+
+import com.fasterxml.jackson.core.TreeNode;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+
+@RunWith(Parameterized.class)
+public class TypeHandlerReadModeTest {
+
+    @Parameters
+    public static Collection<Object[]> data() {
+        Collection<Object[]> modes = new ArrayList<>();
+        for (JsonReadMode mode : JsonReadMode.values()) {
+            modes.add(new Object[]{mode});
+        }
+        return modes;
+    }
+
+    private JsonReadMode mode;
+
+    public TypeHandlerReadModeTest(JsonReadMode mode) {
+        this.mode = mode;
+    }
+
+    @Test
+    public void readTreeNode() throws SQLException {
+        TreeNodeTypeHandler handler = new TreeNodeTypeHandler();
+        handler.setReadMode(mode);
+
+        TreeNode node = handler.getResult(JdbcStubs.resultSet("{\"name\": \"José\", list: [1, 2]}"), "json");
+        assertThat(node).isInstanceOf(TreeNodeLazyWrapper.class);
+        assertThat(node.isObject()).isTrue();
+        assertThat(node.get("name").toString()).isEqualTo("\"José\"");
+        assertThat(node.get("list").size()).isEqualTo(2);
+        assertThat(((TreeNodeLazyWrapper)node).getJsonSource()).isEqualTo("{\"name\": \"José\", list: [1, 2]}");
+
+        assertThat(handler.getResult(JdbcStubs.resultSet(null), 1).isMissingNode()).isTrue();
+        assertThat(handler.getResult(JdbcStubs.resultSet(""), 1).isMissingNode()).isTrue();
+    }
+
+    @Test
+    public void readJsonNodeValue() throws SQLException {
+        JsonNodeValueTypeHandler handler = new JsonNodeValueTypeHandler();
+        handler.setReadMode(mode);
+
+        JsonNodeValue value = handler.getResult(JdbcStubs.resultSet("[1, 2, \"€\"]"), 1);
+        assertThat(value.isPresent()).isTrue();
+        assertThat(value.get().size()).isEqualTo(3);
+        assertThat(value.get().get(2).asText()).isEqualTo("€");
+
+        assertThat(handler.getResult(JdbcStubs.resultSet(null), "json").isPresent()).isFalse();
+        assertThat(handler.getResult(JdbcStubs.resultSet("  "), "json").isPresent()).isFalse();
+    }
+}
@@ -0,0 +1,114 @@
+package com.github.jneat.mybatis;
+
+import static org.assertj.core.api.Assertions.*;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+import org.postgresql.util.PGobject;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Map;
+
+@RunWith(Parameterized.class)
+public class TypeHandlerWriteModeTest {
+
+    @Parameters
+    public static Collection<Object[]> data() {
+        Collection<Object[]> modes = new ArrayList<>();
+        for (JsonWriteMode mode : JsonWriteMode.values()) {
+            modes.add(new Object[]{mode});
+        }
+        return modes;
+    }
+
+    private JsonWriteMode mode;
+
+    public TypeHandlerWriteModeTest(JsonWriteMode mode) {
+        this.mode = mode;
+    }
+
+    private static String bound(Object value) throws IOException {
+        if (value == null || value instanceof String) {
+            return (String)value;
+        }
+        if (value instanceof PGobject) {
+            return ((PGobject)value).getValue();
+        }
+        if (value instanceof byte[]) {
+            return new String((byte[])value, StandardCharsets.UTF_8);
+        }
+        if (value instanceof InputStream) {
+            return new String(Streams.readBytes((InputStream)value), StandardCharsets.UTF_8);
+        }
+        StringWriter sw = new StringWriter();
+        try (Reader rd = (Reader)value) {
+            int c;
+            while ((c = rd.read()) != -1) {
+                sw.write(c);
+            }
+        }
+        return sw.toString();
+    }
+
+    @Test
+    public void writeTreeNode() throws SQLException, IOException {
+        TreeNodeTypeHandler handler = new TreeNodeTypeHandler();
+        handler.setWriteMode(mode);
+        ObjectNode node = new ObjectMapper().createObjectNode().put("a", 1).put("b", "Grüße");
+
+        // Repeat to make sure pooled buffers are cleaned
+        for (int k = 0; k < 3; k++) {
+            Map<Integer, Object> params = JdbcStubs.params();
+            handler.setParameter(JdbcStubs.preparedStatement(params), 2, node, null);
+            assertThat(bound(params.get(2))).isEqualTo("{\"a\":1,\"b\":\"Grüße\"}");
+        }
+    }
+
+    @Test
+    public void writeLazyWrapper() throws SQLException, IOException {
+        TreeNodeTypeHandler handler = new TreeNodeTypeHandler();
+        handler.setWriteMode(mode);
+        Map<Integer, Object> params = JdbcStubs.params();
+
+        TreeNodeLazyWrapper wrapper = new TreeNodeLazyWrapper("{\"a\" : [1, 2], b: 'x'}");
+        assertThat(wrapper.get("b").toString()).isEqualTo("\"x\"");
+        assertThat(wrapper.size()).isEqualTo(2);
+        handler.setParameter(JdbcStubs.preparedStatement(params), 1, wrapper, null);
+        assertThat(bound(params.get(1))).isEqualTo("{\"a\" : [1, 2], b: 'x'}");
+
+        // Materialized tree is written as is while its containers are not handed out
+        assertThat(wrapper.toString()).isEqualTo("{\"a\":[1,2],\"b\":\"x\"}");
+        handler.setParameter(JdbcStubs.preparedStatement(params), 1, wrapper, null);
+        assertThat(bound(params.get(1))).isEqualTo("{\"a\" : [1, 2], b: 'x'}");
+
+        ((ArrayNode)wrapper.get("a")).add(3);
+        handler.setParameter(JdbcStubs.preparedStatement(params), 1, wrapper, null);
+        assertThat(bound(params.get(1))).isEqualTo("{\"a\":[1,2,3],\"b\":\"x\"}");
+    }
+
+    @Test
+    public void writeJsonNodeValue() throws SQLException, IOException {
+        JsonNodeValueTypeHandler handler = new JsonNodeValueTypeHandler();
+        handler.setWriteMode(mode);
+
+        Map<Integer, Object> params = JdbcStubs.params();
+        handler.setParameter(JdbcStubs.preparedStatement(params), 1, JsonNodeValue.from("[1, 2]"), null);
+        assertThat(bound(params.get(1))).isEqualTo("[1,2]");
+
+        JsonNodeValue fromDb = JsonNodeValue.fromDb(JsonSource.of("[1, 2]".getBytes(StandardCharsets.UTF_8)), JsonCodecs.defaultCodec());
+        handler.setParameter(JdbcStubs.preparedStatement(params), 1, fromDb, null);
+        assertThat(bound(params.get(1))).isEqualTo("[1, 2]");
+    }
+}